@@ -4,8 +4,8 @@ import com.secure.notes.models.AppRole;
 import com.secure.notes.models.Role;
 import com.secure.notes.models.User;
 import com.secure.notes.repositories.RoleRepository;
-import com.secure.notes.security.jwt.JwtUtils;
 import com.secure.notes.security.services.UserDetailsImpl;
+import com.secure.notes.services.RefreshTokenService;
 import com.secure.notes.services.UserService;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -36,7 +36,7 @@ public class OAuth2LoginSuccessHandler extends SavedRequestAwareAuthenticationSu
     private final UserService userService;
 
     @Autowired
-    private final JwtUtils jwtUtils;
+    private final RefreshTokenService refreshTokenService;
 
     @Autowired
     RoleRepository roleRepository;
@@ -124,12 +124,14 @@ public class OAuth2LoginSuccessHandler extends SavedRequestAwareAuthenticationSu
                     authorities
             );
 
-            String jwtToken = jwtUtils.generateTokenFromUsername(userDetails);
+            RefreshTokenService.IssuedTokens tokens = refreshTokenService.issue(userDetails);
             log.info("Generated JWT token for user: {}", username);
 
-            // Redirect to frontend with JWT token
+            // Redirect to frontend with JWT token. The refresh token goes in the fragment,
+            // which the browser does not send to servers or write to their access logs
             String targetUrl = UriComponentsBuilder.fromUriString(frontendUrl + "/oauth2/redirect")
-                    .queryParam("token", jwtToken)
+                    .queryParam("token", tokens.accessToken())
+                    .fragment("refreshToken=" + tokens.refreshToken())
                     .build().toUriString();
 
             this.setAlwaysUseDefaultTargetUrl(true);
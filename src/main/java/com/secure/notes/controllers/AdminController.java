@@ -1,10 +1,23 @@
 package com.secure.notes.controllers;
 
+import com.secure.notes.dtos.BulkEmailRequest;
 import com.secure.notes.dtos.UserDTO;
+import com.secure.notes.models.BulkEmailJob;
+import com.secure.notes.models.EmailOutboxStatus;
 import com.secure.notes.models.Role;
 import com.secure.notes.models.User;
+import com.secure.notes.security.BoundedPasswordEncoder;
+import com.secure.notes.security.jwt.JwtUtils;
+import com.secure.notes.security.jwt.RevokedTokenIndex;
+import com.secure.notes.security.services.UserDetailsCache;
+import com.secure.notes.services.AiResultCache;
+import com.secure.notes.services.BulkEmailService;
+import com.secure.notes.services.EmailOutboxService;
+import com.secure.notes.services.NoteSearchService;
+import com.secure.notes.services.RefreshTokenService;
 import com.secure.notes.services.TokenCleanupService;
 import com.secure.notes.services.UserService;
+import com.secure.notes.util.ExpiringCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -27,6 +40,24 @@ public class AdminController {
 
     private final TokenCleanupService tokenCleanupService;
 
+    private final UserDetailsCache userDetailsCache;
+
+    private final JwtUtils jwtUtils;
+
+    private final NoteSearchService noteSearchService;
+
+    private final AiResultCache aiResultCache;
+
+    private final EmailOutboxService emailOutboxService;
+
+    private final BulkEmailService bulkEmailService;
+
+    private final BoundedPasswordEncoder passwordEncoder;
+
+    private final RefreshTokenService refreshTokenService;
+
+    private final RevokedTokenIndex revokedTokenIndex;
+
     @GetMapping("/getusers")
     public ResponseEntity<List<User>> getAllUsers() {
         return new ResponseEntity<>(userService.getAllUsers(),
@@ -124,6 +155,20 @@ public class AdminController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Get refresh session and revoked token index statistics
+     * GET http://localhost:8080/api/admin/sessions/stats
+     */
+    @GetMapping("/sessions/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getSessionStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("activeRefreshTokens", refreshTokenService.countActive());
+        response.put("revokedTokenIndex", revokedTokenIndex.getStats());
+
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Cleanup only expired tokens
      * POST http://localhost:8080/api/admin/tokens/cleanup-expired
@@ -158,4 +203,166 @@ public class AdminController {
         return ResponseEntity.ok(response);
     }
 
-}
\ No newline at end of file
+    /**
+     * Get authentication cache statistics
+     * GET http://localhost:8080/api/admin/cache/stats
+     */
+    @GetMapping("/cache/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("userDetails", toMap(userDetailsCache.getStats()));
+        response.put("verifiedTokens", toMap(jwtUtils.getVerifiedTokenCacheStats()));
+        response.put("aiConversions", aiResultCache.getStats());
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Rebuild the note search index from the database
+     * POST http://localhost:8080/api/admin/search/rebuild
+     */
+    @PostMapping("/search/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> rebuildSearchIndex() {
+        long start = System.currentTimeMillis();
+        int indexed = noteSearchService.rebuildIndex();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("indexedNotes", indexed);
+        response.put("durationMs", System.currentTimeMillis() - start);
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Email outbox message counts by status
+     * GET http://localhost:8080/api/admin/email-outbox/stats
+     */
+    @GetMapping("/email-outbox/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<EmailOutboxStatus, Long>> getEmailOutboxStats() {
+        return ResponseEntity.ok(emailOutboxService.getStatusCounts());
+    }
+
+    /**
+     * Queue a dead-lettered email again
+     * POST http://localhost:8080/api/admin/email-outbox/{id}/retry
+     */
+    @PostMapping("/email-outbox/{id}/retry")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> retryDeadEmail(@PathVariable Long id) {
+        Map<String, Object> response = new HashMap<>();
+        if (!emailOutboxService.retryDead(id)) {
+            response.put("message", "No retryable dead email with id " + id);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        response.put("message", "Email " + id + " queued again");
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Start sending a template to an audience in provider batches
+     * POST http://localhost:8080/api/admin/bulk-email
+     */
+    @PostMapping("/bulk-email")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> startBulkEmail(@RequestBody BulkEmailRequest request) {
+        if (request.getTemplate() == null) {
+            return ResponseEntity.badRequest().body(Map.of("message", "template is required"));
+        }
+        try {
+            BulkEmailJob job = bulkEmailService.startJob(request.getTemplate(), request.getAudience(),
+                    request.getVariables(), request.getWindowStart(), request.getWindowEnd());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    /**
+     * Latest bulk email jobs with their progress
+     * GET http://localhost:8080/api/admin/bulk-email
+     */
+    @GetMapping("/bulk-email")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<BulkEmailJob>> getBulkEmailJobs() {
+        return ResponseEntity.ok(bulkEmailService.getRecentJobs());
+    }
+
+    /**
+     * Progress and throughput of one bulk email job
+     * GET http://localhost:8080/api/admin/bulk-email/{id}
+     */
+    @GetMapping("/bulk-email/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<BulkEmailJob> getBulkEmailJob(@PathVariable Long id) {
+        return bulkEmailService.getJob(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Bulk sender counters: provider requests, throttling and failed batches
+     * GET http://localhost:8080/api/admin/bulk-email/stats
+     */
+    @GetMapping("/bulk-email/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<BulkEmailService.BulkEmailStats> getBulkEmailStats() {
+        return ResponseEntity.ok(bulkEmailService.getStats());
+    }
+
+    /**
+     * Stop a running bulk email job after its current batch
+     * POST http://localhost:8080/api/admin/bulk-email/{id}/pause
+     */
+    @PostMapping("/bulk-email/{id}/pause")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> pauseBulkEmail(@PathVariable Long id) {
+        Map<String, Object> response = new HashMap<>();
+        if (!bulkEmailService.pauseJob(id)) {
+            response.put("message", "No running bulk email job with id " + id);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        response.put("message", "Bulk email job " + id + " will pause after the current batch");
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Continue a paused bulk email job where it stopped
+     * POST http://localhost:8080/api/admin/bulk-email/{id}/resume
+     */
+    @PostMapping("/bulk-email/{id}/resume")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> resumeBulkEmail(@PathVariable Long id) {
+        Map<String, Object> response = new HashMap<>();
+        if (!bulkEmailService.resumeJob(id)) {
+            response.put("message", "No paused bulk email job with id " + id);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        response.put("message", "Bulk email job " + id + " resumed");
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Password hashing pool usage, rejections and background hash upgrades
+     * GET http://localhost:8080/api/admin/password-hashing/stats
+     */
+    @GetMapping("/password-hashing/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<BoundedPasswordEncoder.PasswordHashingStats> getPasswordHashingStats() {
+        return ResponseEntity.ok(passwordEncoder.getStats());
+    }
+
+    private Map<String, Object> toMap(ExpiringCache.CacheStats stats) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("size", stats.size());
+        map.put("maxSize", stats.maxSize());
+        map.put("hits", stats.hits());
+        map.put("misses", stats.misses());
+        map.put("evictions", stats.evictions());
+        map.put("hitRate", stats.getHitRate());
+        return map;
+    }
+
+}
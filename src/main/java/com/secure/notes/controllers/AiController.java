@@ -2,9 +2,13 @@ package com.secure.notes.controllers;
 
 import com.secure.notes.dtos.AiConvertRequest;
 import com.secure.notes.services.AiService;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/notes")
@@ -18,12 +22,24 @@ public class AiController {
 
     // POST /api/notes/convert-hinglish
     @PostMapping("/convert-hinglish")
-    public Map<String, String> convertToHinglish(@RequestBody AiConvertRequest request) {
+    public CompletableFuture<Map<String, String>> convertToHinglish(@RequestBody AiConvertRequest request) {
         // FIX: was using Map<String, String> and calling request.get("content"),
         // but the frontend sends { "text": "..." }.
         // Switched to the AiConvertRequest DTO you already have — it has getText()
         // which maps correctly to the "text" field.
-        String convertedText = aiService.convertToHinglish(request.getText());
-        return Map.of("convertedText", convertedText);
+        // The servlet thread is released while the provider call is in flight
+        return aiService.convertToHinglish(request.getText())
+                .thenApply(convertedText -> Map.of("convertedText", convertedText));
     }
-}
\ No newline at end of file
+
+    // POST /api/notes/convert-hinglish/stream - server-sent events, one "delta" event per output piece
+    @PostMapping(value = "/convert-hinglish/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> streamHinglish(@RequestBody AiConvertRequest request) {
+        // When the client disconnects MVC cancels this Flux, which cancels the upstream call
+        return aiService.streamHinglish(request.getText())
+                .map(delta -> ServerSentEvent.builder(delta).event("delta").build())
+                .concatWithValues(ServerSentEvent.builder("").event("done").build())
+                .onErrorResume(e -> Flux.just(ServerSentEvent.builder(
+                        e.getMessage() == null ? "Conversion failed" : e.getMessage()).event("error").build()));
+    }
+}
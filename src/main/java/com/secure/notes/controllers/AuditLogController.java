@@ -1,15 +1,34 @@
 package com.secure.notes.controllers;
 
-import com.secure.notes.models.AuditLog;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.secure.notes.dtos.AuditLogExportRow;
+import com.secure.notes.dtos.AuditLogFilter;
+import com.secure.notes.dtos.AuditLogPageResponse;
 import com.secure.notes.services.AuditLogService;
+import com.secure.notes.services.AuditLogWriter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/audit")
@@ -17,16 +36,129 @@ public class AuditLogController {
     @Autowired
     AuditLogService auditLogService;
 
+    @Autowired
+    AuditLogWriter auditLogWriter;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    // GET /api/audit?afterTimestamp=&afterId=&size=50 (same paging as /search, unfiltered)
     @GetMapping
     @PreAuthorize("hasRole('ROLE_ADMIN')")
-    public List<AuditLog> getAuditLogs(){
-        return auditLogService.getAllAuditLogs();
+    public AuditLogPageResponse getAuditLogs(@RequestParam(required = false)
+                                             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                             LocalDateTime afterTimestamp,
+                                             @RequestParam(required = false) Long afterId,
+                                             @RequestParam(defaultValue = "50") int size){
+        return auditLogService.getAuditLogsPage(new AuditLogFilter(), afterTimestamp, afterId, size);
+    }
+
+    // GET /api/audit/search?username=&action=&noteId=&from=&to=&afterTimestamp=&afterId=&size=50
+    @GetMapping("/search")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public AuditLogPageResponse searchAuditLogs(@ModelAttribute AuditLogFilter filter,
+                                                @RequestParam(required = false)
+                                                @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                LocalDateTime afterTimestamp,
+                                                @RequestParam(required = false) Long afterId,
+                                                @RequestParam(defaultValue = "50") int size){
+        return auditLogService.getAuditLogsPage(filter, afterTimestamp, afterId, size);
+    }
+
+    // GET /api/audit/export?format=csv|ndjson plus the /search filters
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportAuditLogs(@ModelAttribute AuditLogFilter filter,
+                                                                 @RequestParam(defaultValue = "ndjson") String format){
+        boolean csv = "csv".equalsIgnoreCase(format);
+        StreamingResponseBody body = outputStream -> {
+            if (csv) {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+                writer.write("id,timestamp,action,username,noteId,revision,contentHash\n");
+                auditLogService.streamAuditLogs(filter, row -> {
+                    try {
+                        writeCsvRow(writer, row);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                writer.flush();
+            } else {
+                try (SequenceWriter writer = objectMapper.writer()
+                        .withRootValueSeparator("\n")
+                        .writeValues(outputStream)) {
+                    auditLogService.streamAuditLogs(filter, row -> {
+                        try {
+                            writer.write(row);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"audit-logs." + (csv ? "csv" : "ndjson") + "\"")
+                .body(body);
     }
 
+    @GetMapping("/writer-stats")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public AuditLogWriter.AuditWriterStats getWriterStats(){
+        return auditLogWriter.getStats();
+    }
+
+    // GET /api/audit/note/{id}?afterTimestamp=&afterId=&size=50
     @GetMapping("/note/{id}")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
-    public List<AuditLog> getNoteAuditLogs(@PathVariable Long id){
-        return auditLogService.getAuditLogsForNoteId(id);
+    public AuditLogPageResponse getNoteAuditLogs(@PathVariable Long id,
+                                                 @RequestParam(required = false)
+                                                 @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                 LocalDateTime afterTimestamp,
+                                                 @RequestParam(required = false) Long afterId,
+                                                 @RequestParam(defaultValue = "50") int size){
+        AuditLogFilter filter = new AuditLogFilter();
+        filter.setNoteId(id);
+        return auditLogService.getAuditLogsPage(filter, afterTimestamp, afterId, size);
+    }
+
+    @GetMapping("/note/{id}/revision/{revision}")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public Map<String, Object> getNoteRevision(@PathVariable Long id, @PathVariable int revision){
+        return Map.of(
+                "noteId", id,
+                "revision", revision,
+                "content", auditLogService.getNoteContentAtRevision(id, revision));
+    }
+
+    private void writeCsvRow(Writer writer, AuditLogExportRow row) throws IOException {
+        writer.write(String.valueOf(row.getId()));
+        writer.write(',');
+        writer.write(row.getTimestamp() == null ? "" : row.getTimestamp().toString());
+        writer.write(',');
+        writer.write(csvField(row.getAction()));
+        writer.write(',');
+        writer.write(csvField(row.getUsername()));
+        writer.write(',');
+        writer.write(row.getNoteId() == null ? "" : row.getNoteId().toString());
+        writer.write(',');
+        writer.write(row.getRevision() == null ? "" : row.getRevision().toString());
+        writer.write(',');
+        writer.write(csvField(row.getContentHash()));
+        writer.write('\n');
+    }
+
+    private String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
     }
 
-}
\ No newline at end of file
+}
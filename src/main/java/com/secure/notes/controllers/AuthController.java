@@ -6,16 +6,23 @@ import com.secure.notes.models.User;
 import com.secure.notes.repositories.RoleRepository;
 import com.secure.notes.repositories.UserRepository;
 import com.secure.notes.security.jwt.JwtUtils;
+import com.secure.notes.security.jwt.TokenRevocationList;
 import com.secure.notes.security.request.LoginRequest;
 import com.secure.notes.security.request.SignupRequest;
 import com.secure.notes.security.response.LoginResponse;
 import com.secure.notes.security.response.MessageResponse;
 import com.secure.notes.security.response.UserInfoResponse;
+import com.secure.notes.security.services.PasswordUpgradeService;
+import com.secure.notes.security.services.UserDetailsCache;
 import com.secure.notes.security.services.UserDetailsImpl;
+import com.secure.notes.security.services.UserDetailsServiceImpl;
+import com.secure.notes.services.RefreshTokenService;
 import com.secure.notes.services.TotpService;
 import com.secure.notes.services.UserService;
 import com.secure.notes.util.AuthUtil;
 import com.warrenstrange.googleauth.GoogleAuthenticatorKey;
+import io.jsonwebtoken.Claims;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -65,6 +72,21 @@ public class AuthController {
     @Autowired
     TotpService totpService;
 
+    @Autowired
+    UserDetailsCache userDetailsCache;
+
+    @Autowired
+    TokenRevocationList tokenRevocationList;
+
+    @Autowired
+    PasswordUpgradeService passwordUpgradeService;
+
+    @Autowired
+    UserDetailsServiceImpl userDetailsService;
+
+    @Autowired
+    RefreshTokenService refreshTokenService;
+
     @PostMapping("/public/signin")
     public ResponseEntity<?> authenticateUser(@RequestBody LoginRequest loginRequest) {
         Authentication authentication;
@@ -82,8 +104,9 @@ public class AuthController {
         SecurityContextHolder.getContext().setAuthentication(authentication);
 
         UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+        passwordUpgradeService.upgradeIfNeeded(userDetails, loginRequest.getPassword());
 
-        String jwtToken = jwtUtils.generateTokenFromUsername(userDetails);
+        RefreshTokenService.IssuedTokens tokens = refreshTokenService.issue(userDetails);
 
         // Collect roles from the UserDetails
         List<String> roles = userDetails.getAuthorities().stream()
@@ -92,13 +115,105 @@ public class AuthController {
 
         // Prepare the response body, now including the JWT token directly in the body
         LoginResponse response = new LoginResponse(userDetails.getUsername(),
-                roles, jwtToken);
+                roles, tokens.accessToken());
+        response.setRefreshToken(tokens.refreshToken());
 
         // Return the response entity with the JWT token included in the response body
         return ResponseEntity.ok(response);
     }
 
 
+    /**
+     * Login in as few round trips as possible. Without 2FA, or with 2FA and a valid
+     * code in the request, this returns the final token. With 2FA and no code it
+     * returns a short-lived pre-auth token to send with the code to /public/login/2fa.
+     * The response carries the 2FA status, so no /user/2fa-status call is needed.
+     */
+    @PostMapping("/public/login")
+    public ResponseEntity<?> login(@RequestBody LoginRequest loginRequest) {
+        Authentication authentication;
+        try {
+            authentication = authenticationManager
+                    .authenticate(new UsernamePasswordAuthenticationToken(loginRequest.getUsername(), loginRequest.getPassword()));
+        } catch (AuthenticationException exception) {
+            Map<String, Object> map = new HashMap<>();
+            map.put("message", "Bad credentials");
+            map.put("status", false);
+            return new ResponseEntity<Object>(map, HttpStatus.NOT_FOUND);
+        }
+
+        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+        passwordUpgradeService.upgradeIfNeeded(userDetails, loginRequest.getPassword());
+
+        if (!userDetails.is2faEnabled()) {
+            return ResponseEntity.ok(completeLogin(userDetails));
+        }
+        LoginResponse challenge = LoginResponse.twoFactorChallenge(userDetails.getUsername(),
+                jwtUtils.generatePreAuthToken(userDetails));
+        if (loginRequest.getCode() == null) {
+            return ResponseEntity.ok(challenge);
+        }
+        if (userService.validate2FACode(userDetails.getId(), loginRequest.getCode())) {
+            return ResponseEntity.ok(completeLogin(userDetails));
+        }
+        // The client can retry the code with the pre-auth token instead of the password
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(challenge);
+    }
+
+    /**
+     * Second step of /public/login for 2FA users. The user comes from the pre-auth
+     * token's claims and the TOTP secret from the verifier's cache, so this normally
+     * does not query the database.
+     */
+    @PostMapping("/public/login/2fa")
+    public ResponseEntity<?> completeTwoFactorLogin(@RequestParam String preAuthToken,
+                                                    @RequestParam int code) {
+        Claims claims = jwtUtils.getPreAuthClaims(preAuthToken);
+        UserDetailsImpl userDetails = claims != null ? jwtUtils.buildUserDetailsFromClaims(claims) : null;
+        if (userDetails == null || tokenRevocationList.isRevoked(claims.getSubject(), claims.getIssuedAt())) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(new MessageResponse("Login expired, please sign in again"));
+        }
+        if (!userService.validate2FACode(userDetails.getId(), code)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(new MessageResponse("Invalid 2FA Code"));
+        }
+        return ResponseEntity.ok(completeLogin(userDetails));
+    }
+
+    private LoginResponse completeLogin(UserDetailsImpl userDetails) {
+        List<String> roles = userDetails.getAuthorities().stream()
+                .map(item -> item.getAuthority())
+                .collect(Collectors.toList());
+        RefreshTokenService.IssuedTokens tokens = refreshTokenService.issue(userDetails);
+        return LoginResponse.authenticated(userDetails.getUsername(), roles,
+                tokens.accessToken(), tokens.refreshToken(), userDetails.is2faEnabled());
+    }
+
+    /**
+     * Exchange a refresh token for a new access token and a new refresh token.
+     * The presented refresh token is used up; presenting it again ends the session.
+     */
+    @PostMapping("/public/refresh")
+    public ResponseEntity<?> refresh(@RequestParam String refreshToken) {
+        RefreshTokenService.IssuedTokens tokens = refreshTokenService.rotate(refreshToken);
+        return ResponseEntity.ok(Map.of("jwtToken", tokens.accessToken(),
+                "refreshToken", tokens.refreshToken()));
+    }
+
+    /**
+     * End the session of the presented access token: the token and the session's
+     * refresh tokens stop working at once
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(HttpServletRequest request) {
+        Claims claims = jwtUtils.getVerifiedClaims(jwtUtils.getJwtFromHeader(request));
+        if (claims != null) {
+            refreshTokenService.endSession(claims);
+        }
+        return ResponseEntity.ok(new MessageResponse("Logged out"));
+    }
+
     @PostMapping("/public/signup")
     public ResponseEntity<?> registerUser(@Valid @RequestBody SignupRequest signUpRequest) {
         if (userRepository.existsByUserName(signUpRequest.getUsername())) {
@@ -186,17 +301,25 @@ public class AuthController {
             User user = userRepository.findById(userId)
                     .orElseThrow(() -> new RuntimeException("User not found"));
 
+            String previousUsername = user.getUserName();
+
             // Update username if provided
             if (newUsername != null && !newUsername.isBlank()) {
+                // Tokens carrying the old username must stop working
+                tokenRevocationList.revokeAllTokens(previousUsername);
                 user.setUserName(newUsername);
             }
 
-            // Update password if provided
+            userRepository.save(user);
+
+            // Update password if provided; saved after the username so the stale entity cannot overwrite the new hash
             if (newPassword != null && !newPassword.isBlank()) {
                 userService.updatePassword(userId, newPassword);
             }
 
-            userRepository.save(user);
+            // Evict only once the changes are saved, so a concurrent load cannot cache the old principal again
+            userDetailsCache.evict(previousUsername);
+            userDetailsCache.evict(user);
 
             return ResponseEntity.ok(new MessageResponse("Credentials updated successfully"));
         } catch (Exception e) {
@@ -279,8 +402,9 @@ public class AuthController {
     public ResponseEntity<String> verify2FALogin(@RequestParam int code,
                                                  @RequestParam String jwtToken) {
         String username = jwtUtils.getUserNameFromJwtToken(jwtToken);
-        User user = userService.findByUsername(username);
-        boolean isValid = userService.validate2FACode(user.getUserId(), code);
+        // Cached principal: a retry touches neither the users table nor the stored secret
+        UserDetailsImpl user = (UserDetailsImpl) userDetailsService.loadUserByUsername(username);
+        boolean isValid = userService.validate2FACode(user.getId(), code);
         if (isValid) {
             return ResponseEntity.ok("2FA Verified");
         } else {
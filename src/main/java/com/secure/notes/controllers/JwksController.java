@@ -0,0 +1,36 @@
+package com.secure.notes.controllers;
+
+import com.secure.notes.security.jwt.JwtKeyStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Public keys for verifying our tokens without calling the backend (edge proxy,
+ * other services). New keys appear here one max-age before they sign anything,
+ * so a verifier that honours Cache-Control always has the key for a token.
+ */
+@RestController
+public class JwksController {
+
+    @Autowired
+    JwtKeyStore jwtKeyStore;
+
+    /**
+     * GET http://localhost:8080/.well-known/jwks.json
+     * Answered with 304 when If-None-Match carries the current ETag
+     */
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<Map<String, Object>> jwks() {
+        JwtKeyStore.PublishedKeys published = jwtKeyStore.getPublishedKeys();
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(published.maxAgeSeconds(), TimeUnit.SECONDS).cachePublic())
+                .eTag(published.etag())
+                .body(published.jwks());
+    }
+}
@@ -1,12 +1,23 @@
 package com.secure.notes.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.secure.notes.dtos.NotePageResponse;
+import com.secure.notes.dtos.NoteSearchResult;
+import com.secure.notes.dtos.NoteSummaryPageResponse;
 import com.secure.notes.models.Note;
+import com.secure.notes.services.NoteSearchService;
 import com.secure.notes.services.NoteService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
@@ -16,6 +27,12 @@ public class NoteController {
     @Autowired
     private NoteService noteService;
 
+    @Autowired
+    private NoteSearchService noteSearchService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @PostMapping
     public Note createNote(@RequestBody String content,
                            @AuthenticationPrincipal UserDetails userDetails) {
@@ -31,6 +48,59 @@ public class NoteController {
         return noteService.getNotesforUser(username);
     }
 
+    // GET /api/notes/page?afterId=0&size=20
+    @GetMapping("/page")
+    public NotePageResponse getUserNotesPage(@RequestParam(required = false) Long afterId,
+                                             @RequestParam(defaultValue = "20") int size,
+                                             @AuthenticationPrincipal UserDetails userDetails) {
+        return noteService.getNotesPageForUser(userDetails.getUsername(), afterId, size);
+    }
+
+    // GET /api/notes/summaries?afterId=0&size=20&previewLength=100
+    @GetMapping("/summaries")
+    public NoteSummaryPageResponse getUserNoteSummaries(@RequestParam(required = false) Long afterId,
+                                                        @RequestParam(defaultValue = "20") int size,
+                                                        @RequestParam(defaultValue = "100") int previewLength,
+                                                        @AuthenticationPrincipal UserDetails userDetails) {
+        return noteService.getNoteSummariesForUser(userDetails.getUsername(), afterId, size, previewLength);
+    }
+
+    // GET /api/notes/search?q=meeting+notes&limit=20
+    @GetMapping("/search")
+    public List<NoteSearchResult> searchUserNotes(@RequestParam("q") String query,
+                                                  @RequestParam(defaultValue = "20") int limit,
+                                                  @AuthenticationPrincipal UserDetails userDetails) {
+        return noteSearchService.search(userDetails.getUsername(), query, limit);
+    }
+
+    @GetMapping("/{noteId}")
+    public Note getNote(@PathVariable Long noteId,
+                        @AuthenticationPrincipal UserDetails userDetails) {
+        return noteService.getNoteForUser(noteId, userDetails.getUsername());
+    }
+
+    // GET /api/notes/stream - one JSON note per line, written as rows are read
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamUserNotes(@AuthenticationPrincipal UserDetails userDetails) {
+        String username = userDetails.getUsername();
+        StreamingResponseBody body = outputStream -> {
+            try (SequenceWriter writer = objectMapper.writer()
+                    .withRootValueSeparator("\n")
+                    .writeValues(outputStream)) {
+                noteService.streamNotesForUser(username, note -> {
+                    try {
+                        writer.write(note);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     @PutMapping("/{noteId}")
     public Note updateNote(@PathVariable Long noteId,
                            @RequestBody String content,
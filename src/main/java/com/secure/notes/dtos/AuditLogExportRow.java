@@ -0,0 +1,23 @@
+package com.secure.notes.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Exported audit columns; the note content and the compressed content payload are never selected
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditLogExportRow {
+    private Long id;
+    private LocalDateTime timestamp;
+    private String action;
+    private String username;
+    private Long noteId;
+    private Integer revision;
+    private String contentHash;
+}
@@ -0,0 +1,24 @@
+package com.secure.notes.dtos;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+/**
+ * Optional audit log filters; null fields are not applied
+ */
+@Data
+@NoArgsConstructor
+public class AuditLogFilter {
+    private String username;
+    private String action;
+    private Long noteId;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime from;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime to;
+}
@@ -0,0 +1,19 @@
+package com.secure.notes.dtos;
+
+import com.secure.notes.models.AuditLog;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditLogPageResponse {
+    private List<AuditLog> logs;
+    // Pass as afterTimestamp / afterId to fetch the next page; null when there are no more entries
+    private LocalDateTime nextTimestamp;
+    private Long nextId;
+}
@@ -0,0 +1,19 @@
+package com.secure.notes.dtos;
+
+import com.secure.notes.models.BulkAudience;
+import com.secure.notes.util.EmailTemplateType;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+@Data
+public class BulkEmailRequest {
+    private EmailTemplateType template;
+    private BulkAudience audience = BulkAudience.ALL_USERS;
+    // Variables shared by all recipients; username and expiryDate are filled per recipient
+    private Map<String, String> variables = Map.of();
+    // Expiry date window for CREDENTIALS_EXPIRING
+    private LocalDate windowStart;
+    private LocalDate windowEnd;
+}
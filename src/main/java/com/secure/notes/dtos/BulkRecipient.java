@@ -0,0 +1,16 @@
+package com.secure.notes.dtos;
+
+import java.time.LocalDate;
+
+/**
+ * The user columns a bulk notification needs, without loading the User entity and its role
+ */
+public interface BulkRecipient {
+    Long getUserId();
+
+    String getUserName();
+
+    String getEmail();
+
+    LocalDate getCredentialsExpiryDate();
+}
@@ -0,0 +1,17 @@
+package com.secure.notes.dtos;
+
+import com.secure.notes.models.Note;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotePageResponse {
+    private List<Note> notes;
+    // Pass as afterId to fetch the next page; null when there are no more notes
+    private Long nextCursor;
+}
@@ -0,0 +1,15 @@
+package com.secure.notes.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NoteSearchResult {
+    private Long noteId;
+    private float score;
+    // Best matching passage as HTML: the note text is escaped and matches are wrapped in <b></b>
+    private String snippet;
+}
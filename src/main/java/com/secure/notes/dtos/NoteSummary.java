@@ -0,0 +1,15 @@
+package com.secure.notes.dtos;
+
+/**
+ * Lightweight view of a note for list screens; never carries the full content
+ */
+public interface NoteSummary {
+    Long getId();
+
+    String getPreview();
+
+    Long getContentLength();
+
+    // Hex SHA-256 of the full content, lets clients skip refetching unchanged bodies
+    String getContentHash();
+}
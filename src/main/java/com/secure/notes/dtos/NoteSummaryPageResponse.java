@@ -0,0 +1,16 @@
+package com.secure.notes.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NoteSummaryPageResponse {
+    private List<NoteSummary> notes;
+    // Pass as afterId to fetch the next page; null when there are no more notes
+    private Long nextCursor;
+}
@@ -0,0 +1,15 @@
+package com.secure.notes.exceptions;
+
+/**
+ * Exception thrown when the AI provider already has the maximum number of requests in flight
+ */
+public class AiCapacityExceededException extends RuntimeException {
+
+    public AiCapacityExceededException(String message) {
+        super(message);
+    }
+
+    public AiCapacityExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
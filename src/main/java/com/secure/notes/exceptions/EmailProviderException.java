@@ -0,0 +1,46 @@
+package com.secure.notes.exceptions;
+
+import java.time.Duration;
+
+/**
+ * Exception thrown when the email provider rejects or fails a request
+ */
+public class EmailProviderException extends RuntimeException {
+
+    // HTTP status, or 0 when no response was received
+    private final int status;
+
+    // Wait requested by the provider in a Retry-After header, or null
+    private final Duration retryAfter;
+
+    public EmailProviderException(int status, Duration retryAfter, String message) {
+        super(message);
+        this.status = status;
+        this.retryAfter = retryAfter;
+    }
+
+    public EmailProviderException(String message, Throwable cause) {
+        super(message, cause);
+        this.status = 0;
+        this.retryAfter = null;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    public boolean isThrottled() {
+        return status == 429;
+    }
+
+    /**
+     * The request itself was refused (4xx other than 429); sending it again will not help
+     */
+    public boolean isPermanent() {
+        return status >= 400 && status < 500 && status != 429;
+    }
+}
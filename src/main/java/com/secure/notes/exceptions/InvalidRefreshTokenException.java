@@ -0,0 +1,11 @@
+package com.secure.notes.exceptions;
+
+/**
+ * Exception thrown when a refresh token is unknown, expired, revoked or replayed
+ */
+public class InvalidRefreshTokenException extends RuntimeException {
+
+    public InvalidRefreshTokenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package com.secure.notes.exceptions;
+
+/**
+ * Exception thrown when the password hashing queue is full
+ */
+public class PasswordHashingBusyException extends RuntimeException {
+
+    public PasswordHashingBusyException(String message) {
+        super(message);
+    }
+
+    public PasswordHashingBusyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,40 @@
+package com.secure.notes.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "ai_conversion_cache")
+public class AiConversionCacheEntry {
+    // Hex SHA-256 of model, temperature and input text
+    @Id
+    @Column(length = 64)
+    private String cacheKey;
+
+    private String model;
+
+    @Lob
+    private String convertedText;
+
+    private long upstreamLatencyMs;
+
+    private int sizeBytes;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    public AiConversionCacheEntry(String cacheKey, String model, String convertedText,
+                                  long upstreamLatencyMs, int sizeBytes) {
+        this.cacheKey = cacheKey;
+        this.model = model;
+        this.convertedText = convertedText;
+        this.upstreamLatencyMs = upstreamLatencyMs;
+        this.sizeBytes = sizeBytes;
+        this.createdAt = Instant.now();
+    }
+}
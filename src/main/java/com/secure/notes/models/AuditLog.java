@@ -4,6 +4,8 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Lob;
+import jakarta.persistence.SequenceGenerator;
 import lombok.Data;
 
 import java.time.LocalDateTime;
@@ -11,12 +13,23 @@ import java.time.LocalDateTime;
 @Entity
 @Data
 public class AuditLog {
+    // Pooled sequence (a table on MySQL) so ids are known before insert and inserts can be batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "audit_log_seq")
+    @SequenceGenerator(name = "audit_log_seq", sequenceName = "audit_log_seq", allocationSize = 50)
     private Long id;
     private String action;
     private String username;
     private Long noteId;
+    // Full content, only present on entries written before compact auditing
     private String noteContent;
     private LocalDateTime timestamp;
+
+    // Note revision this entry describes; null on legacy entries
+    private Integer revision;
+    private String contentHash;
+    // true: contentDelta holds a compressed full copy, false: a delta against the previous revision
+    private boolean snapshot;
+    @Lob
+    private byte[] contentDelta;
 }
\ No newline at end of file
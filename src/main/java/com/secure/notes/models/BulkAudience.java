@@ -0,0 +1,10 @@
+package com.secure.notes.models;
+
+/**
+ * Who a bulk notification goes to. Disabled accounts are always left out.
+ */
+public enum BulkAudience {
+    ALL_USERS,
+    // Users whose credentials expire inside the job's date window
+    CREDENTIALS_EXPIRING
+}
@@ -0,0 +1,74 @@
+package com.secure.notes.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "bulk_email_job")
+public class BulkEmailJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 50)
+    private String template;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private BulkAudience audience;
+
+    // JSON object of template variables shared by all recipients
+    @Column(columnDefinition = "TEXT")
+    private String variables;
+
+    private LocalDate windowStart;
+    private LocalDate windowEnd;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private BulkEmailJobStatus status;
+
+    // Keyset cursor: every user up to this id has been handled
+    private long lastUserId;
+
+    private long sentRecipients;
+    private long failedRecipients;
+    private long providerRequests;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    private Instant startedAt;
+    private Instant updatedAt;
+    private Instant finishedAt;
+
+    public BulkEmailJob(String template, BulkAudience audience, String variables) {
+        this.template = template;
+        this.audience = audience;
+        this.variables = variables;
+        this.status = BulkEmailJobStatus.RUNNING;
+        this.createdAt = Instant.now();
+    }
+
+    /**
+     * Recipients handled per second since the job started
+     */
+    public double getRecipientsPerSecond() {
+        if (startedAt == null) {
+            return 0.0;
+        }
+        Instant end = finishedAt != null ? finishedAt : Instant.now();
+        long millis = Math.max(1, Duration.between(startedAt, end).toMillis());
+        return (sentRecipients + failedRecipients) * 1000.0 / millis;
+    }
+}
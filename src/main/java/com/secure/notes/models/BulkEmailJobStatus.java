@@ -0,0 +1,9 @@
+package com.secure.notes.models;
+
+public enum BulkEmailJobStatus {
+    RUNNING,
+    PAUSED,
+    COMPLETED,
+    // Stopped for good: the template or its variables are unusable, so resuming cannot help
+    FAILED
+}
@@ -0,0 +1,63 @@
+package com.secure.notes.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "email_outbox")
+public class EmailOutboxMessage {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Same key for the same logical email, so it is queued and delivered at most once
+    @Column(nullable = false, unique = true, length = 100)
+    private String idempotencyKey;
+
+    @Column(nullable = false, length = 50)
+    private String template;
+
+    @Column(nullable = false)
+    private String recipient;
+
+    // JSON object of template variables
+    @Column(columnDefinition = "TEXT")
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private EmailOutboxStatus status;
+
+    private int attempts;
+
+    @Column(nullable = false)
+    private Instant nextAttemptAt;
+
+    // A SENDING row whose lock has run out is handed out again (worker crashed mid-send)
+    private Instant lockedUntil;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    private String providerMessageId;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    private Instant sentAt;
+
+    public EmailOutboxMessage(String idempotencyKey, String template, String recipient, String payload) {
+        this.idempotencyKey = idempotencyKey;
+        this.template = template;
+        this.recipient = recipient;
+        this.payload = payload;
+        this.status = EmailOutboxStatus.PENDING;
+        this.createdAt = Instant.now();
+        this.nextAttemptAt = this.createdAt;
+    }
+}
@@ -0,0 +1,11 @@
+package com.secure.notes.models;
+
+public enum EmailOutboxStatus {
+    // Waiting for its next attempt
+    PENDING,
+    // Claimed by a worker
+    SENDING,
+    SENT,
+    // Gave up after the maximum number of attempts
+    DEAD
+}
@@ -0,0 +1,46 @@
+package com.secure.notes.models;
+
+import com.secure.notes.security.jwt.JwtSigningAlgorithm;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "jwt_signing_key")
+public class JwtSigningKey {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // RFC 7638 thumbprint of the public key; the kid header of tokens it signs
+    @Column(nullable = false, unique = true, length = 64)
+    private String kid;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private JwtSigningAlgorithm algorithm;
+
+    // X.509 SubjectPublicKeyInfo
+    @Column(nullable = false, length = 512)
+    private byte[] publicKey;
+
+    // IV followed by the AES-GCM encrypted PKCS#8 private key
+    @Column(nullable = false, length = 512)
+    private byte[] privateKey;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    public JwtSigningKey(String kid, JwtSigningAlgorithm algorithm, byte[] publicKey, byte[] privateKey,
+                         Instant createdAt) {
+        this.kid = kid;
+        this.algorithm = algorithm;
+        this.publicKey = publicKey;
+        this.privateKey = privateKey;
+        this.createdAt = createdAt;
+    }
+}
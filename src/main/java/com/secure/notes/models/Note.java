@@ -1,11 +1,18 @@
 package com.secure.notes.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.secure.notes.util.NoteContentCodec;
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Setter;
 
 @Entity
 @Data
 public class Note {
+    // Longest preview the summary query can return
+    public static final int STORED_PREVIEW_LENGTH = 500;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -14,4 +21,32 @@ public class Note {
     private String content;
 
     private String ownerUsername;
+
+    // Incremented by Hibernate on every update, used to chain audit deltas. As the
+    // version column it also makes a concurrent edit of the same revision fail
+    // instead of both edits claiming the same revision number.
+    @Version
+    private int revision;
+
+    // Derived from content by setContent, so summary pages never read the body
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    private Long contentLength;
+
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    @Column(length = 64)
+    private String contentHash;
+
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    @Column(length = STORED_PREVIEW_LENGTH)
+    private String contentPreview;
+
+    public void setContent(String content) {
+        this.content = content;
+        this.contentLength = NoteContentCodec.charLength(content);
+        this.contentHash = NoteContentCodec.sha256Hex(content);
+        this.contentPreview = NoteContentCodec.preview(content, STORED_PREVIEW_LENGTH);
+    }
 }
@@ -0,0 +1,38 @@
+package com.secure.notes.repositories;
+
+import com.secure.notes.models.AiConversionCacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface AiConversionCacheRepository extends JpaRepository<AiConversionCacheEntry, String> {
+
+    /**
+     * Total stored size of all cached conversions
+     * @return Sum of sizeBytes, 0 when empty
+     */
+    @Query("SELECT COALESCE(SUM(e.sizeBytes), 0) FROM AiConversionCacheEntry e")
+    long totalSizeBytes();
+
+    /**
+     * Oldest entries first, used to trim the cache down to its byte budget
+     */
+    List<AiConversionCacheEntry> findTop100ByOrderByCreatedAtAsc();
+
+    /**
+     * Delete entries created before the cutoff
+     * @param cutoff Oldest creation time to keep
+     * @return Number of deleted records
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM AiConversionCacheEntry e WHERE e.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") Instant cutoff);
+}
@@ -4,7 +4,15 @@ import com.secure.notes.models.AuditLog;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.util.List;
+import java.util.Optional;
 
-public interface AuditLogRepository extends JpaRepository<AuditLog, Long> {
-    List<AuditLog> findByNoteId(Long noteId);
-}
\ No newline at end of file
+public interface AuditLogRepository extends JpaRepository<AuditLog, Long>, AuditLogRepositoryCustom {
+    // Latest full copy at or before the requested revision
+    Optional<AuditLog> findFirstByNoteIdAndSnapshotTrueAndRevisionLessThanEqualOrderByRevisionDesc(Long noteId,
+                                                                                                 Integer revision);
+
+    List<AuditLog> findByNoteIdAndRevisionBetweenOrderByRevisionAsc(Long noteId, Integer from, Integer to);
+
+    // Latest entry written before compact auditing that still holds the full content
+    Optional<AuditLog> findFirstByNoteIdAndRevisionIsNullAndNoteContentIsNotNullOrderByTimestampDesc(Long noteId);
+}
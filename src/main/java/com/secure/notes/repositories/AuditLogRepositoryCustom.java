@@ -0,0 +1,25 @@
+package com.secure.notes.repositories;
+
+import com.secure.notes.dtos.AuditLogExportRow;
+import com.secure.notes.dtos.AuditLogFilter;
+import com.secure.notes.models.AuditLog;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface AuditLogRepositoryCustom {
+
+    /**
+     * Keyset page ordered by (timestamp, id), starting after the given position
+     * @param afterTimestamp Timestamp of the last entry of the previous page, null for the first page
+     * @param afterId Id of the last entry of the previous page
+     */
+    List<AuditLog> findPage(AuditLogFilter filter, LocalDateTime afterTimestamp, Long afterId, int limit);
+
+    /**
+     * Stream the export columns of all matching entries ordered by (timestamp, id) without
+     * materializing the result. Must be consumed inside a transaction and closed.
+     */
+    Stream<AuditLogExportRow> streamExportRows(AuditLogFilter filter);
+}
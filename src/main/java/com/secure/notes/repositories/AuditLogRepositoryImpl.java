@@ -0,0 +1,93 @@
+package com.secure.notes.repositories;
+
+import com.secure.notes.dtos.AuditLogExportRow;
+import com.secure.notes.dtos.AuditLogFilter;
+import com.secure.notes.models.AuditLog;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+/**
+ * Criteria-based audit log queries; only the filters that are set end up in the WHERE clause,
+ * so MySQL can use the (timestamp, id) and (note_id, timestamp) indexes.
+ */
+public class AuditLogRepositoryImpl implements AuditLogRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<AuditLog> findPage(AuditLogFilter filter, LocalDateTime afterTimestamp, Long afterId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<AuditLog> query = cb.createQuery(AuditLog.class);
+        Root<AuditLog> root = query.from(AuditLog.class);
+
+        List<Predicate> predicates = filterPredicates(cb, root, filter);
+        if (afterTimestamp != null) {
+            // (timestamp, id) > (afterTimestamp, afterId)
+            predicates.add(cb.or(
+                    cb.greaterThan(root.<LocalDateTime>get("timestamp"), afterTimestamp),
+                    cb.and(cb.equal(root.get("timestamp"), afterTimestamp),
+                            cb.greaterThan(root.<Long>get("id"), afterId == null ? Long.MIN_VALUE : afterId))));
+        }
+
+        query.where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.asc(root.get("timestamp")), cb.asc(root.get("id")));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public Stream<AuditLogExportRow> streamExportRows(AuditLogFilter filter) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<AuditLogExportRow> query = cb.createQuery(AuditLogExportRow.class);
+        Root<AuditLog> root = query.from(AuditLog.class);
+
+        // Select only the exported columns, so note_content and content_delta are never read
+        query.select(cb.construct(AuditLogExportRow.class,
+                        root.get("id"), root.get("timestamp"), root.get("action"), root.get("username"),
+                        root.get("noteId"), root.get("revision"), root.get("contentHash")))
+                .where(filterPredicates(cb, root, filter).toArray(new Predicate[0]))
+                .orderBy(cb.asc(root.get("timestamp")), cb.asc(root.get("id")));
+        return entityManager.createQuery(query)
+                // Integer.MIN_VALUE makes MySQL Connector/J stream rows one at a time
+                .setHint(HINT_FETCH_SIZE, Integer.MIN_VALUE)
+                .setHint(HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    private List<Predicate> filterPredicates(CriteriaBuilder cb, Root<AuditLog> root, AuditLogFilter filter) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (filter == null) {
+            return predicates;
+        }
+        if (filter.getUsername() != null && !filter.getUsername().isBlank()) {
+            predicates.add(cb.equal(root.get("username"), filter.getUsername()));
+        }
+        if (filter.getAction() != null && !filter.getAction().isBlank()) {
+            predicates.add(cb.equal(root.get("action"), filter.getAction().toUpperCase()));
+        }
+        if (filter.getNoteId() != null) {
+            predicates.add(cb.equal(root.get("noteId"), filter.getNoteId()));
+        }
+        if (filter.getFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(root.<LocalDateTime>get("timestamp"), filter.getFrom()));
+        }
+        if (filter.getTo() != null) {
+            predicates.add(cb.lessThan(root.<LocalDateTime>get("timestamp"), filter.getTo()));
+        }
+        return predicates;
+    }
+}
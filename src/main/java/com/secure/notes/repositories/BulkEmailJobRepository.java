@@ -0,0 +1,19 @@
+package com.secure.notes.repositories;
+
+import com.secure.notes.models.BulkEmailJob;
+import com.secure.notes.models.BulkEmailJobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface BulkEmailJobRepository extends JpaRepository<BulkEmailJob, Long> {
+
+    List<BulkEmailJob> findByStatus(BulkEmailJobStatus status);
+
+    boolean existsByTemplateAndStatusIn(String template, Collection<BulkEmailJobStatus> statuses);
+
+    List<BulkEmailJob> findTop20ByOrderByIdDesc();
+}
@@ -0,0 +1,85 @@
+package com.secure.notes.repositories;
+
+import com.secure.notes.models.EmailOutboxMessage;
+import com.secure.notes.models.EmailOutboxStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutboxMessage, Long> {
+
+    boolean existsByIdempotencyKey(String idempotencyKey);
+
+    /**
+     * Messages in the given status whose next attempt is due, oldest first
+     */
+    List<EmailOutboxMessage> findByStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(
+            EmailOutboxStatus status, Instant now, Pageable pageable);
+
+    /**
+     * Move a PENDING message to SENDING. Only one worker can win the update,
+     * so a message is never sent twice in parallel.
+     * @return 1 if this caller claimed the message, 0 if another worker did
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE EmailOutboxMessage m SET m.status = :sending, m.lockedUntil = :lockedUntil " +
+            "WHERE m.id = :id AND m.status = :pending")
+    int claim(@Param("id") Long id,
+              @Param("lockedUntil") Instant lockedUntil,
+              @Param("pending") EmailOutboxStatus pending,
+              @Param("sending") EmailOutboxStatus sending);
+
+    /**
+     * Store the outcome of a send, but only while this worker still holds the claim:
+     * if its lock expired and the row was handed out again, the other worker owns it.
+     * @return 1 if the outcome was stored, 0 if the claim had been lost
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE EmailOutboxMessage m SET m.status = :status, m.attempts = :attempts, " +
+            "m.nextAttemptAt = :nextAttemptAt, m.lockedUntil = NULL, m.lastError = :lastError, " +
+            "m.providerMessageId = :providerMessageId, m.sentAt = :sentAt, m.payload = :payload " +
+            "WHERE m.id = :id AND m.status = :sending AND m.lockedUntil = :claimedUntil")
+    int recordAttempt(@Param("id") Long id,
+                      @Param("claimedUntil") Instant claimedUntil,
+                      @Param("sending") EmailOutboxStatus sending,
+                      @Param("status") EmailOutboxStatus status,
+                      @Param("attempts") int attempts,
+                      @Param("nextAttemptAt") Instant nextAttemptAt,
+                      @Param("lastError") String lastError,
+                      @Param("providerMessageId") String providerMessageId,
+                      @Param("sentAt") Instant sentAt,
+                      @Param("payload") String payload);
+
+    /**
+     * Hand SENDING messages whose lock has expired back to the queue
+     * @return Number of released messages
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE EmailOutboxMessage m SET m.status = :pending " +
+            "WHERE m.status = :sending AND m.lockedUntil < :now")
+    int releaseExpiredLocks(@Param("now") Instant now,
+                            @Param("pending") EmailOutboxStatus pending,
+                            @Param("sending") EmailOutboxStatus sending);
+
+    long countByStatus(EmailOutboxStatus status);
+
+    /**
+     * Delete messages in the given status created before the cutoff
+     * @return Number of deleted records
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM EmailOutboxMessage m WHERE m.status = :status AND m.createdAt < :cutoff")
+    int deleteByStatusCreatedBefore(@Param("status") EmailOutboxStatus status, @Param("cutoff") Instant cutoff);
+}
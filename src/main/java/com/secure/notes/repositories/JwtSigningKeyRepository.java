@@ -0,0 +1,17 @@
+package com.secure.notes.repositories;
+
+import com.secure.notes.models.JwtSigningKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface JwtSigningKeyRepository extends JpaRepository<JwtSigningKey, Long> {
+
+    /**
+     * All keys, newest first. Old keys are deleted once no token they signed can be
+     * valid, so this is a handful of rows.
+     */
+    List<JwtSigningKey> findAllByOrderByCreatedAtDesc();
+}
@@ -1,9 +1,70 @@
 package com.secure.notes.repositories;
 
+import com.secure.notes.dtos.NoteSummary;
 import com.secure.notes.models.Note;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 public interface NoteRepository extends JpaRepository<Note, Long> {
     List<Note> findByOwnerUsername(String ownerUsername);
-}
\ No newline at end of file
+
+    /**
+     * Keyset page: notes of the owner with id greater than the cursor, in id order
+     * @param afterId Last id of the previous page (0 for the first page)
+     * @param pageable Only the page size is used; always pass page 0
+     */
+    List<Note> findByOwnerUsernameAndIdGreaterThanOrderByIdAsc(String ownerUsername, Long afterId, Pageable pageable);
+
+    /**
+     * Keyset page of summaries. Preview, length and hash are stored with the note when
+     * it is written, so the query never reads the content column.
+     * @param previewLength At most Note.STORED_PREVIEW_LENGTH
+     */
+    @Query(value = "SELECT n.id AS id, " +
+            "SUBSTRING(n.content_preview, 1, :previewLength) AS preview, " +
+            "n.content_length AS contentLength, " +
+            "n.content_hash AS contentHash " +
+            "FROM note n WHERE n.owner_username = :ownerUsername AND n.id > :afterId " +
+            "ORDER BY n.id LIMIT :limit",
+            nativeQuery = true)
+    List<NoteSummary> findSummariesByOwnerUsername(@Param("ownerUsername") String ownerUsername,
+                                                   @Param("afterId") Long afterId,
+                                                   @Param("previewLength") int previewLength,
+                                                   @Param("limit") int limit);
+
+    Optional<Note> findByIdAndOwnerUsername(Long id, String ownerUsername);
+
+    /**
+     * Stream all notes of the owner in id order without materializing the result.
+     * Integer.MIN_VALUE makes MySQL Connector/J stream rows one at a time.
+     * Must be consumed inside a transaction and closed.
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT n FROM Note n WHERE n.ownerUsername = :ownerUsername ORDER BY n.id")
+    Stream<Note> streamByOwnerUsername(@Param("ownerUsername") String ownerUsername);
+
+    /**
+     * Stream every note in id order, used to rebuild the search index.
+     * Must be consumed inside a transaction and closed.
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT n FROM Note n ORDER BY n.id")
+    Stream<Note> streamAll();
+}
@@ -0,0 +1,68 @@
+package com.secure.notes.repositories;
+
+import com.secure.notes.models.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+    /**
+     * Mark an unused, unrevoked token as used. Only one of two concurrent
+     * exchanges of the same token can win the update.
+     * @return 1 if this caller used the token, 0 if it was already used or revoked
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE RefreshToken t SET t.usedAt = :now " +
+            "WHERE t.id = :id AND t.usedAt IS NULL AND t.revoked = false")
+    int markUsed(@Param("id") Long id, @Param("now") Instant now);
+
+    /**
+     * Revoke every token of one login session
+     * @return Number of revoked tokens
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE RefreshToken t SET t.revoked = true WHERE t.familyId = :familyId AND t.revoked = false")
+    int revokeFamily(@Param("familyId") String familyId);
+
+    /**
+     * Session ids of the user that still have a usable token
+     */
+    @Query("SELECT DISTINCT t.familyId FROM RefreshToken t " +
+            "WHERE t.userId = :userId AND t.revoked = false AND t.expiresAt > :now")
+    List<String> findActiveFamilyIds(@Param("userId") Long userId, @Param("now") Instant now);
+
+    /**
+     * Revoke every token of the user, e.g. after a password change
+     * @return Number of revoked tokens
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE RefreshToken t SET t.revoked = true WHERE t.userId = :userId AND t.revoked = false")
+    int revokeAllForUser(@Param("userId") Long userId);
+
+    /**
+     * Delete tokens past their expiry; used and revoked ones included, a family
+     * whose tokens have all expired cannot be replayed any more
+     * @return Number of deleted records
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RefreshToken t WHERE t.expiresAt < :now")
+    int deleteExpired(@Param("now") Instant now);
+
+    @Query("SELECT COUNT(t) FROM RefreshToken t WHERE t.expiresAt >= :now AND t.usedAt IS NULL AND t.revoked = false")
+    long countActive(@Param("now") Instant now);
+}
@@ -1,9 +1,17 @@
 package com.secure.notes.repositories;
 
+import com.secure.notes.dtos.BulkRecipient;
 import com.secure.notes.models.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -14,4 +22,25 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Boolean existsByEmail(String email);
 
     Optional<User> findByEmail(String email);
+
+    /**
+     * Next page of enabled users after the given id, for bulk notifications
+     */
+    List<BulkRecipient> findByUserIdGreaterThanAndEnabledTrueOrderByUserIdAsc(Long afterUserId, Pageable pageable);
+
+    /**
+     * Next page of enabled users whose credentials expire between the two dates (inclusive)
+     */
+    List<BulkRecipient> findByCredentialsExpiryDateBetweenAndUserIdGreaterThanAndEnabledTrueOrderByUserIdAsc(
+            LocalDate from, LocalDate to, Long afterUserId, Pageable pageable);
+
+    /**
+     * Swap the password hash only if it is still the given one
+     * @return 1 if replaced, 0 if the password was changed in the meantime
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.password = :newHash WHERE u.userName = :username AND u.password = :oldHash")
+    int replacePasswordHash(@Param("username") String username, @Param("oldHash") String oldHash,
+                            @Param("newHash") String newHash);
 }
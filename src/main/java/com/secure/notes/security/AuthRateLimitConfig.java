@@ -0,0 +1,42 @@
+package com.secure.notes.security;
+
+import com.secure.notes.util.SlidingWindowRateLimiter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Rate limiting for the public auth endpoints. Turned off with
+ * security.rate-limit.enabled=false, in which case SecurityConfig adds no filter.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "security.rate-limit", name = "enabled", matchIfMissing = true)
+public class AuthRateLimitConfig {
+
+    @Bean
+    public AuthRateLimitFilter authRateLimitFilter(
+            @Value("${security.rate-limit.ip.limit:30}") int ipLimit,
+            @Value("${security.rate-limit.ip.window-seconds:60}") long ipWindowSeconds,
+            @Value("${security.rate-limit.account.limit:5}") int accountLimit,
+            @Value("${security.rate-limit.account.window-seconds:300}") long accountWindowSeconds,
+            @Value("${security.rate-limit.max-keys:100000}") int maxKeys,
+            @Value("${security.rate-limit.trusted-proxies:0}") int trustedProxies) {
+        return new AuthRateLimitFilter(
+                new SlidingWindowRateLimiter(ipLimit, ipWindowSeconds * 1000, maxKeys),
+                new SlidingWindowRateLimiter(accountLimit, accountWindowSeconds * 1000, maxKeys),
+                trustedProxies);
+    }
+
+    /**
+     * The filter runs inside the security chain only; keep Boot from also adding it
+     * to the servlet filter chain
+     */
+    @Bean
+    public FilterRegistrationBean<AuthRateLimitFilter> authRateLimitFilterRegistration(AuthRateLimitFilter filter) {
+        FilterRegistrationBean<AuthRateLimitFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setEnabled(false);
+        return registration;
+    }
+}
@@ -0,0 +1,274 @@
+package com.secure.notes.security;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.secure.notes.util.SlidingWindowRateLimiter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throttles the public endpoints that cost BCrypt work or send email. Each request
+ * is counted against its client IP and, where the request names one, the account
+ * it targets; over either limit it is answered with 429 before the controller runs,
+ * so no DB lookup, password hash or email happens.
+ *
+ * Behind a reverse proxy the socket address is the proxy's, shared by every client.
+ * With trustedProxies = N the client is taken from X-Forwarded-For, N hops from the
+ * right: each trusted proxy appends the address it received the request from, so
+ * entries further left are client-supplied and can be forged.
+ */
+public class AuthRateLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthRateLimitFilter.class);
+
+    static final String SIGNIN = "/api/auth/public/signin";
+    static final String FORGOT_PASSWORD = "/api/auth/public/forgot-password";
+    static final String VERIFY_2FA_LOGIN = "/api/auth/public/verify-2fa-login";
+    static final String LOGIN = "/api/auth/public/login";
+    static final String LOGIN_2FA = "/api/auth/public/login/2fa";
+
+    // A sign-in body is a username and a password; anything bigger is not read
+    private static final int MAX_SIGNIN_BODY = 8 * 1024;
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    private final SlidingWindowRateLimiter ipLimiter;
+    private final SlidingWindowRateLimiter accountLimiter;
+    private final int trustedProxies;
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejectedByIp = new LongAdder();
+    private final LongAdder rejectedByAccount = new LongAdder();
+
+    public AuthRateLimitFilter(SlidingWindowRateLimiter ipLimiter, SlidingWindowRateLimiter accountLimiter) {
+        this(ipLimiter, accountLimiter, 0);
+    }
+
+    public AuthRateLimitFilter(SlidingWindowRateLimiter ipLimiter, SlidingWindowRateLimiter accountLimiter,
+                               int trustedProxies) {
+        if (trustedProxies < 0) {
+            throw new IllegalArgumentException("trustedProxies must not be negative");
+        }
+        this.ipLimiter = ipLimiter;
+        this.accountLimiter = accountLimiter;
+        this.trustedProxies = trustedProxies;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!"POST".equals(request.getMethod())) {
+            return true;
+        }
+        String path = request.getServletPath();
+        return !SIGNIN.equals(path) && !FORGOT_PASSWORD.equals(path) && !VERIFY_2FA_LOGIN.equals(path)
+                && !LOGIN.equals(path) && !LOGIN_2FA.equals(path);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String path = request.getServletPath();
+        String client = clientAddress(request);
+
+        long wait = ipLimiter.tryAcquire(path + '|' + client);
+        if (wait > 0) {
+            rejectedByIp.increment();
+            reject(response, wait);
+            return;
+        }
+
+        if (SIGNIN.equals(path) || LOGIN.equals(path)) {
+            CachedBodyRequest cached = CachedBodyRequest.read(request, MAX_SIGNIN_BODY);
+            if (cached == null) {
+                response.sendError(HttpStatus.PAYLOAD_TOO_LARGE.value());
+                return;
+            }
+            request = cached;
+        }
+
+        String account = accountKey(path, request);
+        if (account != null) {
+            wait = accountLimiter.tryAcquire(account);
+            if (wait > 0) {
+                rejectedByAccount.increment();
+                // The key can be a bearer token, so only the path and client are logged
+                logger.warn("Throttled {} for an account from {}", path, client);
+                reject(response, wait);
+                return;
+            }
+        }
+
+        allowed.increment();
+        filterChain.doFilter(request, response);
+
+        // A correct password clears the account's failures, so a user who mistyped a few
+        // times is not locked out of the next login. 2FA keys are single-use tokens anyway.
+        if (account != null && (SIGNIN.equals(path) || LOGIN.equals(path))
+                && response.getStatus() == HttpStatus.OK.value()) {
+            accountLimiter.reset(account);
+        }
+    }
+
+    /**
+     * The address of the client as seen by the outermost trusted proxy. Falls back to
+     * the leftmost forwarded entry when the header has fewer hops than expected, and
+     * to the socket address when there is no header or no proxy is trusted.
+     */
+    String clientAddress(HttpServletRequest request) {
+        if (trustedProxies == 0) {
+            return request.getRemoteAddr();
+        }
+        List<String> hops = new ArrayList<>();
+        Enumeration<String> headers = request.getHeaders("X-Forwarded-For");
+        while (headers != null && headers.hasMoreElements()) {
+            for (String hop : headers.nextElement().split(",")) {
+                if (!hop.isBlank()) {
+                    hops.add(hop.trim());
+                }
+            }
+        }
+        if (hops.isEmpty()) {
+            return request.getRemoteAddr();
+        }
+        return hops.get(Math.max(0, hops.size() - trustedProxies));
+    }
+
+    /**
+     * The account a request is aimed at, or null if it names none. For the 2FA step
+     * that is the pre-auth token, so code guesses are capped per login attempt.
+     */
+    private String accountKey(String path, HttpServletRequest request) throws IOException {
+        String value = switch (path) {
+            case SIGNIN, LOGIN -> usernameFromBody(((CachedBodyRequest) request).body);
+            case FORGOT_PASSWORD -> request.getParameter("email");
+            case VERIFY_2FA_LOGIN -> request.getParameter("jwtToken");
+            case LOGIN_2FA -> request.getParameter("preAuthToken");
+            default -> null;
+        };
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return path + '|' + value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String usernameFromBody(byte[] body) {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("username".equals(field) && value == JsonToken.VALUE_STRING) {
+                    return parser.getText();
+                }
+                parser.skipChildren();
+            }
+        } catch (IOException e) {
+            // Malformed body: the controller will reject it; the IP limit still applies
+        }
+        return null;
+    }
+
+    private static void reject(HttpServletResponse response, long waitMillis) throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader("Retry-After", String.valueOf(Math.max(1, (waitMillis + 999) / 1000)));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"message\":\"Too many attempts, please try again later\",\"status\":false}");
+    }
+
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "allowed", allowed.sum(),
+                "rejectedByIp", rejectedByIp.sum(),
+                "rejectedByAccount", rejectedByAccount.sum(),
+                "trackedIpKeys", ipLimiter.size(),
+                "trackedAccountKeys", accountLimiter.size());
+    }
+
+    /**
+     * Request whose body was read up front so the filter can look at it and the
+     * controller can still read it
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        private CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        /**
+         * @return null if the body is larger than maxBytes
+         */
+        static CachedBodyRequest read(HttpServletRequest request, int maxBytes) throws IOException {
+            if (request.getContentLengthLong() > maxBytes) {
+                return null;
+            }
+            byte[] body = request.getInputStream().readNBytes(maxBytes + 1);
+            return body.length > maxBytes ? null : new CachedBodyRequest(request, body);
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(new ByteArrayInputStream(body),
+                    encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.secure.notes.security;
+
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+/**
+ * Picks the BCrypt cost for this machine: the highest cost whose hash still takes
+ * no longer than the target. Each step up doubles the time, so the search stops at
+ * the first cost over the target.
+ */
+public final class BCryptCostCalibrator {
+
+    private static final String SAMPLE_PASSWORD = "calibration-password-1";
+
+    private BCryptCostCalibrator() {
+    }
+
+    public static int calibrate(long targetMillis, int minCost, int maxCost) {
+        // Warm up so the first measurement does not include JIT compilation
+        BCrypt.hashpw(SAMPLE_PASSWORD, BCrypt.gensalt(4));
+        BCrypt.hashpw(SAMPLE_PASSWORD, BCrypt.gensalt(4));
+
+        int chosen = minCost;
+        for (int cost = minCost; cost <= maxCost; cost++) {
+            // A second run only when the first is over the target, so a GC pause does not push the cost down
+            if (measure(cost) > targetMillis && measure(cost) > targetMillis) {
+                break;
+            }
+            chosen = cost;
+        }
+        return chosen;
+    }
+
+    private static long measure(int cost) {
+        long start = System.nanoTime();
+        BCrypt.hashpw(SAMPLE_PASSWORD, BCrypt.gensalt(cost));
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
@@ -0,0 +1,150 @@
+package com.secure.notes.security;
+
+import com.secure.notes.exceptions.PasswordHashingBusyException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Runs every hash and verification of the wrapped encoder on a small dedicated pool,
+ * so password work can use at most that many cores however many requests arrive.
+ * Callers wait for their result; when the queue in front of the pool is full the
+ * call fails straight away with PasswordHashingBusyException instead of piling up.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, AutoCloseable {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder hashNanos = new LongAdder();
+    private final LongAdder rehashed = new LongAdder();
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity) {
+        this.delegate = delegate;
+        this.queueCapacity = queueCapacity;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "password-hash-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return call(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return call(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * Hash the password again with the current settings, without the caller waiting.
+     * Only runs while the queue is less than half full, so upgrades never delay logins;
+     * a skipped upgrade happens on a later login.
+     * @param onHashed Receives the new hash, on the hashing thread
+     * @return false if the work was not queued
+     */
+    public boolean rehashInBackground(CharSequence rawPassword, Consumer<String> onHashed) {
+        if (executor.getQueue().size() >= queueCapacity / 2) {
+            return false;
+        }
+        try {
+            executor.execute(() -> {
+                onHashed.accept(timed(() -> delegate.encode(rawPassword)));
+                rehashed.increment();
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private <T> T call(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(() -> timed(task));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingBusyException("Too many sign-in requests right now, please try again");
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private <T> T timed(Callable<T> task) {
+        long start = System.nanoTime();
+        try {
+            return task.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        } finally {
+            hashNanos.add(System.nanoTime() - start);
+            completed.increment();
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    public PasswordHashingStats getStats() {
+        long done = completed.sum();
+        double averageMillis = done == 0 ? 0.0 : hashNanos.sum() / 1_000_000.0 / done;
+        return new PasswordHashingStats(executor.getMaximumPoolSize(), executor.getActiveCount(),
+                executor.getQueue().size(), queueCapacity, done, rejected.sum(), rehashed.sum(), averageMillis);
+    }
+
+    /**
+     * Snapshot of the hashing pool
+     */
+    public record PasswordHashingStats(
+            int threads,
+            int active,
+            int queued,
+            int queueCapacity,
+            long completed,
+            long rejected,
+            long rehashed,
+            double averageHashMillis
+    ) {
+    }
+}
@@ -0,0 +1,187 @@
+package com.secure.notes.security;
+
+import com.secure.notes.util.ExpiringCache;
+import jakarta.annotation.PostConstruct;
+import org.apache.commons.codec.binary.Base32;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * TOTP check (RFC 6238, the same parameters as GoogleAuthenticator: HMAC-SHA1,
+ * 6 digits, 30 second steps, one step of drift either way) with two additions:
+ *
+ * - Decoded secrets are cached per user for a short time, so retries during a
+ *   login do not load the user again.
+ * - Once a code is accepted, codes for that time step and earlier are refused for
+ *   the user, so an intercepted code cannot be replayed inside its window. Only
+ *   the last accepted step is kept per user, and only while it is still inside
+ *   the window.
+ *
+ * Code generation reuses a per-thread Mac and buffers, and a cache hit does not
+ * touch the database.
+ * Replay state is per instance; several instances behind a load balancer each
+ * keep their own.
+ */
+@Component
+public class TotpVerifier {
+
+    private static final long STEP_MILLIS = 30_000;
+    // Steps accepted either side of the current one
+    private static final int WINDOW = 1;
+    private static final int CODE_MODULUS = 1_000_000;
+    private static final String ALGORITHM = "HmacSHA1";
+
+    private static final ThreadLocal<Mac> MAC = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(ALGORITHM + " not available", e);
+        }
+    });
+    private static final ThreadLocal<byte[]> COUNTER = ThreadLocal.withInitial(() -> new byte[8]);
+    private static final ThreadLocal<byte[]> DIGEST = ThreadLocal.withInitial(() -> new byte[20]);
+
+    @Value("${security.totp.secret-cache.ttl-seconds:120}")
+    private long secretTtlSeconds;
+
+    @Value("${security.totp.secret-cache.max-size:10000}")
+    private int secretCacheSize;
+
+    private ExpiringCache<Long, SecretKeySpec> secrets;
+    private final ConcurrentHashMap<Long, UsedStep> lastUsedSteps = new ConcurrentHashMap<>();
+
+    private LongSupplier clock = System::currentTimeMillis;
+
+    @PostConstruct
+    void init() {
+        secrets = new ExpiringCache<>(secretCacheSize);
+    }
+
+    /**
+     * @param secretLoader Loads the user's Base32 secret when it is not cached; may return null
+     * @return true if the code is valid now and was not used before
+     */
+    public boolean verify(Long userId, int code, Function<Long, String> secretLoader) {
+        if (code < 0 || code >= CODE_MODULUS) {
+            return false;
+        }
+        SecretKeySpec key = secrets.computeIfAbsent(userId,
+                id -> decode(secretLoader.apply(id)), secretTtlSeconds * 1000);
+        if (key == null) {
+            return false;
+        }
+
+        long currentStep = clock.getAsLong() / STEP_MILLIS;
+        UsedStep used = lastUsedSteps.get(userId);
+        long floor = used != null ? used.step : Long.MIN_VALUE;
+        for (long step = currentStep - WINDOW; step <= currentStep + WINDOW; step++) {
+            if (step > floor && codeAt(key, step) == code) {
+                return markUsed(userId, step);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drop the cached secret, e.g. when the user gets a new one or turns 2FA off.
+     * Call after the change is committed. An evict that arrives while verify is
+     * loading the secret waits for the load and then removes what it loaded, so a
+     * secret read before the change is never left in the cache.
+     */
+    public void evict(Long userId) {
+        secrets.invalidate(userId);
+    }
+
+    private boolean markUsed(Long userId, long step) {
+        while (true) {
+            UsedStep used = lastUsedSteps.computeIfAbsent(userId, id -> new UsedStep());
+            synchronized (used) {
+                if (used.retired) {
+                    // Swept between the lookup and the lock; take the fresh entry
+                    continue;
+                }
+                if (step <= used.step) {
+                    // Another request accepted this code (or a later one) first
+                    return false;
+                }
+                used.step = step;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Forget users whose last accepted step has left the window; nothing older can match anyway
+     */
+    @Scheduled(fixedDelay = STEP_MILLIS)
+    public void evictExpiredSteps() {
+        // One extra step of margin for a verification that read the clock just before a step boundary
+        long oldest = clock.getAsLong() / STEP_MILLIS - WINDOW - 1;
+        lastUsedSteps.values().removeIf(used -> {
+            synchronized (used) {
+                if (used.step < oldest) {
+                    used.retired = true;
+                    return true;
+                }
+                return false;
+            }
+        });
+    }
+
+    int trackedUsers() {
+        return lastUsedSteps.size();
+    }
+
+    void setClock(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    private static SecretKeySpec decode(String secret) {
+        if (secret == null || secret.isBlank()) {
+            return null;
+        }
+        return new SecretKeySpec(new Base32().decode(secret), ALGORITHM);
+    }
+
+    /**
+     * RFC 4226 HOTP value for the step: HMAC of the big-endian counter, dynamically truncated
+     */
+    static int codeAt(SecretKeySpec key, long step) {
+        Mac mac = MAC.get();
+        byte[] counter = COUNTER.get();
+        byte[] digest = DIGEST.get();
+        for (int i = 7; i >= 0; i--) {
+            counter[i] = (byte) step;
+            step >>>= 8;
+        }
+        try {
+            mac.init(key);
+            mac.update(counter);
+            mac.doFinal(digest, 0);
+        } catch (InvalidKeyException | ShortBufferException e) {
+            throw new IllegalStateException("Could not compute TOTP code", e);
+        }
+        int offset = digest[digest.length - 1] & 0xF;
+        int binary = ((digest[offset] & 0x7F) << 24)
+                | ((digest[offset + 1] & 0xFF) << 16)
+                | ((digest[offset + 2] & 0xFF) << 8)
+                | (digest[offset + 3] & 0xFF);
+        return binary % CODE_MODULUS;
+    }
+
+    private static final class UsedStep {
+        // Guarded by this; read without the lock only as a hint to skip used steps
+        volatile long step = Long.MIN_VALUE;
+        boolean retired;
+    }
+}
@@ -1,6 +1,7 @@
 package com.secure.notes.security.jwt;
 
 import com.secure.notes.security.services.UserDetailsServiceImpl;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -8,6 +9,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -25,6 +27,16 @@ public class AuthTokenFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsServiceImpl userDetailsService;
 
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
+    @Autowired
+    private RevokedTokenIndex revokedTokenIndex;
+
+    // When enabled the principal is built from the token claims and the DB is not consulted
+    @Value("${spring.app.statelessPrincipal:false}")
+    private boolean statelessPrincipal;
+
     private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
 
     @Override
@@ -33,20 +45,23 @@ public class AuthTokenFilter extends OncePerRequestFilter {
         logger.debug("AuthTokenFilter called for URI: {}", request.getRequestURI());
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
-
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            Claims claims = jwt != null ? jwtUtils.getVerifiedClaims(jwt) : null;
+            // A pre-auth token only proves the password; it must not authenticate requests
+            if (claims != null && !jwtUtils.isPreAuth(claims) && !isRevoked(claims)) {
+                String username = claims.getSubject();
 
-                UsernamePasswordAuthenticationToken authentication =
-                        new UsernamePasswordAuthenticationToken(userDetails,
-                                null,
-                                userDetails.getAuthorities());
-                logger.debug("Roles from JWT: {}", userDetails.getAuthorities());
+                UserDetails userDetails = resolveUserDetails(username, claims);
+                if (userDetails != null) {
+                    UsernamePasswordAuthenticationToken authentication =
+                            new UsernamePasswordAuthenticationToken(userDetails,
+                                    null,
+                                    userDetails.getAuthorities());
+                    logger.debug("Roles from JWT: {}", userDetails.getAuthorities());
 
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                }
             }
         } catch (Exception e) {
             logger.error("Cannot set user authentication: {}", e);
@@ -55,6 +70,33 @@ public class AuthTokenFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * The token itself was logged out, or its session was revoked (logout, refresh
+     * token reuse, password change). In-memory only, so it costs no DB access.
+     */
+    private boolean isRevoked(Claims claims) {
+        if (revokedTokenIndex.isRevoked(claims.getId())
+                || revokedTokenIndex.isRevoked(claims.get(JwtUtils.SESSION_CLAIM, String.class))) {
+            logger.debug("Rejected revoked token for user: {}", claims.getSubject());
+            return true;
+        }
+        return false;
+    }
+
+    private UserDetails resolveUserDetails(String username, Claims claims) {
+        if (statelessPrincipal) {
+            if (tokenRevocationList.isRevoked(username, claims.getIssuedAt())) {
+                logger.debug("Rejected revoked token for user: {}", username);
+                return null;
+            }
+            UserDetails fromClaims = jwtUtils.buildUserDetailsFromClaims(claims);
+            if (fromClaims != null) {
+                return fromClaims;
+            }
+        }
+        return userDetailsService.loadUserByUsername(username);
+    }
+
     private String parseJwt(HttpServletRequest request) {
         String jwt = jwtUtils.getJwtFromHeader(request);
         logger.debug("AuthTokenFilter.java: {}", jwt);
@@ -0,0 +1,385 @@
+package com.secure.notes.security.jwt;
+
+import com.secure.notes.models.JwtSigningKey;
+import com.secure.notes.repositories.JwtSigningKeyRepository;
+import io.jsonwebtoken.io.Decoders;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Key pairs for ES256/EdDSA token signing, shared by all instances through the
+ * jwt_signing_key table. Only used when spring.app.jwt.algorithm is asymmetric.
+ *
+ * Rotation: a new key is published in the JWKS as soon as it is created but only
+ * signs once the JWKS max-age has passed, so a verifier that cached the key set
+ * (the edge proxy) has fetched it again before the first token signed with the new
+ * key arrives. The previous key then only verifies, until every token it signed has
+ * expired; after that it leaves the JWKS and the table.
+ *
+ * Every instance reloads the table periodically, and when a token names a kid it
+ * does not know, so keys created by one instance are picked up by the others.
+ * Decoded public keys are kept per kid across reloads; a reload only decodes keys
+ * it has not seen, and verification is a map lookup.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class JwtKeyStore {
+
+    // Margin for clock drift between the instances that sign and verify
+    private static final Duration CLOCK_SKEW = Duration.ofMinutes(1);
+    // Reloads triggered by unknown kids; forged kids must not turn into one DB query each
+    private static final long MISS_RELOAD_INTERVAL_MS = 5_000;
+    private static final byte[] KEK_LABEL = "jwt-signing-key-encryption".getBytes(StandardCharsets.US_ASCII);
+    private static final int IV_BYTES = 12;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final JwtSigningKeyRepository jwtSigningKeyRepository;
+
+    @Value("${spring.app.jwt.algorithm:ES256}")
+    private JwtSigningAlgorithm algorithm;
+
+    @Value("${spring.app.jwtSecret}")
+    private String jwtSecret;
+
+    @Value("${spring.app.jwt.key-rotation-hours:168}")
+    private long rotationHours;
+
+    @Value("${spring.app.jwt.jwks-max-age-seconds:3600}")
+    private long jwksMaxAgeSeconds;
+
+    @Value("${spring.app.accessTokenExpirationMs:900000}")
+    private long accessTokenExpirationMs;
+
+    @Value("${spring.app.preAuthExpirationMs:300000}")
+    private long preAuthExpirationMs;
+
+    // Encrypts private keys at rest; derived from jwtSecret, which is then no longer a signing key
+    private SecretKey keyEncryptionKey;
+
+    private volatile KeySnapshot snapshot = KeySnapshot.EMPTY;
+    private final AtomicLong lastMissReload = new AtomicLong();
+
+    private Clock clock = Clock.systemUTC();
+
+    @PostConstruct
+    void init() {
+        if (!algorithm.isAsymmetric()) {
+            return;
+        }
+        keyEncryptionKey = deriveKeyEncryptionKey(Decoders.BASE64.decode(jwtSecret));
+        reload();
+        if (snapshot.signing() == null) {
+            rotate();
+        }
+    }
+
+    public JwtSigningAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Key for new tokens; its algorithm can differ from the configured one until a
+     * key of the configured algorithm has been published long enough
+     */
+    public SigningKey signingKey() {
+        SigningKey signing = snapshot.signing();
+        if (signing == null) {
+            throw new IllegalStateException("No JWT signing key loaded");
+        }
+        return signing;
+    }
+
+    /**
+     * @return The public key for the kid, or null if no published key has it
+     */
+    public PublicKey verificationKey(String kid) {
+        PublicKey key = snapshot.verificationKeys().get(kid);
+        if (key == null && algorithm.isAsymmetric()) {
+            // Possibly a key another instance has just created
+            long now = clock.millis();
+            long last = lastMissReload.get();
+            if (now - last >= MISS_RELOAD_INTERVAL_MS && lastMissReload.compareAndSet(last, now)) {
+                reload();
+                key = snapshot.verificationKeys().get(kid);
+            }
+        }
+        return key;
+    }
+
+    public PublishedKeys getPublishedKeys() {
+        KeySnapshot current = snapshot;
+        return new PublishedKeys(current.jwks(), current.etag(), jwksMaxAgeSeconds);
+    }
+
+    /**
+     * Pick up keys created or deleted by other instances
+     */
+    @Scheduled(fixedDelayString = "${spring.app.jwt.key-reload-ms:60000}")
+    public void scheduledReload() {
+        if (algorithm.isAsymmetric()) {
+            reload();
+        }
+    }
+
+    /**
+     * Create a key when the newest one is older than the rotation period, or when the
+     * configured algorithm has changed. Two instances may both rotate in the same run;
+     * the extra key is harmless, it is published like the other and the newer one signs.
+     */
+    @Scheduled(cron = "${spring.app.jwt.key-rotation-cron:0 10 * * * *}")
+    public void rotateIfDue() {
+        if (!algorithm.isAsymmetric()) {
+            return;
+        }
+        reload();
+        KeySnapshot current = snapshot;
+        if (current.newestCreatedAt() == null || current.newestAlgorithm() != algorithm
+                || !current.newestCreatedAt().plus(Duration.ofHours(rotationHours)).isAfter(clock.instant())) {
+            rotate();
+        }
+    }
+
+    /**
+     * Create a key pair of the configured algorithm. It is published at once and signs
+     * once it has been published for the JWKS max-age (at once if there is no other key).
+     */
+    public synchronized void rotate() {
+        KeyPair pair = algorithm.generateKeyPair();
+        String kid = thumbprint(jwkMembers(pair.getPublic()));
+        jwtSigningKeyRepository.save(new JwtSigningKey(kid, algorithm, pair.getPublic().getEncoded(),
+                encrypt(pair.getPrivate().getEncoded(), kid), clock.instant()));
+        log.info("Created {} JWT signing key {}", algorithm, kid);
+        reload();
+    }
+
+    /**
+     * Rebuild the snapshot from the table and delete keys no valid token can carry
+     */
+    public synchronized void reload() {
+        Instant now = clock.instant();
+        Duration propagation = Duration.ofSeconds(jwksMaxAgeSeconds);
+        Duration tokenLifetime = Duration.ofMillis(Math.max(accessTokenExpirationMs, preAuthExpirationMs))
+                .plus(CLOCK_SKEW);
+        List<JwtSigningKey> keys = jwtSigningKeyRepository.findAllByOrderByCreatedAtDesc();
+
+        // Newest key published for a full max-age; with none that old (first start), the oldest key
+        int signingIndex = keys.size() - 1;
+        for (int i = 0; i < keys.size(); i++) {
+            if (!keys.get(i).getCreatedAt().plus(propagation).isAfter(now)) {
+                signingIndex = i;
+                break;
+            }
+        }
+
+        KeySnapshot previous = snapshot;
+        Map<String, PublicKey> verificationKeys = new HashMap<>();
+        List<Map<String, String>> jwks = new ArrayList<>();
+        List<JwtSigningKey> expired = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            JwtSigningKey key = keys.get(i);
+            // An older key stopped signing when the next newer key started
+            if (i > signingIndex && !keys.get(i - 1).getCreatedAt().plus(propagation).plus(tokenLifetime).isAfter(now)) {
+                expired.add(key);
+                continue;
+            }
+            PublicKey publicKey = previous.verificationKeys().get(key.getKid());
+            if (publicKey == null) {
+                publicKey = decodePublicKey(key);
+            }
+            verificationKeys.put(key.getKid(), publicKey);
+            jwks.add(toJwk(key.getKid(), key.getAlgorithm(), publicKey));
+        }
+
+        SigningKey signing = null;
+        if (signingIndex >= 0) {
+            JwtSigningKey key = keys.get(signingIndex);
+            signing = previous.signing() != null && previous.signing().kid().equals(key.getKid())
+                    ? previous.signing()
+                    : new SigningKey(key.getKid(), key.getAlgorithm(), decryptPrivateKey(key));
+        }
+
+        JwtSigningKey newest = keys.isEmpty() ? null : keys.get(0);
+        snapshot = new KeySnapshot(signing, Map.copyOf(verificationKeys), Map.of("keys", List.copyOf(jwks)),
+                etag(verificationKeys.keySet().stream().sorted().collect(Collectors.joining(","))),
+                newest != null ? newest.getCreatedAt() : null, newest != null ? newest.getAlgorithm() : null);
+
+        if (!expired.isEmpty()) {
+            jwtSigningKeyRepository.deleteAll(expired);
+            log.info("Deleted {} expired JWT signing keys", expired.size());
+        }
+    }
+
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    private PublicKey decodePublicKey(JwtSigningKey key) {
+        try {
+            return KeyFactory.getInstance(key.getAlgorithm().keyAlgorithm())
+                    .generatePublic(new X509EncodedKeySpec(key.getPublicKey()));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot decode JWT public key " + key.getKid(), e);
+        }
+    }
+
+    private PrivateKey decryptPrivateKey(JwtSigningKey key) {
+        byte[] stored = key.getPrivateKey();
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, keyEncryptionKey, new GCMParameterSpec(128, stored, 0, IV_BYTES));
+            cipher.updateAAD(key.getKid().getBytes(StandardCharsets.US_ASCII));
+            byte[] encoded = cipher.doFinal(stored, IV_BYTES, stored.length - IV_BYTES);
+            return KeyFactory.getInstance(key.getAlgorithm().keyAlgorithm())
+                    .generatePrivate(new PKCS8EncodedKeySpec(encoded));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot decrypt JWT signing key " + key.getKid()
+                    + "; was spring.app.jwtSecret changed?", e);
+        }
+    }
+
+    private byte[] encrypt(byte[] plain, String kid) {
+        byte[] iv = new byte[IV_BYTES];
+        RANDOM.nextBytes(iv);
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, keyEncryptionKey, new GCMParameterSpec(128, iv));
+            // Binds the ciphertext to its kid, so it cannot be moved to another row
+            cipher.updateAAD(kid.getBytes(StandardCharsets.US_ASCII));
+            byte[] encrypted = cipher.doFinal(plain);
+            byte[] stored = Arrays.copyOf(iv, IV_BYTES + encrypted.length);
+            System.arraycopy(encrypted, 0, stored, IV_BYTES, encrypted.length);
+            return stored;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot encrypt JWT signing key", e);
+        }
+    }
+
+    private static SecretKey deriveKeyEncryptionKey(byte[] secret) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+            return new SecretKeySpec(mac.doFinal(KEK_LABEL), "AES");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot derive JWT key encryption key", e);
+        }
+    }
+
+    private static Map<String, String> toJwk(String kid, JwtSigningAlgorithm algorithm, PublicKey publicKey) {
+        Map<String, String> jwk = jwkMembers(publicKey);
+        jwk.put("kid", kid);
+        jwk.put("use", "sig");
+        jwk.put("alg", algorithm.name());
+        return jwk;
+    }
+
+    /**
+     * The required JWK members of the key, in the lexicographic order RFC 7638 hashes them in
+     */
+    static Map<String, String> jwkMembers(PublicKey publicKey) {
+        Map<String, String> members = new LinkedHashMap<>();
+        if (publicKey instanceof ECPublicKey ecKey) {
+            members.put("crv", "P-256");
+            members.put("kty", "EC");
+            members.put("x", base64Url(unsigned(ecKey.getW().getAffineX(), 32)));
+            members.put("y", base64Url(unsigned(ecKey.getW().getAffineY(), 32)));
+        } else {
+            // The X.509 encoding of an Ed25519 key is a fixed 12-byte header and the 32-byte key
+            byte[] encoded = publicKey.getEncoded();
+            members.put("crv", "Ed25519");
+            members.put("kty", "OKP");
+            members.put("x", base64Url(Arrays.copyOfRange(encoded, encoded.length - 32, encoded.length)));
+        }
+        return members;
+    }
+
+    /**
+     * RFC 7638 JWK thumbprint: SHA-256 of the required members as compact JSON
+     */
+    static String thumbprint(Map<String, String> members) {
+        String json = members.entrySet().stream()
+                .map(member -> "\"" + member.getKey() + "\":\"" + member.getValue() + "\"")
+                .collect(Collectors.joining(",", "{", "}"));
+        return base64Url(sha256(json));
+    }
+
+    private static String etag(String kids) {
+        return "\"" + base64Url(sha256(kids)).substring(0, 16) + "\"";
+    }
+
+    /**
+     * Fixed-length big-endian bytes of a non-negative coordinate, without BigInteger's sign byte
+     */
+    private static byte[] unsigned(BigInteger value, int length) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length == length) {
+            return bytes;
+        }
+        byte[] fixed = new byte[length];
+        int copied = Math.min(bytes.length, length);
+        System.arraycopy(bytes, bytes.length - copied, fixed, length - copied, copied);
+        return fixed;
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String base64Url(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    public record SigningKey(String kid, JwtSigningAlgorithm algorithm, PrivateKey privateKey) {
+    }
+
+    /**
+     * The JWKS document and its validators; the same snapshot until the next reload
+     */
+    public record PublishedKeys(Map<String, Object> jwks, String etag, long maxAgeSeconds) {
+    }
+
+    private record KeySnapshot(SigningKey signing, Map<String, PublicKey> verificationKeys,
+                               Map<String, Object> jwks, String etag,
+                               Instant newestCreatedAt, JwtSigningAlgorithm newestAlgorithm) {
+        static final KeySnapshot EMPTY = new KeySnapshot(null, Map.of(), Map.of("keys", List.of()),
+                JwtKeyStore.etag(""), null, null);
+    }
+}
@@ -0,0 +1,60 @@
+package com.secure.notes.security.jwt;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.SignatureAlgorithm;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+
+/**
+ * How tokens are signed (spring.app.jwt.algorithm). HS256 signs with the shared
+ * spring.app.jwtSecret; the asymmetric ones sign with rotating key pairs from
+ * JwtKeyStore, whose public halves anyone can fetch from the JWKS endpoint.
+ */
+public enum JwtSigningAlgorithm {
+    HS256(null, null),
+    // ECDSA on P-256: small keys and signatures, supported by every JWT library
+    ES256("EC", Jwts.SIG.ES256),
+    // Ed25519: faster signing and verification than ES256, less widely supported
+    EdDSA("Ed25519", Jwts.SIG.EdDSA);
+
+    private final String keyAlgorithm;
+    private final SignatureAlgorithm signatureAlgorithm;
+
+    JwtSigningAlgorithm(String keyAlgorithm, SignatureAlgorithm signatureAlgorithm) {
+        this.keyAlgorithm = keyAlgorithm;
+        this.signatureAlgorithm = signatureAlgorithm;
+    }
+
+    public boolean isAsymmetric() {
+        return keyAlgorithm != null;
+    }
+
+    /**
+     * JCA name for KeyFactory and KeyPairGenerator
+     */
+    public String keyAlgorithm() {
+        return keyAlgorithm;
+    }
+
+    public SignatureAlgorithm signatureAlgorithm() {
+        return signatureAlgorithm;
+    }
+
+    public KeyPair generateKeyPair() {
+        if (!isAsymmetric()) {
+            throw new IllegalStateException(name() + " does not use key pairs");
+        }
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance(keyAlgorithm);
+            if (this == ES256) {
+                generator.initialize(new ECGenParameterSpec("secp256r1"));
+            }
+            return generator.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot generate " + name() + " key pair", e);
+        }
+    }
+}
@@ -1,19 +1,32 @@
 package com.secure.notes.security.jwt;
 
 import com.secure.notes.security.services.UserDetailsImpl;
+import com.secure.notes.util.ExpiringCache;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.Date;
+import java.util.List;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Component
@@ -23,8 +36,47 @@ public class JwtUtils {
     @Value("${spring.app.jwtSecret}")
     private String jwtSecret;
 
-    @Value("${spring.app.jwtExpirationMs}")
-    private int jwtExpirationMs;
+    @Autowired
+    private JwtKeyStore jwtKeyStore;
+
+    // With an asymmetric algorithm, still accept HS256 tokens signed with jwtSecret (while switching over)
+    @Value("${spring.app.jwt.accept-hmac:false}")
+    private boolean acceptHmac;
+
+    // Access tokens are short-lived; clients renew them through RefreshTokenService
+    @Value("${spring.app.accessTokenExpirationMs:900000}")
+    private long accessTokenExpirationMs;
+
+    @Value("${spring.app.jwtCache.maxSize:10000}")
+    private int jwtCacheMaxSize;
+
+    // Lifetime of the token that carries a password-checked login to its 2FA step
+    @Value("${spring.app.preAuthExpirationMs:300000}")
+    private long preAuthExpirationMs;
+
+    private static final String SCOPE_CLAIM = "scope";
+    private static final String PRE_AUTH_SCOPE = "2fa";
+    // Refresh token family the access token was issued for; revoking it ends the whole session
+    public static final String SESSION_CLAIM = "sid";
+
+    // Built once from jwtSecret; decoding the key and building a parser per call is wasted work
+    private SecretKey hmacKey;
+    private JwtParser jwtParser;
+
+    // Verified tokens keyed by SHA-256 of the compact token, each entry expires with the token
+    private ExpiringCache<String, Claims> verifiedTokens;
+
+    @PostConstruct
+    void init() {
+        this.hmacKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+        this.jwtParser = Jwts.parser().keyLocator(new LocatorAdapter<Key>() {
+            @Override
+            protected Key locate(JwsHeader header) {
+                return verificationKey(header.getKeyId());
+            }
+        }).build();
+        this.verifiedTokens = new ExpiringCache<>(jwtCacheMaxSize);
+    }
 
     public String getJwtFromHeader(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
@@ -35,47 +87,168 @@ public class JwtUtils {
         return null;
     }
 
-    public String generateTokenFromUsername(UserDetailsImpl userDetails) {
-        String username = userDetails.getUsername();
+    /**
+     * Access token with a unique id (jti), so it can be revoked on its own, and the
+     * refresh session it belongs to (sid), so the session can be revoked as a whole
+     */
+    public String generateAccessToken(UserDetailsImpl userDetails, String sessionId) {
+        JwtBuilder builder = userTokenBuilder(userDetails, accessTokenExpirationMs)
+                .id(UUID.randomUUID().toString());
+        if (sessionId != null) {
+            builder.claim(SESSION_CLAIM, sessionId);
+        }
+        return builder.compact();
+    }
+
+    public long getAccessTokenExpirationMs() {
+        return accessTokenExpirationMs;
+    }
+
+    /**
+     * Short-lived token saying the password was checked but the 2FA code was not.
+     * It carries the same claims as a full token, so the 2FA step can issue the
+     * final token without loading the user; AuthTokenFilter does not accept it.
+     */
+    public String generatePreAuthToken(UserDetailsImpl userDetails) {
+        return userTokenBuilder(userDetails, preAuthExpirationMs)
+                .claim(SCOPE_CLAIM, PRE_AUTH_SCOPE)
+                .compact();
+    }
+
+    private JwtBuilder userTokenBuilder(UserDetailsImpl userDetails, long expirationMs) {
         String roles = userDetails.getAuthorities().stream()
                 .map(authority -> authority.getAuthority())
                 .collect(Collectors.joining(","));
-        return Jwts.builder()
-                .subject(username)
+        Date now = new Date();
+        JwtBuilder builder = Jwts.builder()
+                .subject(userDetails.getUsername())
+                .claim("userId", userDetails.getId())
                 .claim("roles", roles)
                 .claim("is2faEnabled", userDetails.is2faEnabled())
-                .issuedAt(new Date())
-                .expiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(key())
-                .compact();
+                .issuedAt(now)
+                .expiration(new Date(now.getTime() + expirationMs));
+        return signed(builder);
     }
 
-    public String getUserNameFromJwtToken(String token) {
-        return Jwts.parser()
-                .verifyWith((SecretKey) key())
-                .build().parseSignedClaims(token)
-                .getPayload().getSubject();
+    private JwtBuilder signed(JwtBuilder builder) {
+        if (!jwtKeyStore.getAlgorithm().isAsymmetric()) {
+            return builder.signWith(hmacKey);
+        }
+        JwtKeyStore.SigningKey key = jwtKeyStore.signingKey();
+        return builder.header().keyId(key.kid()).and()
+                .signWith(key.privateKey(), key.algorithm().signatureAlgorithm());
     }
 
-    private Key key() {
-        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+    /**
+     * Tokens with a kid were signed with a JwtKeyStore key, tokens without one with
+     * jwtSecret. The public key is a map lookup; the key store only goes to the
+     * database for a kid it has not seen.
+     */
+    private Key verificationKey(String kid) {
+        if (kid == null) {
+            if (jwtKeyStore.getAlgorithm().isAsymmetric() && !acceptHmac) {
+                throw new UnsupportedJwtException("HMAC-signed tokens are not accepted");
+            }
+            return hmacKey;
+        }
+        PublicKey key = jwtKeyStore.verificationKey(kid);
+        if (key == null) {
+            throw new UnsupportedJwtException("Unknown signing key " + kid);
+        }
+        return key;
     }
 
-    public boolean validateJwtToken(String authToken) {
+    /**
+     * Claims of a valid pre-auth token, or null if the token is invalid or is not a pre-auth token
+     */
+    public Claims getPreAuthClaims(String token) {
+        Claims claims = getVerifiedClaims(token);
+        return claims != null && isPreAuth(claims) ? claims : null;
+    }
+
+    public boolean isPreAuth(Claims claims) {
+        return PRE_AUTH_SCOPE.equals(claims.get(SCOPE_CLAIM, String.class));
+    }
+
+    public String getUserNameFromJwtToken(String token) {
+        return jwtParser.parseSignedClaims(token)
+                .getPayload().getSubject();
+    }
+
+    /**
+     * Verify the token and return its claims, or null if it is not valid.
+     * A token is parsed and its signature checked at most once while it is
+     * in the cache; later calls with the same token are a hash and a map lookup.
+     */
+    public Claims getVerifiedClaims(String authToken) {
+        if (authToken == null || authToken.isEmpty()) {
+            logger.error("JWT claims string is empty");
+            return null;
+        }
+        String cacheKey = hashToken(authToken);
+        Claims cached = verifiedTokens.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
         try {
-            System.out.println("Validate");
-            Jwts.parser().verifyWith((SecretKey) key())
-                    .build().parseSignedClaims(authToken);
-            return true;
+            Claims claims = jwtParser.parseSignedClaims(authToken).getPayload();
+            if (claims.getExpiration() != null) {
+                verifiedTokens.put(cacheKey, claims, claims.getExpiration().getTime());
+            }
+            return claims;
         } catch (MalformedJwtException e) {
             logger.error("Invalid JWT token: {}", e.getMessage());
         } catch (ExpiredJwtException e) {
             logger.error("JWT token is expired: {}", e.getMessage());
         } catch (UnsupportedJwtException e) {
             logger.error("JWT token is unsupported: {}", e.getMessage());
+        } catch (io.jsonwebtoken.security.SecurityException e) {
+            logger.error("Invalid JWT signature: {}", e.getMessage());
         } catch (IllegalArgumentException e) {
             logger.error("JWT claims string is empty: {}", e.getMessage());
         }
-        return false;
+        return null;
+    }
+
+    public boolean validateJwtToken(String authToken) {
+        return getVerifiedClaims(authToken) != null;
+    }
+
+    /**
+     * Build the principal from the token alone (stateless principal mode).
+     * Returns null for tokens issued before the userId claim existed.
+     */
+    public UserDetailsImpl buildUserDetailsFromClaims(Claims claims) {
+        if (!(claims.get("userId") instanceof Number userId)) {
+            return null;
+        }
+        String roles = claims.get("roles", String.class);
+        List<GrantedAuthority> authorities = roles == null || roles.isEmpty()
+                ? List.of()
+                : Arrays.stream(roles.split(","))
+                        .map(role -> (GrantedAuthority) new SimpleGrantedAuthority(role))
+                        .toList();
+        return new UserDetailsImpl(
+                userId.longValue(),
+                claims.getSubject(),
+                null,
+                null,
+                Boolean.TRUE.equals(claims.get("is2faEnabled", Boolean.class)),
+                authorities
+        );
+    }
+
+    public ExpiringCache.CacheStats getVerifiedTokenCacheStats() {
+        return verifiedTokens.getStats();
+    }
+
+    private static String hashToken(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,133 @@
+package com.secure.notes.security.jwt;
+
+import com.secure.notes.util.BloomFilter;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Revoked access token ids (jti) and refresh sessions (sid), checked by AuthTokenFilter
+ * on every request without touching the database.
+ *
+ * A Bloom filter answers "not revoked" for almost every token with a few bit reads
+ * and no allocation; only on a filter hit is the exact map consulted, so false
+ * positives never reject a valid token. Each id is kept until the last access token
+ * it can match has expired. Entries cannot be removed from the filter, so compact()
+ * drops expired ids from the map and rebuilds the filter from what is left.
+ *
+ * The index is per instance; several instances behind a load balancer each keep
+ * their own, like TokenRevocationList.
+ */
+@Component
+public class RevokedTokenIndex {
+
+    private static final int MIN_CAPACITY = 1024;
+    // About one lookup in a thousand reaches the map for a token that is not revoked
+    private static final double FALSE_POSITIVE_RATE = 0.001;
+
+    // id -> epoch millis after which no token carrying it is valid any more
+    private final ConcurrentHashMap<String, Long> revoked = new ConcurrentHashMap<>();
+
+    // revoke holds the read lock, compact the write lock, so no id is added to a filter that is being replaced
+    private final ReentrantReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+
+    private volatile BloomFilter filter = BloomFilter.create(MIN_CAPACITY, FALSE_POSITIVE_RATE);
+    private volatile int capacity = MIN_CAPACITY;
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder filterHits = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    private LongSupplier clock = System::currentTimeMillis;
+
+    /**
+     * @param expiresAt Epoch millis after which no token with this id can be valid anyway
+     */
+    public void revoke(String id, long expiresAt) {
+        if (id == null || expiresAt <= clock.getAsLong()) {
+            return;
+        }
+        rebuildLock.readLock().lock();
+        try {
+            revoked.merge(id, expiresAt, Long::max);
+            filter.put(id);
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+        // Past its capacity the filter's false-positive rate climbs; grow it now rather than at the next compaction
+        if (revoked.size() > capacity) {
+            compact();
+        }
+    }
+
+    /**
+     * O(1) and lock-free: a filter miss (the common case) needs no map lookup
+     */
+    public boolean isRevoked(String id) {
+        if (id == null) {
+            return false;
+        }
+        lookups.increment();
+        if (!filter.mightContain(id)) {
+            return false;
+        }
+        filterHits.increment();
+        Long expiresAt = revoked.get(id);
+        if (expiresAt == null) {
+            falsePositives.increment();
+            return false;
+        }
+        return expiresAt > clock.getAsLong();
+    }
+
+    /**
+     * Drop ids whose tokens have all expired and rebuild the filter, sized for twice
+     * the remaining ids so it has room to grow until the next compaction
+     * @return Number of removed ids
+     */
+    public int compact() {
+        rebuildLock.writeLock().lock();
+        try {
+            long now = clock.getAsLong();
+            int before = revoked.size();
+            revoked.values().removeIf(expiresAt -> expiresAt <= now);
+
+            int newCapacity = Math.max(MIN_CAPACITY, revoked.size() * 2);
+            BloomFilter rebuilt = BloomFilter.create(newCapacity, FALSE_POSITIVE_RATE);
+            revoked.keySet().forEach(rebuilt::put);
+            filter = rebuilt;
+            capacity = newCapacity;
+            return before - revoked.size();
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    void setClock(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    public RevocationIndexStats getStats() {
+        BloomFilter current = filter;
+        return new RevocationIndexStats(revoked.size(), capacity, current.bitCount(), current.hashCount(),
+                lookups.sum(), filterHits.sum(), falsePositives.sum());
+    }
+
+    public record RevocationIndexStats(
+            int revokedIds,
+            int capacity,
+            long filterBits,
+            int hashFunctions,
+            long lookups,
+            long filterHits,
+            long falsePositives
+    ) {
+    }
+}
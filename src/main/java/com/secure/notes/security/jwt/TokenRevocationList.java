@@ -0,0 +1,57 @@
+package com.secure.notes.security.jwt;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-user watermark: any token for the user issued before the watermark is rejected.
+ * Used in stateless principal mode, where the filter never re-reads the user from the DB.
+ * An entry only matters until every token issued before it has expired.
+ */
+@Component
+public class TokenRevocationList {
+
+    @Value("${spring.app.accessTokenExpirationMs:900000}")
+    private long accessTokenExpirationMs;
+
+    private final ConcurrentHashMap<String, Long> revokedBefore = new ConcurrentHashMap<>();
+    private LongSupplier clock = System::currentTimeMillis;
+
+    public void revokeAllTokens(String username) {
+        if (username != null) {
+            revokedBefore.put(username, clock.getAsLong());
+        }
+    }
+
+    public boolean isRevoked(String username, Date issuedAt) {
+        Long watermark = revokedBefore.get(username);
+        if (watermark == null) {
+            return false;
+        }
+        // iat has second precision, so a token from the same second as the watermark is treated as revoked
+        return issuedAt == null || issuedAt.getTime() < watermark;
+    }
+
+    /**
+     * Drop watermarks older than the token lifetime; no token they could reject is still valid.
+     * @return Number of removed entries
+     */
+    public int purgeExpired() {
+        long cutoff = clock.getAsLong() - accessTokenExpirationMs;
+        int before = revokedBefore.size();
+        revokedBefore.values().removeIf(watermark -> watermark < cutoff);
+        return before - revokedBefore.size();
+    }
+
+    public int size() {
+        return revokedBefore.size();
+    }
+
+    void setClock(LongSupplier clock) {
+        this.clock = clock;
+    }
+}
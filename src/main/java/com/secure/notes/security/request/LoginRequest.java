@@ -8,4 +8,6 @@ import lombok.Setter;
 public class LoginRequest {
     private String username;
     private String password;
+    // Optional TOTP code, so a 2FA user can log in with a single request
+    private Integer code;
 }
\ No newline at end of file
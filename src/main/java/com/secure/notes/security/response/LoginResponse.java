@@ -1,5 +1,6 @@
 package com.secure.notes.security.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -12,10 +13,46 @@ public class LoginResponse {
     private String username;
     private List<String> roles;
 
+    // Only set by /public/login, so the client needs no separate 2FA status call
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean is2faEnabled;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean twoFactorRequired;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String preAuthToken;
+
+    // Exchanged at /api/auth/public/refresh for a new jwtToken once it expires
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String refreshToken;
+
     public LoginResponse(String username, List<String> roles, String jwtToken) {
         this.username = username;
         this.roles = roles;
         this.jwtToken = jwtToken;
     }
 
-}
\ No newline at end of file
+    /**
+     * Login complete: the access and refresh tokens and the user's 2FA status
+     */
+    public static LoginResponse authenticated(String username, List<String> roles, String jwtToken,
+                                              String refreshToken, boolean is2faEnabled) {
+        LoginResponse response = new LoginResponse(username, roles, jwtToken);
+        response.setRefreshToken(refreshToken);
+        response.setIs2faEnabled(is2faEnabled);
+        response.setTwoFactorRequired(false);
+        return response;
+    }
+
+    /**
+     * Password accepted, a TOTP code is still needed: no JWT, only the pre-auth token
+     */
+    public static LoginResponse twoFactorChallenge(String username, String preAuthToken) {
+        LoginResponse response = new LoginResponse(username, null, null);
+        response.setIs2faEnabled(true);
+        response.setTwoFactorRequired(true);
+        response.setPreAuthToken(preAuthToken);
+        return response;
+    }
+}
@@ -0,0 +1,42 @@
+package com.secure.notes.security.services;
+
+import com.secure.notes.repositories.UserRepository;
+import com.secure.notes.security.BoundedPasswordEncoder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+/**
+ * Moves stored password hashes to the current encoding after a successful login,
+ * the only time the raw password is available. The new hash is computed in the
+ * background so the login does not pay for the higher cost.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PasswordUpgradeService {
+
+    private final BoundedPasswordEncoder passwordEncoder;
+    private final UserRepository userRepository;
+    private final UserDetailsCache userDetailsCache;
+
+    /**
+     * Queue a rehash if the stored hash is in an older format or weaker than the
+     * current BCrypt cost
+     */
+    public void upgradeIfNeeded(UserDetailsImpl user, String rawPassword) {
+        String oldHash = user.getPassword();
+        if (oldHash == null || rawPassword == null || !passwordEncoder.upgradeEncoding(oldHash)) {
+            return;
+        }
+        passwordEncoder.rehashInBackground(rawPassword, newHash -> {
+            // Only replaces the hash the user logged in with; a password changed meanwhile is kept
+            int updated = userRepository.replacePasswordHash(user.getUsername(), oldHash, newHash);
+            if (updated == 1) {
+                userDetailsCache.evict(user.getUsername());
+                userDetailsCache.evict(user.getEmail());
+                log.debug("Upgraded password hash for user {}", user.getUsername());
+            }
+        });
+    }
+}
@@ -0,0 +1,90 @@
+package com.secure.notes.security.services;
+
+import com.secure.notes.models.User;
+import com.secure.notes.util.ExpiringCache;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Function;
+
+/**
+ * Cache of loaded principals keyed by the name they were looked up with.
+ * Anything that changes how a user authenticates must call {@link #evict(User)}, or
+ * {@link #evictAfterCommit(User)} when the change is part of a transaction.
+ */
+@Component
+public class UserDetailsCache {
+
+    @Value("${spring.app.userCache.maxSize:10000}")
+    private int maxSize;
+
+    @Value("${spring.app.userCache.ttlSeconds:300}")
+    private long ttlSeconds;
+
+    private ExpiringCache<String, UserDetailsImpl> cache;
+
+    @PostConstruct
+    void init() {
+        this.cache = new ExpiringCache<>(maxSize);
+    }
+
+    public UserDetailsImpl get(String username) {
+        return cache.get(username);
+    }
+
+    /**
+     * The cached principal, or the one returned by the loader, which is cached. The load
+     * is atomic with {@link #evict(String)}: an eviction during a load waits for it and then
+     * drops the result, so a principal read before a change cannot be cached after it.
+     * Exceptions from the loader are thrown to the caller and nothing is cached.
+     */
+    public UserDetailsImpl load(String username, Function<String, UserDetailsImpl> loader) {
+        return cache.computeIfAbsent(username, loader, ttlSeconds * 1000);
+    }
+
+    public void put(String username, UserDetailsImpl userDetails) {
+        cache.put(username, userDetails, System.currentTimeMillis() + ttlSeconds * 1000);
+    }
+
+    public void evict(String username) {
+        if (username != null) {
+            cache.invalidate(username);
+        }
+    }
+
+    /**
+     * Evict a user under every key it may have been loaded with (username, or email for OAuth2 users)
+     */
+    public void evict(User user) {
+        evict(user.getUserName());
+        evict(user.getEmail());
+    }
+
+    /**
+     * Evict once the current transaction commits; evicting earlier would let a concurrent
+     * load cache the row as it was before the commit. Evicts now if no transaction is active.
+     */
+    public void evictAfterCommit(User user) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(user);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(user);
+            }
+        });
+    }
+
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    public ExpiringCache.CacheStats getStats() {
+        return cache.getStats();
+    }
+}
@@ -7,7 +7,8 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
 
 
 @Service
@@ -15,9 +16,17 @@ public class UserDetailsServiceImpl implements UserDetailsService {
     @Autowired
     UserRepository userRepository;
 
+    @Autowired
+    UserDetailsCache userDetailsCache;
+
+    // Not @Transactional: a cache hit must not open a transaction (and borrow a connection).
+    // The role association is EAGER, so build() needs no open session.
     @Override
-    @Transactional
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        return userDetailsCache.load(username, this::loadFromDatabase);
+    }
+
+    private UserDetailsImpl loadFromDatabase(String username) {
         User user = userRepository.findByUserName(username)
                 .or(() -> {
                     // If not found and it looks like an email, try finding by email
@@ -25,7 +34,7 @@ public class UserDetailsServiceImpl implements UserDetailsService {
                     if (username.contains("@")) {
                         return userRepository.findByEmail(username);
                     }
-                    return null;
+                    return Optional.empty();
                 })
                 .orElseThrow(() -> new UsernameNotFoundException("User Not Found with username: " + username));
 
@@ -35,4 +44,4 @@ public class UserDetailsServiceImpl implements UserDetailsService {
 
 
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,173 @@
+package com.secure.notes.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.secure.notes.models.AiConversionCacheEntry;
+import com.secure.notes.repositories.AiConversionCacheRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Content-addressed cache of AI conversions. The key is a SHA-256 of the model,
+ * the temperature and the input text, so identical requests never reach the provider twice.
+ * The memory tier is a Caffeine (W-TinyLFU) cache bounded by bytes; the optional
+ * database tier survives restarts and is shared between instances.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AiResultCache {
+
+    private final AiConversionCacheRepository repository;
+
+    @Value("${ai.cache.max-memory-bytes:16777216}")
+    private long maxMemoryBytes;
+
+    @Value("${ai.cache.persistent-enabled:false}")
+    private boolean persistentEnabled;
+
+    @Value("${ai.cache.persistent-max-bytes:268435456}")
+    private long persistentMaxBytes;
+
+    @Value("${ai.cache.persistent-ttl-days:30}")
+    private long persistentTtlDays;
+
+    private Cache<String, CachedConversion> memory;
+
+    private final LongAdder persistentHits = new LongAdder();
+    private final LongAdder latencySavedMs = new LongAdder();
+
+    @PostConstruct
+    void init() {
+        memory = Caffeine.newBuilder()
+                .maximumWeight(maxMemoryBytes)
+                .weigher((String key, CachedConversion value) -> value.sizeBytes())
+                .recordStats()
+                .build();
+    }
+
+    public static String key(String model, double temperature, String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(model.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(Double.toString(temperature).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * @return The cached conversion, or null on a miss in both tiers
+     */
+    public String get(String key) {
+        CachedConversion cached = memory.getIfPresent(key);
+        if (cached == null && persistentEnabled) {
+            cached = repository.findById(key)
+                    .map(entry -> new CachedConversion(entry.getConvertedText(), entry.getUpstreamLatencyMs(),
+                            entry.getSizeBytes()))
+                    .orElse(null);
+            if (cached != null) {
+                persistentHits.increment();
+                memory.put(key, cached);
+            }
+        }
+        if (cached == null) {
+            return null;
+        }
+        latencySavedMs.add(cached.upstreamLatencyMs());
+        return cached.text();
+    }
+
+    public void put(String key, String model, String convertedText, long upstreamLatencyMs) {
+        // Rough in-memory footprint: UTF-16 chars plus the key and entry overhead
+        int sizeBytes = convertedText.length() * 2 + 160;
+        memory.put(key, new CachedConversion(convertedText, upstreamLatencyMs, sizeBytes));
+        if (persistentEnabled) {
+            // Called from the HTTP client thread; the JPA write must not run there
+            Schedulers.boundedElastic().schedule(() -> {
+                try {
+                    repository.save(new AiConversionCacheEntry(key, model, convertedText, upstreamLatencyMs,
+                            convertedText.getBytes(StandardCharsets.UTF_8).length));
+                } catch (Exception e) {
+                    log.warn("Could not persist AI conversion cache entry: {}", e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Scheduled trim of the database tier: drop entries past their TTL, then the
+     * oldest entries until the total size fits the byte budget.
+     */
+    @Scheduled(cron = "0 15 * * * *")
+    public void trimPersistentTier() {
+        if (!persistentEnabled) {
+            return;
+        }
+        int expired = repository.deleteCreatedBefore(Instant.now().minus(Duration.ofDays(persistentTtlDays)));
+        long total = repository.totalSizeBytes();
+        int evicted = 0;
+        while (total > persistentMaxBytes) {
+            List<AiConversionCacheEntry> oldest = repository.findTop100ByOrderByCreatedAtAsc();
+            if (oldest.isEmpty()) {
+                break;
+            }
+            for (AiConversionCacheEntry entry : oldest) {
+                total -= entry.getSizeBytes();
+                evicted++;
+            }
+            repository.deleteAllInBatch(oldest);
+        }
+        log.info("AI conversion cache trim: {} expired, {} evicted for size", expired, evicted);
+    }
+
+    public AiCacheStats getStats() {
+        CacheStats stats = memory.stats();
+        long weightedSize = memory.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+        return new AiCacheStats(memory.estimatedSize(), weightedSize, maxMemoryBytes,
+                stats.hitCount(), persistentHits.sum(), stats.missCount() - persistentHits.sum(),
+                stats.evictionCount(), latencySavedMs.sum());
+    }
+
+    private record CachedConversion(String text, long upstreamLatencyMs, int sizeBytes) {
+    }
+
+    /**
+     * Snapshot of cache counters. Misses count lookups that missed both tiers.
+     */
+    public record AiCacheStats(
+            long entries,
+            long memoryBytes,
+            long maxMemoryBytes,
+            long memoryHits,
+            long persistentHits,
+            long misses,
+            long evictions,
+            long latencySavedMs
+    ) {
+        public double getHitRate() {
+            long total = memoryHits + persistentHits + misses;
+            return total == 0 ? 0.0 : (double) (memoryHits + persistentHits) / total;
+        }
+    }
+}
@@ -1,5 +1,20 @@
 package com.secure.notes.services;
 
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.CompletableFuture;
+
 public interface AiService {
-    String convertToHinglish(String text);
+    /**
+     * Convert text to Hinglish without blocking the calling thread.
+     * @throws com.secure.notes.exceptions.AiCapacityExceededException if too many conversions are in flight
+     */
+    CompletableFuture<String> convertToHinglish(String text);
+
+    /**
+     * Convert text to Hinglish and emit the output pieces as the provider produces them.
+     * Cancelling the subscription cancels the upstream call.
+     * @throws com.secure.notes.exceptions.AiCapacityExceededException if too many conversions are in flight
+     */
+    Flux<String> streamHinglish(String text);
 }
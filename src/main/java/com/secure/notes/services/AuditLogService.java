@@ -1,18 +1,23 @@
 package com.secure.notes.services;
 
-import com.secure.notes.models.AuditLog;
+import com.secure.notes.dtos.AuditLogExportRow;
+import com.secure.notes.dtos.AuditLogFilter;
+import com.secure.notes.dtos.AuditLogPageResponse;
 import com.secure.notes.models.Note;
 
-import java.util.List;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
 
 public interface AuditLogService {
     void logNoteCreation(String username, Note note);
 
-    void logNoteUpdate(String username, Note note);
+    void logNoteUpdate(String username, Note note, String previousContent);
 
     void logNoteDeletion(String username, Long noteId);
 
-    List<AuditLog> getAllAuditLogs();
+    String getNoteContentAtRevision(Long noteId, int revision);
 
-    List<AuditLog> getAuditLogsForNoteId(Long id);
+    AuditLogPageResponse getAuditLogsPage(AuditLogFilter filter, LocalDateTime afterTimestamp, Long afterId, int size);
+
+    void streamAuditLogs(AuditLogFilter filter, Consumer<AuditLogExportRow> consumer);
 }
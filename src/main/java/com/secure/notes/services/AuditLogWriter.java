@@ -0,0 +1,273 @@
+package com.secure.notes.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.secure.notes.models.AuditLog;
+import com.secure.notes.repositories.AuditLogRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Service that takes audit entries off the request thread. Entries are put on a
+ * bounded queue and a single background thread persists them in batches, either
+ * when a batch is full or when the flush interval has passed.
+ */
+@Service
+@Slf4j
+public class AuditLogWriter {
+
+    /**
+     * What to do with an entry when the queue is full
+     */
+    public enum OverflowPolicy {
+        // Wait for space; the request thread is slowed down instead of losing entries
+        BLOCK,
+        // Discard the entry and count it
+        DROP,
+        // Append the entry to the spill file; it is replayed on the next startup
+        SPILL
+    }
+
+    // Queued by shutdown after the last entry; the writer stops once it takes this
+    private static final AuditLog STOP = new AuditLog();
+
+    private final AuditLogRepository auditLogRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${audit.writer.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${audit.writer.batch-size:50}")
+    private int batchSize;
+
+    @Value("${audit.writer.flush-interval-ms:500}")
+    private long flushIntervalMs;
+
+    @Value("${audit.writer.overflow-policy:BLOCK}")
+    private OverflowPolicy overflowPolicy;
+
+    @Value("${audit.writer.spill-file:audit-spill.ndjson}")
+    private String spillFileName;
+
+    private Path spillFile;
+
+    private BlockingQueue<AuditLog> queue;
+    private Thread writerThread;
+    private volatile boolean running;
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+
+    public AuditLogWriter(AuditLogRepository auditLogRepository, ObjectMapper objectMapper) {
+        this.auditLogRepository = auditLogRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        spillFile = Path.of(spillFileName);
+        replaySpillFile();
+        running = true;
+        writerThread = new Thread(this::runWriter, "audit-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        log.info("Audit log writer started (capacity={}, batchSize={}, flushIntervalMs={}, overflow={})",
+                queueCapacity, batchSize, flushIntervalMs, overflowPolicy);
+    }
+
+    /**
+     * Hand an entry to the writer. Returns immediately unless the queue is full
+     * and the overflow policy is BLOCK.
+     */
+    public void enqueue(AuditLog entry) {
+        if (!running) {
+            // Shutting down: write synchronously so nothing is lost
+            persist(List.of(entry));
+            return;
+        }
+        if (queue.offer(entry)) {
+            return;
+        }
+        switch (overflowPolicy) {
+            case BLOCK -> {
+                try {
+                    queue.put(entry);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    spill(List.of(entry));
+                }
+            }
+            case DROP -> {
+                dropped.increment();
+                log.warn("Audit queue full, dropped {} action for note {}", entry.getAction(), entry.getNoteId());
+            }
+            case SPILL -> spill(List.of(entry));
+        }
+    }
+
+    private void runWriter() {
+        List<AuditLog> batch = new ArrayList<>(batchSize);
+        boolean stopped = false;
+        while (!stopped) {
+            try {
+                AuditLog first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fillBatch(batch, System.currentTimeMillis() + flushIntervalMs);
+            } catch (InterruptedException e) {
+                // Shutdown never interrupts the writer, so a batch is not cut off mid-insert; keep going
+            }
+            stopped = batch.removeIf(entry -> entry == STOP);
+            persist(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Add queued entries until the batch is full or the deadline has passed
+     */
+    private void fillBatch(List<AuditLog> batch, long deadline) throws InterruptedException {
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.currentTimeMillis();
+            if (batch.size() >= batchSize || remaining <= 0 || containsStop(batch)) {
+                return;
+            }
+            AuditLog next = queue.poll(remaining, TimeUnit.MILLISECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private static boolean containsStop(List<AuditLog> batch) {
+        for (AuditLog entry : batch) {
+            if (entry == STOP) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void persist(List<AuditLog> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            // Ids come from the pooled sequence, so Hibernate sends these as one JDBC batch
+            auditLogRepository.saveAll(batch);
+            written.add(batch.size());
+        } catch (Exception e) {
+            failedBatches.increment();
+            log.error("Failed to write {} audit entries, spilling to {}: {}", batch.size(), spillFile, e.getMessage());
+            spill(batch);
+        }
+    }
+
+    private synchronized void spill(List<AuditLog> entries) {
+        try (BufferedWriter writer = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (AuditLog entry : entries) {
+                writer.write(objectMapper.writeValueAsString(entry));
+                writer.newLine();
+            }
+            spilled.add(entries.size());
+        } catch (IOException e) {
+            dropped.add(entries.size());
+            log.error("Could not spill {} audit entries to {}: {}", entries.size(), spillFile, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Persist entries left in the spill file by a previous run, then remove the file
+     */
+    private synchronized void replaySpillFile() {
+        if (!Files.exists(spillFile)) {
+            return;
+        }
+        try {
+            List<AuditLog> entries = new ArrayList<>();
+            for (String line : Files.readAllLines(spillFile, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    AuditLog entry = objectMapper.readValue(line, AuditLog.class);
+                    entry.setId(null);
+                    entries.add(entry);
+                }
+            }
+            for (int i = 0; i < entries.size(); i += batchSize) {
+                auditLogRepository.saveAll(entries.subList(i, Math.min(i + batchSize, entries.size())));
+            }
+            Files.delete(spillFile);
+            log.info("Replayed {} spilled audit entries from {}", entries.size(), spillFile);
+        } catch (Exception e) {
+            log.error("Could not replay audit spill file {}: {}", spillFile, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Stop taking entries and let the writer drain the queue up to the stop marker.
+     * The writer is not interrupted: an interrupt could abort a JDBC batch that was
+     * already sent and its entries would then be spilled and written twice.
+     */
+    @PreDestroy
+    void shutdown() {
+        running = false;
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        try {
+            if (queue.offer(STOP, 30, TimeUnit.SECONDS)) {
+                writerThread.join(Math.max(1, deadline - System.currentTimeMillis()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Anything still queued now is never taken by the writer, which stops at the marker or is stuck
+        List<AuditLog> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.removeIf(entry -> entry == STOP);
+        if (!remaining.isEmpty()) {
+            log.warn("Audit writer did not drain in time, spilling {} entries", remaining.size());
+            spill(remaining);
+        }
+        log.info("Audit log writer stopped ({} written, {} dropped, {} spilled)",
+                written.sum(), dropped.sum(), spilled.sum());
+    }
+
+    public AuditWriterStats getStats() {
+        return new AuditWriterStats(queue.size(), queueCapacity, written.sum(), dropped.sum(),
+                spilled.sum(), failedBatches.sum());
+    }
+
+    /**
+     * Snapshot of writer counters
+     */
+    public record AuditWriterStats(
+            int queued,
+            int capacity,
+            long written,
+            long dropped,
+            long spilled,
+            long failedBatches
+    ) {
+    }
+}
@@ -0,0 +1,392 @@
+package com.secure.notes.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.secure.notes.dtos.BulkRecipient;
+import com.secure.notes.exceptions.EmailProviderException;
+import com.secure.notes.models.BulkAudience;
+import com.secure.notes.models.BulkEmailJob;
+import com.secure.notes.models.BulkEmailJobStatus;
+import com.secure.notes.repositories.BulkEmailJobRepository;
+import com.secure.notes.repositories.UserRepository;
+import com.secure.notes.util.EmailService;
+import com.secure.notes.util.EmailService.BatchRecipient;
+import com.secure.notes.util.EmailTemplateType;
+import com.secure.notes.util.TokenBucket;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends one template to a large audience through Brevo batch requests. Recipients
+ * are read in user id order a page at a time and each page goes out as one request,
+ * paced by a token bucket so the account's send rate is not exceeded. The cursor
+ * and counts are saved after every batch, so a job paused by an admin, stopped by
+ * provider errors or cut off by a restart continues where it left off.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BulkEmailService {
+
+    private static final TypeReference<Map<String, String>> VARIABLES_TYPE = new TypeReference<>() {
+    };
+
+    // Variables filled per recipient; everything else comes from the job
+    private static final List<String> RECIPIENT_VARIABLES = List.of("username", "expiryDate");
+
+    private final BulkEmailJobRepository bulkEmailJobRepository;
+    private final UserRepository userRepository;
+    private final EmailService emailService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${email.bulk.batch-size:500}")
+    private int batchSize;
+
+    @Value("${email.bulk.recipients-per-second:100}")
+    private double recipientsPerSecond;
+
+    @Value("${email.bulk.burst:500}")
+    private double burst;
+
+    @Value("${email.bulk.max-batch-attempts:5}")
+    private int maxBatchAttempts;
+
+    @Value("${email.bulk.backoff-base-ms:2000}")
+    private long backoffBaseMs;
+
+    @Value("${email.bulk.password-expiry.notice-days:7}")
+    private int passwordExpiryNoticeDays;
+
+    @Value("${email.bulk.password-expiry.enabled:false}")
+    private boolean passwordExpiryEnabled;
+
+    @Value("${frontend.url}")
+    private String frontendUrl;
+
+    private final Set<Long> pauseRequests = ConcurrentHashMap.newKeySet();
+    private final AtomicLong providerRequests = new AtomicLong();
+    private final AtomicLong throttledResponses = new AtomicLong();
+    private final AtomicLong retriedBatches = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicLong throttleWaitNanos = new AtomicLong();
+
+    private TokenBucket rateLimiter;
+    private ExecutorService runner;
+
+    @PostConstruct
+    void init() {
+        rateLimiter = new TokenBucket(recipientsPerSecond, burst);
+        // One job at a time, so jobs share the send rate instead of competing for it
+        runner = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bulk-email");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // The saved cursor lets the job continue after the restart
+        runner.shutdownNow();
+    }
+
+    /**
+     * Pick up jobs that were running when the application stopped
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedJobs() {
+        for (BulkEmailJob job : bulkEmailJobRepository.findByStatus(BulkEmailJobStatus.RUNNING)) {
+            log.info("Resuming bulk email job {} after user {}", job.getId(), job.getLastUserId());
+            submit(job.getId());
+        }
+    }
+
+    /**
+     * Create a job and start sending
+     * @param variables Template variables shared by all recipients
+     * @param windowStart Only for CREDENTIALS_EXPIRING: first expiry date to include
+     * @param windowEnd Only for CREDENTIALS_EXPIRING: last expiry date to include
+     */
+    public BulkEmailJob startJob(EmailTemplateType type, BulkAudience audience, Map<String, String> variables,
+                                 LocalDate windowStart, LocalDate windowEnd) {
+        if (audience == BulkAudience.CREDENTIALS_EXPIRING && (windowStart == null || windowEnd == null)) {
+            throw new IllegalArgumentException("An expiry window is required for " + audience);
+        }
+        BulkEmailJob job;
+        try {
+            job = new BulkEmailJob(type.getTemplateName(), audience, objectMapper.writeValueAsString(variables));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Could not store template variables: " + e.getMessage(), e);
+        }
+        job.setWindowStart(windowStart);
+        job.setWindowEnd(windowEnd);
+        job = bulkEmailJobRepository.save(job);
+        log.info("Bulk email job {} created: {} to {}", job.getId(), type.getTemplateName(), audience);
+        submit(job.getId());
+        return job;
+    }
+
+    /**
+     * Ask a running job to stop after its current batch
+     * @return false if there is no running job with this id
+     */
+    public boolean pauseJob(Long id) {
+        Optional<BulkEmailJob> job = bulkEmailJobRepository.findById(id)
+                .filter(found -> found.getStatus() == BulkEmailJobStatus.RUNNING);
+        job.ifPresent(found -> pauseRequests.add(id));
+        return job.isPresent();
+    }
+
+    /**
+     * Continue a paused job from its saved cursor
+     * @return false if there is no paused job with this id
+     */
+    public boolean resumeJob(Long id) {
+        Optional<BulkEmailJob> job = bulkEmailJobRepository.findById(id)
+                .filter(found -> found.getStatus() == BulkEmailJobStatus.PAUSED);
+        job.ifPresent(found -> {
+            pauseRequests.remove(id);
+            found.setStatus(BulkEmailJobStatus.RUNNING);
+            found.setLastError(null);
+            bulkEmailJobRepository.save(found);
+            submit(id);
+        });
+        return job.isPresent();
+    }
+
+    public Optional<BulkEmailJob> getJob(Long id) {
+        return bulkEmailJobRepository.findById(id);
+    }
+
+    public List<BulkEmailJob> getRecentJobs() {
+        return bulkEmailJobRepository.findTop20ByOrderByIdDesc();
+    }
+
+    /**
+     * Daily notice to users whose password expires within the notice period
+     */
+    @Scheduled(cron = "${email.bulk.password-expiry.cron:0 0 9 * * *}")
+    public void sendPasswordExpiryNotices() {
+        if (!passwordExpiryEnabled) {
+            return;
+        }
+        // A run that has not finished yet (a large audience, a slow provider, or paused by an
+        // admin and waiting to be resumed) still covers these users
+        if (bulkEmailJobRepository.existsByTemplateAndStatusIn(EmailTemplateType.PASSWORD_EXPIRING.getTemplateName(),
+                EnumSet.of(BulkEmailJobStatus.RUNNING, BulkEmailJobStatus.PAUSED))) {
+            log.warn("Previous password expiry notice job has not finished, skipping today's run");
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        startJob(EmailTemplateType.PASSWORD_EXPIRING, BulkAudience.CREDENTIALS_EXPIRING,
+                Map.of("appUrl", frontendUrl + "/login"), today, today.plusDays(passwordExpiryNoticeDays));
+    }
+
+    private void submit(Long id) {
+        runner.execute(() -> {
+            try {
+                runJob(id);
+            } catch (Exception e) {
+                log.error("Bulk email job {} stopped unexpectedly: {}", id, e.getMessage(), e);
+            }
+        });
+    }
+
+    void runJob(Long id) throws InterruptedException {
+        BulkEmailJob job = bulkEmailJobRepository.findById(id).orElse(null);
+        if (job == null || job.getStatus() != BulkEmailJobStatus.RUNNING) {
+            return;
+        }
+        try {
+            sendBatches(job);
+        } catch (IllegalArgumentException e) {
+            // Unknown template or missing variable: every batch fails the same way, so left RUNNING
+            // the job would be resumed and fail again on every restart
+            finish(bulkEmailJobRepository.findById(id).orElse(job), BulkEmailJobStatus.FAILED, e.getMessage());
+            log.error("Bulk email job {} failed: {}", id, e.getMessage());
+        }
+    }
+
+    private void sendBatches(BulkEmailJob job) throws InterruptedException {
+        Long id = job.getId();
+        if (job.getStartedAt() == null) {
+            job.setStartedAt(Instant.now());
+        }
+        EmailTemplateType type = EmailTemplateType.fromTemplateName(job.getTemplate());
+        Map<String, String> variables = readVariables(job);
+        Pageable page = PageRequest.of(0, Math.min(batchSize, EmailService.MAX_BATCH_RECIPIENTS));
+
+        while (true) {
+            if (pauseRequests.remove(id)) {
+                finish(job, BulkEmailJobStatus.PAUSED, null);
+                log.info("Bulk email job {} paused after user {}", id, job.getLastUserId());
+                return;
+            }
+            List<BulkRecipient> recipients = nextRecipients(job, page);
+            if (recipients.isEmpty()) {
+                finish(job, BulkEmailJobStatus.COMPLETED, null);
+                log.info("Bulk email job {} completed: {} sent, {} failed, {} recipients/s", id,
+                        job.getSentRecipients(), job.getFailedRecipients(),
+                        String.format("%.1f", job.getRecipientsPerSecond()));
+                return;
+            }
+
+            throttleWaitNanos.addAndGet(rateLimiter.acquire(recipients.size()));
+            // Same key when a batch is sent again after a restart: the cursor only moves once it is accepted
+            String idempotencyKey = "bulk:" + id + ":" + recipients.get(0).getUserId();
+            try {
+                sendWithRetry(job, type, variables, recipients, idempotencyKey);
+                job.setSentRecipients(job.getSentRecipients() + recipients.size());
+            } catch (EmailProviderException e) {
+                if (!e.isPermanent()) {
+                    // Keep the cursor on this batch; an admin can resume once the provider recovers
+                    finish(job, BulkEmailJobStatus.PAUSED, e.getMessage());
+                    log.error("Bulk email job {} paused, provider kept failing: {}", id, e.getMessage());
+                    return;
+                }
+                failedBatches.incrementAndGet();
+                job.setFailedRecipients(job.getFailedRecipients() + recipients.size());
+                job.setLastError(truncate(e.getMessage()));
+                log.error("Bulk email job {}: batch starting at user {} rejected: {}", id,
+                        recipients.get(0).getUserId(), e.getMessage());
+            }
+            job.setLastUserId(recipients.get(recipients.size() - 1).getUserId());
+            job.setUpdatedAt(Instant.now());
+            job = bulkEmailJobRepository.save(job);
+        }
+    }
+
+    private void sendWithRetry(BulkEmailJob job, EmailTemplateType type, Map<String, String> variables,
+                               List<BulkRecipient> recipients, String idempotencyKey) throws InterruptedException {
+        List<BatchRecipient> batch = new ArrayList<>(recipients.size());
+        for (BulkRecipient recipient : recipients) {
+            batch.add(new BatchRecipient(recipient.getEmail(), recipientParams(recipient)));
+        }
+        for (int attempt = 1; ; attempt++) {
+            providerRequests.incrementAndGet();
+            job.setProviderRequests(job.getProviderRequests() + 1);
+            try {
+                emailService.sendBatch(type, variables, RECIPIENT_VARIABLES, batch, idempotencyKey);
+                return;
+            } catch (EmailProviderException e) {
+                if (e.isPermanent() || attempt >= maxBatchAttempts) {
+                    throw e;
+                }
+                Duration delay = backoff(attempt);
+                if (e.isThrottled()) {
+                    throttledResponses.incrementAndGet();
+                    if (e.getRetryAfter() != null) {
+                        delay = e.getRetryAfter();
+                    }
+                    // Slow the bucket down too, so the next batches do not hit the limit straight away
+                    rateLimiter.holdOff(delay.toNanos());
+                }
+                retriedBatches.incrementAndGet();
+                log.warn("Bulk email job {}: batch attempt {} failed, retrying in {} ms: {}", job.getId(),
+                        attempt, delay.toMillis(), e.getMessage());
+                TimeUnit.MILLISECONDS.sleep(delay.toMillis());
+            }
+        }
+    }
+
+    private List<BulkRecipient> nextRecipients(BulkEmailJob job, Pageable page) {
+        if (job.getAudience() == BulkAudience.CREDENTIALS_EXPIRING) {
+            return userRepository.findByCredentialsExpiryDateBetweenAndUserIdGreaterThanAndEnabledTrueOrderByUserIdAsc(
+                    job.getWindowStart(), job.getWindowEnd(), job.getLastUserId(), page);
+        }
+        return userRepository.findByUserIdGreaterThanAndEnabledTrueOrderByUserIdAsc(job.getLastUserId(), page);
+    }
+
+    private static Map<String, String> recipientParams(BulkRecipient recipient) {
+        Map<String, String> params = new HashMap<>();
+        params.put("username", recipient.getUserName());
+        if (recipient.getCredentialsExpiryDate() != null) {
+            params.put("expiryDate", recipient.getCredentialsExpiryDate().toString());
+        }
+        return params;
+    }
+
+    private Map<String, String> readVariables(BulkEmailJob job) {
+        if (job.getVariables() == null) {
+            return Map.of();
+        }
+        try {
+            return objectMapper.readValue(job.getVariables(), VARIABLES_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Invalid variables on bulk email job " + job.getId(), e);
+        }
+    }
+
+    private void finish(BulkEmailJob job, BulkEmailJobStatus status, String error) {
+        job.setStatus(status);
+        job.setUpdatedAt(Instant.now());
+        if (error != null) {
+            job.setLastError(truncate(error));
+        }
+        if (status == BulkEmailJobStatus.COMPLETED || status == BulkEmailJobStatus.FAILED) {
+            job.setFinishedAt(Instant.now());
+        }
+        bulkEmailJobRepository.save(job);
+    }
+
+    /**
+     * Exponential backoff with jitter, between half and all of base * 2^(attempt - 1)
+     */
+    private Duration backoff(int attempt) {
+        long delay = backoffBaseMs << Math.min(attempt - 1, 20);
+        return Duration.ofMillis(delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1));
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() <= 1000 ? message : message.substring(0, 1000);
+    }
+
+    public BulkEmailStats getStats() {
+        return new BulkEmailStats(recipientsPerSecond, burst, providerRequests.get(), throttledResponses.get(),
+                retriedBatches.get(), failedBatches.get(), TimeUnit.NANOSECONDS.toMillis(throttleWaitNanos.get()));
+    }
+
+    /**
+     * Sender counters since startup
+     */
+    public record BulkEmailStats(
+            double configuredRecipientsPerSecond,
+            double burst,
+            long providerRequests,
+            long throttledResponses,
+            long retriedBatches,
+            long failedBatches,
+            long rateLimitWaitMs
+    ) {
+    }
+}
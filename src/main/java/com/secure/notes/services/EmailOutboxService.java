@@ -0,0 +1,280 @@
+package com.secure.notes.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.secure.notes.models.EmailOutboxMessage;
+import com.secure.notes.models.EmailOutboxStatus;
+import com.secure.notes.repositories.EmailOutboxRepository;
+import com.secure.notes.util.EmailService;
+import com.secure.notes.util.EmailTemplateType;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import sendinblue.ApiException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transactional outbox for email. Callers queue a message in their own transaction,
+ * so it is stored if and only if their data is. A scheduled worker claims due
+ * messages and sends them in parallel, retrying failures with exponential backoff
+ * until they are sent or reach the dead-letter state.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EmailOutboxService {
+
+    private static final TypeReference<Map<String, String>> VARIABLES_TYPE = new TypeReference<>() {
+    };
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final EmailService emailService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${email.outbox.parallelism:4}")
+    private int parallelism;
+
+    @Value("${email.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${email.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${email.outbox.backoff-base-ms:5000}")
+    private long backoffBaseMs;
+
+    @Value("${email.outbox.backoff-max-ms:3600000}")
+    private long backoffMaxMs;
+
+    @Value("${email.outbox.lock-seconds:120}")
+    private long lockSeconds;
+
+    @Value("${email.outbox.retention-days:7}")
+    private long retentionDays;
+
+    private ExecutorService senders;
+
+    @PostConstruct
+    void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        senders = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "email-outbox-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        senders.shutdown();
+        senders.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Queue the password reset email; must run inside the transaction that saves the token.
+     * The key uses the token's row id, never the token itself: keys are kept, logged and
+     * sent to Brevo long after the link in the payload has been discarded.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueuePasswordReset(String to, String resetUrl, Long resetTokenId) {
+        String template = EmailTemplateType.PASSWORD_RESET.getTemplateName();
+        enqueue(template + ":" + resetTokenId, template, to, Map.of("resetUrl", resetUrl));
+    }
+
+    /**
+     * Queue an email in the caller's transaction. The template is an EmailTemplateType
+     * name. A message whose idempotency key is already queued or sent is not queued again.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(String idempotencyKey, String template, String recipient, Map<String, String> variables) {
+        if (emailOutboxRepository.existsByIdempotencyKey(idempotencyKey)) {
+            log.debug("Email {} already queued, skipping", idempotencyKey);
+            return;
+        }
+        try {
+            emailOutboxRepository.save(new EmailOutboxMessage(idempotencyKey, template, recipient,
+                    objectMapper.writeValueAsString(variables)));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Could not queue email: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Claim due messages and send them on the sender pool. Waits for the batch so
+     * polls never overlap; the claim keeps several instances from sending the same row.
+     * The wait holds one scheduler thread, so spring.task.scheduling.pool.size leaves
+     * room for the other scheduled jobs.
+     */
+    @Scheduled(fixedDelayString = "${email.outbox.poll-interval-ms:1000}")
+    public void poll() {
+        Instant now = Instant.now();
+        int released = emailOutboxRepository.releaseExpiredLocks(now,
+                EmailOutboxStatus.PENDING, EmailOutboxStatus.SENDING);
+        if (released > 0) {
+            log.warn("Released {} outbox emails whose worker did not finish", released);
+        }
+
+        List<EmailOutboxMessage> due = emailOutboxRepository
+                .findByStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(
+                        EmailOutboxStatus.PENDING, now, PageRequest.of(0, batchSize));
+        List<CompletableFuture<Void>> sends = new ArrayList<>(due.size());
+        // Microseconds, as stored by DATETIME(6), so the value matches when the outcome is written back
+        Instant lockedUntil = now.plusSeconds(lockSeconds).truncatedTo(ChronoUnit.MICROS);
+        for (EmailOutboxMessage message : due) {
+            int claimed = emailOutboxRepository.claim(message.getId(), lockedUntil,
+                    EmailOutboxStatus.PENDING, EmailOutboxStatus.SENDING);
+            if (claimed == 1) {
+                message.setStatus(EmailOutboxStatus.SENDING);
+                message.setLockedUntil(lockedUntil);
+                sends.add(CompletableFuture.runAsync(() -> deliver(message), senders));
+            }
+        }
+        CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).join();
+    }
+
+    /**
+     * Send a claimed message and record the outcome. The message is a detached copy, so
+     * the outcome is written with a conditional update against the claim rather than
+     * a save, which would overwrite a row another worker has since claimed.
+     */
+    void deliver(EmailOutboxMessage message) {
+        Instant claimedUntil = message.getLockedUntil();
+        message.setAttempts(message.getAttempts() + 1);
+        message.setLockedUntil(null);
+        try {
+            message.setProviderMessageId(send(message));
+            message.setStatus(EmailOutboxStatus.SENT);
+            message.setSentAt(Instant.now());
+            message.setLastError(null);
+            // The variables can hold secrets such as reset links; they are not needed any more
+            message.setPayload(null);
+        } catch (Exception e) {
+            message.setLastError(truncate(rootMessage(e)));
+            if (message.getAttempts() >= maxAttempts || isPermanent(e)) {
+                message.setStatus(EmailOutboxStatus.DEAD);
+                // Dead rows are kept for inspection; the variables (reset links) are not
+                message.setPayload(null);
+                log.error("Giving up on email {} to {} after {} attempts: {}", message.getIdempotencyKey(),
+                        message.getRecipient(), message.getAttempts(), message.getLastError());
+            } else {
+                Duration delay = backoff(message.getAttempts());
+                message.setStatus(EmailOutboxStatus.PENDING);
+                message.setNextAttemptAt(Instant.now().plus(delay));
+                log.warn("Email {} failed (attempt {}), retrying in {} s: {}", message.getIdempotencyKey(),
+                        message.getAttempts(), delay.toSeconds(), message.getLastError());
+            }
+        }
+        int recorded = emailOutboxRepository.recordAttempt(message.getId(), claimedUntil,
+                EmailOutboxStatus.SENDING, message.getStatus(), message.getAttempts(), message.getNextAttemptAt(),
+                message.getLastError(), message.getProviderMessageId(), message.getSentAt(), message.getPayload());
+        if (recorded == 0) {
+            log.warn("Email {} was reclaimed after its lock expired; outcome of this attempt not recorded",
+                    message.getIdempotencyKey());
+        }
+    }
+
+    private String send(EmailOutboxMessage message) throws JsonProcessingException {
+        Map<String, String> variables = objectMapper.readValue(message.getPayload(), VARIABLES_TYPE);
+        return emailService.send(EmailTemplateType.fromTemplateName(message.getTemplate()), message.getRecipient(),
+                variables, message.getIdempotencyKey());
+    }
+
+    /**
+     * Exponential backoff with jitter: a random delay between half and all of
+     * base * 2^(attempts - 1), capped at the maximum
+     */
+    Duration backoff(int attempts) {
+        long delay = backoffMaxMs;
+        if (attempts - 1 < 40) {
+            delay = Math.min(backoffMaxMs, backoffBaseMs << (attempts - 1));
+        }
+        return Duration.ofMillis(delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1));
+    }
+
+    /**
+     * Rejected by the provider as invalid (4xx other than 429); retrying will not help
+     */
+    private boolean isPermanent(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ApiException apiException) {
+                int code = apiException.getCode();
+                return code >= 400 && code < 500 && code != 429;
+            }
+            if (cause instanceof IllegalArgumentException || cause instanceof JsonProcessingException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null) {
+            root = root.getCause();
+        }
+        return root.getMessage() != null ? root.getMessage() : root.getClass().getSimpleName();
+    }
+
+    private static String truncate(String message) {
+        return message.length() <= 1000 ? message : message.substring(0, 1000);
+    }
+
+    /**
+     * Drop sent messages past the retention period. Dead messages are kept for inspection.
+     */
+    @Scheduled(cron = "0 45 3 * * *")
+    public void purgeSent() {
+        int deleted = emailOutboxRepository.deleteByStatusCreatedBefore(EmailOutboxStatus.SENT,
+                Instant.now().minus(Duration.ofDays(retentionDays)));
+        log.info("Purged {} sent outbox emails", deleted);
+    }
+
+    /**
+     * Put a dead message back in the queue with a fresh attempt budget. Only messages
+     * that still have their variables can be sent again; a message that died without
+     * them has to be queued afresh by whatever produced it.
+     * @return false if there is no retryable dead message with this id
+     */
+    @Transactional
+    public boolean retryDead(Long id) {
+        return emailOutboxRepository.findById(id)
+                .filter(message -> message.getStatus() == EmailOutboxStatus.DEAD && message.getPayload() != null)
+                .map(message -> {
+                    message.setStatus(EmailOutboxStatus.PENDING);
+                    message.setAttempts(0);
+                    message.setNextAttemptAt(Instant.now());
+                    emailOutboxRepository.save(message);
+                    return true;
+                })
+                .orElse(false);
+    }
+
+    public Map<EmailOutboxStatus, Long> getStatusCounts() {
+        Map<EmailOutboxStatus, Long> counts = new EnumMap<>(EmailOutboxStatus.class);
+        for (EmailOutboxStatus status : EmailOutboxStatus.values()) {
+            counts.put(status, emailOutboxRepository.countByStatus(status));
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,16 @@
+package com.secure.notes.services;
+
+import com.secure.notes.dtos.NoteSearchResult;
+import com.secure.notes.models.Note;
+
+import java.util.List;
+
+public interface NoteSearchService {
+    void indexNote(Note note);
+
+    void removeNote(Long noteId);
+
+    List<NoteSearchResult> search(String ownerUsername, String query, int limit);
+
+    int rebuildIndex();
+}
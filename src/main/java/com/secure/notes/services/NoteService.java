@@ -1,8 +1,11 @@
 package com.secure.notes.services;
 
+import com.secure.notes.dtos.NotePageResponse;
+import com.secure.notes.dtos.NoteSummaryPageResponse;
 import com.secure.notes.models.Note;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface NoteService {
 
@@ -14,4 +17,12 @@ public interface NoteService {
 
     List<Note> getNotesforUser(String username);
 
+    NotePageResponse getNotesPageForUser(String username, Long afterId, int size);
+
+    NoteSummaryPageResponse getNoteSummariesForUser(String username, Long afterId, int size, int previewLength);
+
+    Note getNoteForUser(Long noteId, String username);
+
+    void streamNotesForUser(String username, Consumer<Note> consumer);
+
 }
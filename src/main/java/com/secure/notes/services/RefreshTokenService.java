@@ -0,0 +1,181 @@
+package com.secure.notes.services;
+
+import com.secure.notes.exceptions.InvalidRefreshTokenException;
+import com.secure.notes.models.RefreshToken;
+import com.secure.notes.models.User;
+import com.secure.notes.repositories.RefreshTokenRepository;
+import com.secure.notes.repositories.UserRepository;
+import com.secure.notes.security.jwt.JwtUtils;
+import com.secure.notes.security.jwt.RevokedTokenIndex;
+import com.secure.notes.security.services.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Login sessions made of a short-lived access token and a refresh token.
+ *
+ * A refresh token is 256 random bits; only its SHA-256 is stored. Each exchange
+ * uses the token up and returns a new one in the same family (one family per
+ * login). A used token presented again means it was copied: the whole family is
+ * revoked, so neither the thief nor the user can continue without signing in.
+ *
+ * The exception is a token presented again within a few seconds of its first use
+ * (spring.app.refreshTokenReuseGraceMs): that is two tabs refreshing at the same
+ * moment, and the second one gets its own new token in the same family. A copy
+ * replayed inside that window is not detected.
+ *
+ * Revoked sessions and access tokens go into the RevokedTokenIndex, so requests
+ * carrying their access tokens are refused at once and without a DB lookup.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RefreshTokenService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final int TOKEN_BYTES = 32;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+    private final JwtUtils jwtUtils;
+    private final RevokedTokenIndex revokedTokenIndex;
+
+    @Value("${spring.app.refreshTokenExpirationMs:1209600000}")
+    private long refreshTokenExpirationMs;
+
+    @Value("${spring.app.refreshTokenReuseGraceMs:10000}")
+    private long reuseGraceMs;
+
+    /**
+     * Start a session after a successful login
+     */
+    @Transactional
+    public IssuedTokens issue(UserDetailsImpl userDetails) {
+        String familyId = UUID.randomUUID().toString();
+        String refreshToken = createRefreshToken(userDetails.getId(), familyId);
+        return new IssuedTokens(jwtUtils.generateAccessToken(userDetails, familyId), refreshToken);
+    }
+
+    /**
+     * Exchange a refresh token for a new access token and a new refresh token.
+     * The user is read again, so the new access token has the current roles and a
+     * locked or disabled account cannot refresh.
+     */
+    @Transactional(noRollbackFor = InvalidRefreshTokenException.class)
+    public IssuedTokens rotate(String rawToken) {
+        if (rawToken == null || rawToken.isBlank()) {
+            throw new InvalidRefreshTokenException("Invalid refresh token");
+        }
+        RefreshToken token = refreshTokenRepository.findByTokenHash(hash(rawToken))
+                .orElseThrow(() -> new InvalidRefreshTokenException("Invalid refresh token"));
+
+        Instant now = Instant.now();
+        if (token.isRevoked()) {
+            throw new InvalidRefreshTokenException("Session has ended, please sign in again");
+        }
+        Instant usedAt = token.getUsedAt();
+        if (usedAt != null || refreshTokenRepository.markUsed(token.getId(), now) != 1) {
+            // Lost the update to a concurrent request if usedAt is null, so that use was just now
+            if (reuseGraceMs <= 0 || (usedAt != null && usedAt.plusMillis(reuseGraceMs).isBefore(now))) {
+                // Used well before: someone else holds a copy
+                log.warn("Refresh token reuse for user {}, revoking session {}", token.getUserId(), token.getFamilyId());
+                revokeFamily(token.getFamilyId());
+                throw new InvalidRefreshTokenException("Session has ended, please sign in again");
+            }
+            log.debug("Concurrent refresh for user {} in session {}", token.getUserId(), token.getFamilyId());
+        }
+        if (token.getExpiresAt().isBefore(now)) {
+            throw new InvalidRefreshTokenException("Session has expired, please sign in again");
+        }
+
+        User user = userRepository.findById(token.getUserId()).orElse(null);
+        if (user == null || !user.isEnabled() || !user.isAccountNonLocked()
+                || !user.isAccountNonExpired() || !user.isCredentialsNonExpired()) {
+            revokeFamily(token.getFamilyId());
+            throw new InvalidRefreshTokenException("Account is not active");
+        }
+
+        UserDetailsImpl userDetails = UserDetailsImpl.build(user);
+        String refreshToken = createRefreshToken(user.getUserId(), token.getFamilyId());
+        return new IssuedTokens(jwtUtils.generateAccessToken(userDetails, token.getFamilyId()), refreshToken);
+    }
+
+    /**
+     * Logout: revoke the presented access token and, if it belongs to a session, the session
+     */
+    @Transactional
+    public void endSession(Claims accessTokenClaims) {
+        if (accessTokenClaims.getExpiration() != null) {
+            revokedTokenIndex.revoke(accessTokenClaims.getId(), accessTokenClaims.getExpiration().getTime());
+        }
+        String sessionId = accessTokenClaims.get(JwtUtils.SESSION_CLAIM, String.class);
+        if (sessionId != null) {
+            revokeFamily(sessionId);
+        }
+    }
+
+    /**
+     * Revoke every session of the user, e.g. after a password change or when the account is locked
+     */
+    @Transactional
+    public void revokeAllForUser(Long userId) {
+        List<String> familyIds = refreshTokenRepository.findActiveFamilyIds(userId, Instant.now());
+        refreshTokenRepository.revokeAllForUser(userId);
+        long accessTokensExpireAt = System.currentTimeMillis() + jwtUtils.getAccessTokenExpirationMs();
+        familyIds.forEach(familyId -> revokedTokenIndex.revoke(familyId, accessTokensExpireAt));
+    }
+
+    private void revokeFamily(String familyId) {
+        refreshTokenRepository.revokeFamily(familyId);
+        // Access tokens already issued for the session stay valid for at most one access token lifetime
+        revokedTokenIndex.revoke(familyId, System.currentTimeMillis() + jwtUtils.getAccessTokenExpirationMs());
+    }
+
+    private String createRefreshToken(Long userId, String familyId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        RANDOM.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        Instant now = Instant.now();
+        refreshTokenRepository.save(new RefreshToken(hash(rawToken), userId, familyId, now,
+                now.plusMillis(refreshTokenExpirationMs)));
+        return rawToken;
+    }
+
+    /**
+     * Delete refresh tokens past their expiry
+     * @return Number of deleted records
+     */
+    public int purgeExpired() {
+        return refreshTokenRepository.deleteExpired(Instant.now());
+    }
+
+    public long countActive() {
+        return refreshTokenRepository.countActive(Instant.now());
+    }
+
+    static String hash(String rawToken) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(rawToken.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public record IssuedTokens(String accessToken, String refreshToken) {
+    }
+}
@@ -1,6 +1,8 @@
 package com.secure.notes.services;
 
 import com.secure.notes.repositories.PasswordResetTokenRepository;
+import com.secure.notes.security.jwt.RevokedTokenIndex;
+import com.secure.notes.security.jwt.TokenRevocationList;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -19,6 +21,12 @@ public class TokenCleanupService {
 
     private final PasswordResetTokenRepository passwordResetTokenRepository;
 
+    private final TokenRevocationList tokenRevocationList;
+
+    private final RevokedTokenIndex revokedTokenIndex;
+
+    private final RefreshTokenService refreshTokenService;
+
     /**
      * Scheduled task that runs every hour to clean up expired and used tokens.
      * 
@@ -54,6 +62,40 @@ public class TokenCleanupService {
         }
     }
     
+    /**
+     * Drop JWT revocation watermarks that are older than the token lifetime.
+     * Runs on the same schedule as the password reset token cleanup.
+     */
+    @Scheduled(cron = "0 0/30 * * * *")
+    public void purgeRevocationWatermarks() {
+        int removed = tokenRevocationList.purgeExpired();
+        log.info("Purged {} JWT revocation watermarks, {} remaining", removed, tokenRevocationList.size());
+    }
+
+    /**
+     * Drop revoked token and session ids whose access tokens have all expired, and
+     * rebuild the Bloom filter so it only holds live ids.
+     * Runs on the same schedule as the password reset token cleanup.
+     */
+    @Scheduled(cron = "0 0/30 * * * *")
+    public void compactRevokedTokenIndex() {
+        int removed = revokedTokenIndex.compact();
+        log.info("Compacted revoked token index: removed {}, {} remaining", removed, revokedTokenIndex.size());
+    }
+
+    /**
+     * Delete refresh tokens past their expiry, used and revoked ones included
+     */
+    @Scheduled(cron = "0 0/30 * * * *")
+    public void purgeExpiredRefreshTokens() {
+        try {
+            int deleted = refreshTokenService.purgeExpired();
+            log.info("Deleted {} expired refresh tokens", deleted);
+        } catch (Exception e) {
+            log.error("Error occurred during refresh token cleanup: {}", e.getMessage(), e);
+        }
+    }
+
     /**
      * Optional: Separate cleanup for only expired tokens
      * This method is not scheduled by default but can be called manually if needed
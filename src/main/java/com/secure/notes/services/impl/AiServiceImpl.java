@@ -1,22 +1,76 @@
 package com.secure.notes.services.impl;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.secure.notes.exceptions.AiCapacityExceededException;
+import com.secure.notes.services.AiResultCache;
 import com.secure.notes.services.AiService;
+import com.secure.notes.util.AsyncPermits;
+import com.secure.notes.util.ChatRequestTemplate;
+import com.secure.notes.util.TextChunker;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
 
 @Service
 public class AiServiceImpl implements AiService {
 
     private static final Logger logger = LoggerFactory.getLogger(AiServiceImpl.class);
 
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_TYPE =
+            new ParameterizedTypeReference<>() {
+            };
+
+    private static final String PROMPT_BEFORE_TEXT =
+            "Convert the following text into Hinglish (Hindi words in English script).\n" +
+                    "Rules:\n" +
+                    "- Output ONLY the converted sentence. Nothing else.\n" +
+                    "- Do not add any explanation or notes.\n" +
+                    "- Do not add quotation marks around the output.\n\n" +
+                    "Text: ";
+    private static final String PROMPT_AFTER_TEXT = "\nHinglish:";
+
+    // Below this a chunk rejected as too large is not split any further
+    private static final int MIN_SPLIT_CHARS = 200;
+
     private final WebClient webClient;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
@@ -26,29 +80,451 @@ public class AiServiceImpl implements AiService {
     @Value("${spring.ai.openai.chat.options.temperature:0.7}")
     private double temperature;
 
+    @Value("${ai.request-timeout-ms:30000}")
+    private long requestTimeoutMs;
+
+    @Value("${ai.chunk.max-chars:3000}")
+    private int chunkMaxChars;
+
+    @Value("${ai.chunk.parallelism:4}")
+    private int chunkParallelism;
+
+    @Value("${ai.chunk.max-retries:2}")
+    private int chunkMaxRetries;
+
+    @Value("${ai.log.sample-rate:0.01}")
+    private double logSampleRate;
+
+    // Request bodies serialized once at startup; see init()
+    private ChatRequestTemplate requestTemplate;
+    private ChatRequestTemplate streamRequestTemplate;
+
+    @Value("${ai.batch.enabled:false}")
+    private boolean batchEnabled;
+
+    @Value("${ai.batch.window-ms:20}")
+    private long batchWindowMs;
+
+    @Value("${ai.batch.max-items:8}")
+    private int batchMaxItems;
+
+    @Value("${ai.batch.max-text-chars:500}")
+    private int batchMaxTextChars;
+
+    // Caps upstream calls in flight. A conversion is admitted only if it can take a permit
+    // for its first call, otherwise the caller gets 429; further calls of an admitted
+    // conversion (other chunks, retries, fallbacks) queue for a permit of their own.
+    private final AsyncPermits inFlight;
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder upstreamCalls = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedItems = new LongAdder();
+
+    // Conversions in progress by cache key, so identical requests share one upstream call
+    private final ConcurrentHashMap<String, SharedConversion> pendingConversions = new ConcurrentHashMap<>();
+
+    private final Object batchLock = new Object();
+    private List<BatchItem> openBatch = new ArrayList<>();
+
+    private final AiResultCache aiResultCache;
+
     public AiServiceImpl(
             @Value("${spring.ai.openai.base-url}") String baseUrl,
-            @Value("${spring.ai.openai.api-key}") String apiKey) {
-        this.webClient = WebClient.builder()
+            @Value("${spring.ai.openai.api-key}") String apiKey,
+            @Value("${ai.max-concurrent-requests:16}") int maxConcurrentRequests,
+            @Value("${ai.http.max-connections:32}") int maxConnections,
+            AiResultCache aiResultCache) {
+        this.aiResultCache = aiResultCache;
+        this.inFlight = new AsyncPermits(maxConcurrentRequests);
+        this.webClient = buildWebClient(baseUrl, apiKey, maxConnections);
+    }
+
+    @PostConstruct
+    void init() {
+        requestTemplate = ChatRequestTemplate.of(model, temperature, false, PROMPT_BEFORE_TEXT, PROMPT_AFTER_TEXT);
+        streamRequestTemplate = ChatRequestTemplate.of(model, temperature, true, PROMPT_BEFORE_TEXT, PROMPT_AFTER_TEXT);
+    }
+
+    /**
+     * WebClient on a dedicated connection pool, so provider connections are kept alive
+     * and reused instead of sharing the global default pool
+     */
+    private static WebClient buildWebClient(String baseUrl, String apiKey, int maxConnections) {
+        ConnectionProvider pool = ConnectionProvider.builder("ai-provider")
+                .maxConnections(maxConnections)
+                // Close idle connections before the provider's load balancer drops them
+                .maxIdleTime(Duration.ofSeconds(30))
+                .maxLifeTime(Duration.ofMinutes(5))
+                .evictInBackground(Duration.ofSeconds(30))
+                .pendingAcquireTimeout(Duration.ofSeconds(10))
+                .build();
+        HttpClient httpClient = HttpClient.create(pool)
+                .keepAlive(true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5000);
+        if (baseUrl != null && baseUrl.startsWith("https")) {
+            // h2 is negotiated over ALPN; providers without it get HTTP/1.1
+            httpClient = httpClient.secure().protocol(HttpProtocol.H2, HttpProtocol.HTTP11);
+        }
+        return WebClient.builder()
                 .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
                 .defaultHeader("Authorization", "Bearer " + apiKey)
                 .build();
     }
 
     @Override
-    public String convertToHinglish(String text) {
-        // Prompt for conversion
-        String prompt = "Convert the following text into Hinglish (Hindi words in English script).\n" +
+    public CompletableFuture<String> convertToHinglish(String text) {
+        String cacheKey = AiResultCache.key(model, temperature, text);
+        String cached = aiResultCache.get(cacheKey);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        // Identical request already on its way: share its result instead of calling again
+        SharedConversion pending = pendingConversions.get(cacheKey);
+        if (pending != null) {
+            CompletableFuture<String> shared = pending.join();
+            if (shared != null) {
+                coalesced.increment();
+                return shared;
+            }
+        }
+
+        if (!inFlight.tryAcquire()) {
+            rejected.increment();
+            throw new AiCapacityExceededException(
+                    "Too many AI conversions in progress, please retry shortly");
+        }
+        AdmissionPermit admission = new AdmissionPermit();
+
+        SharedConversion conversion = new SharedConversion();
+        CompletableFuture<String> result = conversion.join();
+        pending = pendingConversions.putIfAbsent(cacheKey, conversion);
+        if (pending != null) {
+            CompletableFuture<String> shared = pending.join();
+            if (shared != null) {
+                admission.giveBack();
+                coalesced.increment();
+                return shared;
+            }
+            // Its callers all cancelled just now; this conversion takes its place
+            pendingConversions.replace(cacheKey, pending, conversion);
+        }
+
+        long startedAt = System.currentTimeMillis();
+        conversion.start(convert(text, admission)
+                .map(String::trim)
+                .doOnNext(output -> aiResultCache.put(cacheKey, model, output,
+                        System.currentTimeMillis() - startedAt))
+                .doOnError(e -> logger.error("Groq API call failed: {}", e.getMessage(), e))
+                // Timeouts and I/O errors are checked; surface them like the API errors
+                .onErrorMap(e -> !(e instanceof RuntimeException),
+                        e -> new RuntimeException("Groq API call failed: " + e.getMessage(), e))
+                // Every call releases its own permit; this covers an admission permit no call took
+                .doFinally(signal -> {
+                    pendingConversions.remove(cacheKey, conversion);
+                    admission.giveBack();
+                }));
+        return result;
+    }
+
+    /**
+     * Short texts join the open micro-batch; longer ones are chunked and converted on their own
+     */
+    private Mono<String> convert(String text, AdmissionPermit admission) {
+        if (batchEnabled && !text.isBlank() && text.length() <= batchMaxTextChars) {
+            return Mono.defer(() -> {
+                // The batch call is shared and queues for its own permit
+                admission.giveBack();
+                BatchItem item = new BatchItem(text.strip(), new CompletableFuture<>());
+                addToBatch(item);
+                return Mono.fromFuture(item.result());
+            });
+        }
+
+        List<String> chunks = TextChunker.split(text, chunkMaxChars);
+        if (chunks.size() > 1) {
+            logger.info("Converting {} chars in {} chunks", text.length(), chunks.size());
+        }
+        return Flux.fromIterable(chunks)
+                // Chunks run concurrently but are emitted in input order
+                .flatMapSequential(piece -> convertPiece(piece, admission), chunkParallelism)
+                .collect(Collectors.joining());
+    }
+
+    /**
+     * Add a text to the open batch. The batch is sent when it is full or when the
+     * window that started with its first item has passed, whichever comes first.
+     */
+    private void addToBatch(BatchItem item) {
+        List<BatchItem> full = null;
+        synchronized (batchLock) {
+            List<BatchItem> batch = openBatch;
+            batch.add(item);
+            if (batch.size() == 1) {
+                Schedulers.parallel().schedule(() -> sendOnTimer(batch), batchWindowMs, TimeUnit.MILLISECONDS);
+            }
+            if (batch.size() >= batchMaxItems) {
+                full = batch;
+                openBatch = new ArrayList<>();
+            }
+        }
+        if (full != null) {
+            sendBatch(full);
+        }
+    }
+
+    private void sendOnTimer(List<BatchItem> batch) {
+        synchronized (batchLock) {
+            if (openBatch != batch) {
+                // Already sent because it filled up
+                return;
+            }
+            openBatch = new ArrayList<>();
+        }
+        sendBatch(batch);
+    }
+
+    /**
+     * One upstream call for the whole batch, answers handed back by position. If the
+     * batch call fails or the answer does not line up with the input, every item is
+     * converted on its own instead.
+     */
+    private void sendBatch(List<BatchItem> batch) {
+        if (batch.size() == 1) {
+            BatchItem item = batch.get(0);
+            convertChunk(item.text(), null).subscribe(item.result()::complete, item.result()::completeExceptionally);
+            return;
+        }
+        batches.increment();
+        batchedItems.add(batch.size());
+        List<String> texts = batch.stream().map(BatchItem::text).toList();
+        withPermit(null, callUpstreamBatch(texts))
+                .retryWhen(transientRetry())
+                .subscribe(outputs -> {
+                    for (int i = 0; i < batch.size(); i++) {
+                        batch.get(i).result().complete(outputs.get(i));
+                    }
+                }, e -> {
+                    logger.warn("Batched conversion of {} texts failed, converting them one by one: {}",
+                            batch.size(), e.getMessage());
+                    for (BatchItem item : batch) {
+                        convertChunk(item.text(), null)
+                                .subscribe(item.result()::complete, item.result()::completeExceptionally);
+                    }
+                });
+    }
+
+    /**
+     * Convert one chunk and put back the whitespace that separated it from the next one
+     */
+    private Mono<String> convertPiece(String piece, AdmissionPermit admission) {
+        if (piece.isBlank()) {
+            return Mono.just(piece);
+        }
+        String trailing = piece.substring(piece.stripTrailing().length());
+        return convertChunk(piece.strip(), admission).map(output -> output + trailing);
+    }
+
+    /**
+     * One upstream call, retried on its own when the failure is transient. A chunk the
+     * provider rejects as too large is split in half and converted again. Each attempt
+     * holds a permit only while its call is in flight, not during the retry backoff.
+     */
+    private Mono<String> convertChunk(String chunk, AdmissionPermit admission) {
+        return withPermit(admission, callUpstream(chunk))
+                .retryWhen(transientRetry())
+                .onErrorResume(e -> isTooLarge(e) && chunk.length() >= MIN_SPLIT_CHARS, e -> {
+                    logger.warn("Chunk of {} chars too large for the model, splitting it", chunk.length());
+                    return Flux.fromIterable(TextChunker.split(chunk, chunk.length() / 2 + 1))
+                            .concatMap(piece -> convertPiece(piece, admission))
+                            .collect(Collectors.joining());
+                });
+    }
+
+    /**
+     * Run one upstream call under a permit: the conversion's admission permit if no call
+     * has taken it yet, otherwise one from the queue. The permit is released when the
+     * call ends, fails or is cancelled, also while it is still waiting in the queue.
+     */
+    private <T> Mono<T> withPermit(AdmissionPermit admission, Mono<T> call) {
+        return Mono.defer(() -> {
+            if (admission != null && admission.take()) {
+                return call.doFinally(signal -> inFlight.release());
+            }
+            CompletableFuture<Void> permit = inFlight.acquire();
+            return Mono.fromFuture(permit, true)
+                    .then(call)
+                    .doFinally(signal -> {
+                        // Cancelling only fails once the permit was granted
+                        if (!permit.cancel(false)) {
+                            inFlight.release();
+                        }
+                    });
+        });
+    }
+
+    private Mono<String> callUpstream(String text) {
+        byte[] requestBody = requestTemplate.render(text);
+        boolean sampled = sampleForLog();
+        if (sampled) {
+            logger.debug("Groq request body: {}", new String(requestBody, StandardCharsets.UTF_8));
+        }
+
+        return webClient.post()
+                .uri("/v1/chat/completions")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(requestBody)
+                .retrieve()
+                .onStatus(
+                        status -> status.is4xxClientError() || status.is5xxServerError(),
+                        this::upstreamError
+                )
+                .bodyToMono(String.class)
+                .timeout(Duration.ofMillis(requestTimeoutMs))
+                .doOnSubscribe(subscription -> upstreamCalls.increment())
+                .map(result -> {
+                    if (sampled) {
+                        logger.debug("Groq response: {}", result);
+                    }
+                    return extractContent(result);
+                });
+    }
+
+    private Mono<List<String>> callUpstreamBatch(List<String> texts) {
+        String requestBody = buildBatchRequestBody(texts);
+        boolean sampled = sampleForLog();
+        if (sampled) {
+            logger.debug("Groq batch request body: {}", requestBody);
+        }
+
+        return webClient.post()
+                .uri("/v1/chat/completions")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(requestBody)
+                .retrieve()
+                .onStatus(
+                        status -> status.is4xxClientError() || status.is5xxServerError(),
+                        this::upstreamError
+                )
+                .bodyToMono(String.class)
+                .timeout(Duration.ofMillis(requestTimeoutMs))
+                .doOnSubscribe(subscription -> upstreamCalls.increment())
+                .map(result -> {
+                    if (sampled) {
+                        logger.debug("Groq batch response: {}", result);
+                    }
+                    return extractBatchItems(result, texts.size());
+                });
+    }
+
+    private Retry transientRetry() {
+        return Retry.backoff(chunkMaxRetries, Duration.ofMillis(250))
+                .filter(AiServiceImpl::isRetryable)
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+
+    private Mono<UpstreamException> upstreamError(ClientResponse clientResponse) {
+        return clientResponse.bodyToMono(String.class)
+                .defaultIfEmpty("")
+                .map(errorBody -> {
+                    logger.error("Groq API error - status: {}, body: {}",
+                            clientResponse.statusCode(), errorBody);
+                    return new UpstreamException(clientResponse.statusCode().value(), errorBody);
+                });
+    }
+
+    private static boolean isRetryable(Throwable e) {
+        if (e instanceof UpstreamException upstream) {
+            return upstream.status == 429 || upstream.status >= 500;
+        }
+        // Timeouts and connection failures
+        return e instanceof TimeoutException || e instanceof WebClientRequestException;
+    }
+
+    private static boolean isTooLarge(Throwable e) {
+        return e instanceof UpstreamException upstream
+                && (upstream.status == 413 || upstream.body.contains("context_length_exceeded"));
+    }
+
+    @Override
+    public Flux<String> streamHinglish(String text) {
+        String cacheKey = AiResultCache.key(model, temperature, text);
+        String cached = aiResultCache.get(cacheKey);
+        if (cached != null) {
+            return Flux.just(cached);
+        }
+
+        if (!inFlight.tryAcquire()) {
+            rejected.increment();
+            throw new AiCapacityExceededException(
+                    "Too many AI conversions in progress, please retry shortly");
+        }
+
+        byte[] requestBody = streamRequestTemplate.render(text);
+        long startedAt = System.currentTimeMillis();
+        // Only the converted output is kept (for the cache), never the raw upstream stream
+        StringBuilder output = new StringBuilder();
+        // A stream the provider cuts off also just completes; only one that ended with [DONE] is whole
+        AtomicBoolean done = new AtomicBoolean();
+
+        return webClient.post()
+                .uri("/v1/chat/completions")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .bodyValue(requestBody)
+                .retrieve()
+                .onStatus(
+                        status -> status.is4xxClientError() || status.is5xxServerError(),
+                        this::upstreamError
+                )
+                .bodyToFlux(SSE_TYPE)
+                .mapNotNull(ServerSentEvent::data)
+                .takeWhile(data -> {
+                    if ("[DONE]".equals(data)) {
+                        done.set(true);
+                        return false;
+                    }
+                    return true;
+                })
+                .handle((String data, SynchronousSink<String> sink) -> {
+                    String delta = extractDelta(data);
+                    if (delta != null && !delta.isEmpty()) {
+                        sink.next(delta);
+                    }
+                })
+                .doOnNext(output::append)
+                .doOnComplete(() -> {
+                    if (done.get()) {
+                        aiResultCache.put(cacheKey, model, output.toString().trim(),
+                                System.currentTimeMillis() - startedAt);
+                    } else {
+                        logger.warn("Groq stream ended without [DONE] after {} chars, not caching it", output.length());
+                    }
+                })
+                .doOnError(e -> logger.error("Groq streaming call failed: {}", e.getMessage(), e))
+                .doOnCancel(() -> logger.debug("Client went away, cancelled Groq stream"))
+                // Release on completion, error and client cancellation alike
+                .doFinally(signal -> inFlight.release());
+    }
+
+    private String buildBatchRequestBody(List<String> texts) {
+        ArrayNode items = objectMapper.createArrayNode();
+        texts.forEach(items::add);
+
+        String prompt = "Convert each item of the following JSON array into Hinglish (Hindi words in English script).\n" +
                 "Rules:\n" +
-                "- Output ONLY the converted sentence. Nothing else.\n" +
-                "- Do not add any explanation or notes.\n" +
-                "- Do not add quotation marks around the output.\n\n" +
-                "Text: " + text + "\nHinglish:";
+                "- Respond with a JSON object of the form {\"items\": [...]} and nothing else.\n" +
+                "- \"items\" must hold exactly " + texts.size() + " strings, in the same order as the input.\n" +
+                "- Each string is ONLY the converted text, without explanation or quotation marks.\n\n" +
+                "Items:\n" + items;
 
         ObjectNode body = objectMapper.createObjectNode();
         body.put("model", model);
         body.put("temperature", temperature);
-        body.put("stream", false);
+        body.putObject("response_format").put("type", "json_object");
 
         ArrayNode messages = objectMapper.createArrayNode();
         ObjectNode userMessage = objectMapper.createObjectNode();
@@ -58,40 +534,173 @@ public class AiServiceImpl implements AiService {
 
         body.set("messages", messages);
 
-        String requestBody = body.toString();
-        logger.info("Groq request body: {}", requestBody);
+        return body.toString();
+    }
 
+    /**
+     * Pull choices[0].delta.content out of one stream chunk with the streaming parser,
+     * without building a tree for every chunk
+     */
+    private String extractDelta(String chunk) {
+        try (JsonParser parser = objectMapper.getFactory().createParser(chunk)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token == JsonToken.FIELD_NAME && "delta".equals(parser.currentName())) {
+                    if (parser.nextToken() != JsonToken.START_OBJECT) {
+                        return null;
+                    }
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String field = parser.currentName();
+                        JsonToken value = parser.nextToken();
+                        if ("content".equals(field)) {
+                            return value == JsonToken.VALUE_STRING ? parser.getText() : null;
+                        }
+                        parser.skipChildren();
+                    }
+                    return null;
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            throw new RuntimeException("Groq API returned an unreadable stream chunk: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Full request and response bodies are logged for a sample of calls only, and only at debug level
+     */
+    private boolean sampleForLog() {
+        return logger.isDebugEnabled() && ThreadLocalRandom.current().nextDouble() < logSampleRate;
+    }
+
+    private List<String> extractBatchItems(String result, int expected) {
+        String content = extractContent(result);
+        JsonNode items;
         try {
-            Mono<String> response = webClient.post()
-                    .uri("/v1/chat/completions")
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .onStatus(
-                            status -> status.is4xxClientError() || status.is5xxServerError(),
-                            clientResponse -> clientResponse.bodyToMono(String.class).map(errorBody -> {
-                                logger.error("Groq API error - status: {}, body: {}",
-                                        clientResponse.statusCode(), errorBody);
-                                return new RuntimeException("Groq API returned " +
-                                        clientResponse.statusCode() + ": " + errorBody);
-                            })
-                    )
-                    .bodyToMono(String.class);
-
-            String result = response.block();
-            logger.info("Groq response: {}", result);
+            items = objectMapper.readTree(content).path("items");
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Groq API returned an unreadable batch answer: " + e.getMessage(), e);
+        }
+        if (!items.isArray() || items.size() != expected) {
+            throw new RuntimeException("Groq API returned " + items.size() + " batch answers for " + expected + " texts");
+        }
+        List<String> outputs = new ArrayList<>(expected);
+        for (JsonNode item : items) {
+            outputs.add(item.asText().trim());
+        }
+        return outputs;
+    }
 
+    private String extractContent(String result) {
+        try {
             // Extract the actual text from JSON response
-            String output = objectMapper.readTree(result)
+            return objectMapper.readTree(result)
                     .path("choices").get(0)
                     .path("message")
                     .path("content").asText().trim();
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Groq API returned an unreadable response: " + e.getMessage(), e);
+        }
+    }
+
+    public int getAvailablePermits() {
+        return inFlight.availablePermits();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public long getUpstreamCallCount() {
+        return upstreamCalls.sum();
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    public long getBatchedTextCount() {
+        return batchedItems.sum();
+    }
+
+    /**
+     * The permit a conversion was admitted with. The first call of the conversion takes
+     * it; if no call does (coalesced, batched, cancelled early) it goes back to the pool.
+     */
+    private final class AdmissionPermit {
+        private final AtomicBoolean unused = new AtomicBoolean(true);
+
+        boolean take() {
+            return unused.compareAndSet(true, false);
+        }
+
+        void giveBack() {
+            if (take()) {
+                inFlight.release();
+            }
+        }
+    }
+
+    private record BatchItem(String text, CompletableFuture<String> result) {
+    }
+
+    /**
+     * One upstream conversion shared by every caller asking for the same text. Each
+     * caller gets its own copy of the result, so one of them cancelling does not cancel
+     * the others; when the last one cancels, the upstream call is cancelled too and its
+     * permit released.
+     */
+    private static final class SharedConversion {
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+        private int waiters;
+        private boolean abandoned;
+        private Disposable subscription;
+
+        /**
+         * @return A copy of the result for one more caller, or null if every earlier caller
+         * has already cancelled and the conversion is being torn down
+         */
+        synchronized CompletableFuture<String> join() {
+            if (abandoned) {
+                return null;
+            }
+            waiters++;
+            CompletableFuture<String> copy = result.copy();
+            copy.whenComplete((output, e) -> {
+                if (copy.isCancelled()) {
+                    leave();
+                }
+            });
+            return copy;
+        }
+
+        synchronized void start(Mono<String> conversion) {
+            subscription = conversion.subscribe(result::complete, result::completeExceptionally);
+        }
+
+        private synchronized void leave() {
+            if (--waiters == 0 && !result.isDone()) {
+                abandoned = true;
+                subscription.dispose();
+            }
+        }
+    }
 
-            return output;
+    /**
+     * Error status from the provider, kept apart so retries can look at the status code
+     */
+    private static final class UpstreamException extends RuntimeException {
+        private final int status;
+        private final String body;
 
-        } catch (Exception e) {
-            logger.error("Groq API call failed: {}", e.getMessage(), e);
-            throw new RuntimeException("Groq API call failed: " + e.getMessage(), e);
+        UpstreamException(int status, String body) {
+            super("Groq API returned " + status + ": " + body);
+            this.status = status;
+            this.body = body;
         }
     }
-}
\ No newline at end of file
+}
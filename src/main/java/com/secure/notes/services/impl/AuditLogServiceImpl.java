@@ -1,41 +1,70 @@
 package com.secure.notes.services.impl;
 
+import com.secure.notes.dtos.AuditLogExportRow;
+import com.secure.notes.dtos.AuditLogFilter;
+import com.secure.notes.dtos.AuditLogPageResponse;
 import com.secure.notes.models.AuditLog;
 import com.secure.notes.models.Note;
 import com.secure.notes.repositories.AuditLogRepository;
 import com.secure.notes.services.AuditLogService;
+import com.secure.notes.services.AuditLogWriter;
+import com.secure.notes.util.NoteContentCodec;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class AuditLogServiceImpl implements AuditLogService {
 
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+
     @Autowired
     AuditLogRepository auditLogRepository;
 
+    @Autowired
+    AuditLogWriter auditLogWriter;
+
+    // Every Kth revision stores a full compressed copy, the others a delta against the previous revision
+    @Value("${audit.snapshot-interval:10}")
+    private int snapshotInterval;
+
     @Override
     public void logNoteCreation(String username, Note note) {
         AuditLog log = new AuditLog();
         log.setAction("CREATE");
         log.setUsername(username);
         log.setNoteId(note.getId());
-        log.setNoteContent(note.getContent());
+        log.setRevision(note.getRevision());
+        log.setContentHash(NoteContentCodec.sha256Hex(note.getContent()));
+        log.setSnapshot(true);
+        log.setContentDelta(NoteContentCodec.snapshot(note.getContent()));
         log.setTimestamp(LocalDateTime.now());
-        auditLogRepository.save(log);
+        auditLogWriter.enqueue(log);
     }
 
     @Override
-    public void logNoteUpdate(String username, Note note) {
+    public void logNoteUpdate(String username, Note note, String previousContent) {
+        boolean snapshot = note.getRevision() % snapshotInterval == 0;
         AuditLog log = new AuditLog();
         log.setAction("UPDATE");
         log.setUsername(username);
         log.setNoteId(note.getId());
-        log.setNoteContent(note.getContent());
+        log.setRevision(note.getRevision());
+        log.setContentHash(NoteContentCodec.sha256Hex(note.getContent()));
+        log.setSnapshot(snapshot);
+        log.setContentDelta(snapshot
+                ? NoteContentCodec.snapshot(note.getContent())
+                : NoteContentCodec.delta(previousContent, note.getContent()));
         log.setTimestamp(LocalDateTime.now());
-        auditLogRepository.save(log);
+        auditLogWriter.enqueue(log);
     }
 
     @Override
@@ -45,18 +74,75 @@ public class AuditLogServiceImpl implements AuditLogService {
         log.setUsername(username);
         log.setNoteId(noteId);
         log.setTimestamp(LocalDateTime.now());
-        auditLogRepository.save(log);
+        auditLogWriter.enqueue(log);
     }
 
+    /**
+     * Rebuild the note content at the given revision from the nearest snapshot
+     * and the deltas after it. Reads at most snapshotInterval entries.
+     */
     @Override
-    public List<AuditLog> getAllAuditLogs() {
-        return auditLogRepository.findAll();
+    public String getNoteContentAtRevision(Long noteId, int revision) {
+        Optional<AuditLog> base = auditLogRepository
+                .findFirstByNoteIdAndSnapshotTrueAndRevisionLessThanEqualOrderByRevisionDesc(noteId, revision);
+
+        String content;
+        int fromRevision;
+        if (base.isPresent()) {
+            content = NoteContentCodec.restoreSnapshot(base.get().getContentDelta());
+            fromRevision = base.get().getRevision();
+        } else {
+            // Note created before compact auditing: its legacy full copy is revision 0
+            content = auditLogRepository
+                    .findFirstByNoteIdAndRevisionIsNullAndNoteContentIsNotNullOrderByTimestampDesc(noteId)
+                    .map(AuditLog::getNoteContent)
+                    .orElseThrow(() -> new RuntimeException("No audit history for note " + noteId));
+            if (revision == 0) {
+                return content;
+            }
+            fromRevision = 0;
+        }
+
+        AuditLog last = base.orElse(null);
+        for (AuditLog entry : auditLogRepository
+                .findByNoteIdAndRevisionBetweenOrderByRevisionAsc(noteId, fromRevision + 1, revision)) {
+            content = entry.isSnapshot()
+                    ? NoteContentCodec.restoreSnapshot(entry.getContentDelta())
+                    : NoteContentCodec.applyDelta(content, entry.getContentDelta());
+            last = entry;
+        }
+
+        if (last == null || last.getRevision() != revision) {
+            throw new RuntimeException("Revision " + revision + " not found for note " + noteId);
+        }
+        if (!NoteContentCodec.sha256Hex(content).equals(last.getContentHash())) {
+            throw new RuntimeException("Audit history for note " + noteId + " is inconsistent at revision " + revision);
+        }
+        return content;
     }
 
     @Override
-    public List<AuditLog> getAuditLogsForNoteId(Long id) {
-        return auditLogRepository.findByNoteId(id);
-    }
+    public AuditLogPageResponse getAuditLogsPage(AuditLogFilter filter, LocalDateTime afterTimestamp,
+                                                 Long afterId, int size) {
+        int pageSize = size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+
+        // Fetch one extra row to know whether another page exists
+        List<AuditLog> logs = auditLogRepository.findPage(filter, afterTimestamp, afterId, pageSize + 1);
 
+        if (logs.size() <= pageSize) {
+            return new AuditLogPageResponse(logs, null, null);
+        }
+        logs = logs.subList(0, pageSize);
+        AuditLog last = logs.get(pageSize - 1);
+        return new AuditLogPageResponse(logs, last.getTimestamp(), last.getId());
+    }
 
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAuditLogs(AuditLogFilter filter, Consumer<AuditLogExportRow> consumer) {
+        // Rows are DTOs, not managed entities, so the persistence context does not grow with the result
+        try (Stream<AuditLogExportRow> rows = auditLogRepository.streamExportRows(filter)) {
+            rows.forEach(consumer);
+        }
+    }
 }
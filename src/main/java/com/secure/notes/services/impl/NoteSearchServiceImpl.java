@@ -0,0 +1,319 @@
+package com.secure.notes.services.impl;
+
+import com.secure.notes.dtos.NoteSearchResult;
+import com.secure.notes.models.Note;
+import com.secure.notes.repositories.NoteRepository;
+import com.secure.notes.services.NoteSearchService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.uhighlight.DefaultPassageFormatter;
+import org.apache.lucene.search.uhighlight.PassageFormatter;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.util.HtmlUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Lucene index of note contents on local disk. All notes share one index and
+ * every query is filtered on the owner field, so a user only ever sees their own notes.
+ * The owner is an exact (not analyzed) term, so names that differ only in case or
+ * share a prefix never match each other. A FILTER clause on a single term costs one
+ * postings lookup, so one shared index is kept rather than one per owner, which
+ * would mean thousands of open writers and readers.
+ */
+@Service
+public class NoteSearchServiceImpl implements NoteSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NoteSearchServiceImpl.class);
+
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_OWNER = "owner";
+    private static final String FIELD_CONTENT = "content";
+
+    public static final int MAX_RESULTS = 50;
+    private static final int SNIPPET_FALLBACK_LENGTH = 150;
+    // Snippets are rendered as HTML: escape the note text and add only our own <b> tags
+    private static final PassageFormatter SNIPPET_FORMATTER = new DefaultPassageFormatter("<b>", "</b>", "... ", true);
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${search.index.path:./data/note-index}")
+    private String indexPath;
+
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private Directory directory;
+    private IndexWriter indexWriter;
+    private SearcherManager searcherManager;
+    private boolean freshIndex;
+
+    // Incremental updates hold the read lock; a rebuild takes the write lock to start and
+    // to finish, so no update is half-applied across its deleteAll
+    private final ReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+    // While a rebuild runs: the latest change per note id (empty = removed), applied after it
+    private volatile Map<Long, Optional<Note>> changedDuringRebuild;
+
+    @PostConstruct
+    void open() throws IOException {
+        directory = FSDirectory.open(Path.of(indexPath));
+        freshIndex = !DirectoryReader.indexExists(directory);
+        IndexWriterConfig config = new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        indexWriter = new IndexWriter(directory, config);
+        searcherManager = new SearcherManager(indexWriter, null);
+        logger.info("Note search index opened at {}", indexPath);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        if (freshIndex) {
+            logger.info("Note search index is new, building it from the database");
+            rebuildIndex();
+        }
+    }
+
+    @Override
+    public void indexNote(Note note) {
+        rebuildLock.readLock().lock();
+        try {
+            Map<Long, Optional<Note>> changed = changedDuringRebuild;
+            if (changed != null) {
+                // The rebuild may be reading an older copy; this one is applied after it
+                changed.put(note.getId(), Optional.of(note));
+                return;
+            }
+            indexWriter.updateDocument(idTerm(note.getId()), toDocument(note));
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            // The note is saved either way; a rebuild brings the index back in line
+            logger.error("Failed to index note {}: {}", note.getId(), e.getMessage(), e);
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeNote(Long noteId) {
+        rebuildLock.readLock().lock();
+        try {
+            Map<Long, Optional<Note>> changed = changedDuringRebuild;
+            if (changed != null) {
+                changed.put(noteId, Optional.empty());
+                return;
+            }
+            indexWriter.deleteDocuments(idTerm(noteId));
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            logger.error("Failed to remove note {} from index: {}", noteId, e.getMessage(), e);
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<NoteSearchResult> search(String ownerUsername, String queryText, int limit) {
+        if (queryText == null || queryText.isBlank()) {
+            return List.of();
+        }
+        int maxResults = limit <= 0 ? 20 : Math.min(limit, MAX_RESULTS);
+
+        SimpleQueryParser parser = new SimpleQueryParser(analyzer, FIELD_CONTENT);
+        parser.setDefaultOperator(BooleanClause.Occur.MUST);
+        Query textQuery = parser.parse(queryText);
+        if (textQuery == null) {
+            // Only stop words or operators
+            return List.of();
+        }
+        Query query = new BooleanQuery.Builder()
+                .add(new TermQuery(new Term(FIELD_OWNER, ownerUsername)), BooleanClause.Occur.FILTER)
+                .add(textQuery, BooleanClause.Occur.MUST)
+                .build();
+
+        IndexSearcher searcher = null;
+        try {
+            searcher = searcherManager.acquire();
+            TopDocs topDocs = searcher.search(query, maxResults);
+            String[] snippets = UnifiedHighlighter.builder(searcher, analyzer)
+                    .withFormatter(SNIPPET_FORMATTER)
+                    .build()
+                    .highlight(FIELD_CONTENT, query, topDocs, 1);
+
+            List<NoteSearchResult> results = new ArrayList<>(topDocs.scoreDocs.length);
+            for (int i = 0; i < topDocs.scoreDocs.length; i++) {
+                ScoreDoc scoreDoc = topDocs.scoreDocs[i];
+                Document doc = searcher.storedFields().document(scoreDoc.doc);
+                String snippet = snippets[i] != null ? snippets[i] : fallbackSnippet(doc.get(FIELD_CONTENT));
+                results.add(new NoteSearchResult(Long.valueOf(doc.get(FIELD_ID)), scoreDoc.score, snippet));
+            }
+            return results;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Note search failed", e);
+        } finally {
+            if (searcher != null) {
+                try {
+                    searcherManager.release(searcher);
+                } catch (IOException e) {
+                    logger.warn("Failed to release index searcher: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop the index and re-add every note from the database. Notes saved or deleted
+     * meanwhile are queued rather than written, and applied once the rebuild is done,
+     * so an older copy read by the rebuild never replaces them.
+     * @return Number of indexed notes
+     */
+    @Override
+    public synchronized int rebuildIndex() {
+        long start = System.currentTimeMillis();
+        rebuildLock.writeLock().lock();
+        try {
+            changedDuringRebuild = new ConcurrentHashMap<>();
+            indexWriter.deleteAll();
+        } catch (IOException e) {
+            changedDuringRebuild = null;
+            throw new UncheckedIOException(e);
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+
+        Integer count = null;
+        try {
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setReadOnly(true);
+            count = tx.execute(status -> {
+                try (Stream<Note> notes = noteRepository.streamAll()) {
+                    int[] indexed = {0};
+                    notes.forEach(note -> {
+                        try {
+                            indexWriter.updateDocument(idTerm(note.getId()), toDocument(note));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        entityManager.detach(note);
+                        indexed[0]++;
+                    });
+                    return indexed[0];
+                }
+            });
+        } finally {
+            applyChangesMadeDuringRebuild();
+        }
+        logger.info("Rebuilt note search index with {} notes in {} ms", count, System.currentTimeMillis() - start);
+        return count == null ? 0 : count;
+    }
+
+    private void applyChangesMadeDuringRebuild() {
+        rebuildLock.writeLock().lock();
+        try {
+            Map<Long, Optional<Note>> changed = changedDuringRebuild;
+            changedDuringRebuild = null;
+            for (Map.Entry<Long, Optional<Note>> change : changed.entrySet()) {
+                if (change.getValue().isPresent()) {
+                    indexWriter.updateDocument(idTerm(change.getKey()), toDocument(change.getValue().get()));
+                } else {
+                    indexWriter.deleteDocuments(idTerm(change.getKey()));
+                }
+            }
+            indexWriter.commit();
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${search.index.commit-interval-ms:30000}")
+    public void commit() {
+        if (changedDuringRebuild != null) {
+            // Committing now would persist a half-built index; the rebuild commits when done
+            return;
+        }
+        try {
+            if (indexWriter.hasUncommittedChanges()) {
+                indexWriter.commit();
+            }
+        } catch (IOException e) {
+            logger.error("Failed to commit note search index: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        searcherManager.close();
+        indexWriter.close();
+        directory.close();
+    }
+
+    private static Term idTerm(Long noteId) {
+        return new Term(FIELD_ID, noteId.toString());
+    }
+
+    private Document toDocument(Note note) {
+        Document doc = new Document();
+        doc.add(new StringField(FIELD_ID, note.getId().toString(), Field.Store.YES));
+        doc.add(new StringField(FIELD_OWNER, note.getOwnerUsername(), Field.Store.NO));
+        doc.add(new TextField(FIELD_CONTENT, note.getContent() == null ? "" : note.getContent(), Field.Store.YES));
+        return doc;
+    }
+
+    private String fallbackSnippet(String content) {
+        if (content == null) {
+            return "";
+        }
+        return HtmlUtils.htmlEscape(content.length() <= SNIPPET_FALLBACK_LENGTH
+                ? content : content.substring(0, SNIPPET_FALLBACK_LENGTH));
+    }
+}
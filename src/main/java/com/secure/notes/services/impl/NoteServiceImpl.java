@@ -1,23 +1,44 @@
 package com.secure.notes.services.impl;
 
+import com.secure.notes.dtos.NotePageResponse;
+import com.secure.notes.dtos.NoteSummary;
+import com.secure.notes.dtos.NoteSummaryPageResponse;
 import com.secure.notes.models.Note;
 import com.secure.notes.repositories.NoteRepository;
 import com.secure.notes.services.AuditLogService;
+import com.secure.notes.services.NoteSearchService;
 import com.secure.notes.services.NoteService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class NoteServiceImpl implements NoteService {
 
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int DEFAULT_PREVIEW_LENGTH = 100;
+    public static final int MAX_PREVIEW_LENGTH = Note.STORED_PREVIEW_LENGTH;
+
     @Autowired
     private NoteRepository noteRepository;
 
     @Autowired
     private AuditLogService auditLogService;
 
+    @Autowired
+    private NoteSearchService noteSearchService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     @Override
     public Note createNoteForUser(String username, String content) {
         Note note = new Note();
@@ -25,15 +46,19 @@ public class NoteServiceImpl implements NoteService {
         note.setOwnerUsername(username);
         Note savedNote = noteRepository.save(note);
         auditLogService.logNoteCreation(username, note);
+        noteSearchService.indexNote(savedNote);
         return savedNote;
     }
 
     @Override
     public Note updateNoteForUser(Long noteId, String content, String username) {
         Note note = noteRepository.findById(noteId).orElseThrow(() -> new RuntimeException("Note not Found"));
+        String previousContent = note.getContent();
         note.setContent(content);
+        // The saved copy carries the revision Hibernate assigned
         Note updatedNote = noteRepository.save(note);
-        auditLogService.logNoteUpdate(username, note);
+        auditLogService.logNoteUpdate(username, updatedNote, previousContent);
+        noteSearchService.indexNote(updatedNote);
         return updatedNote;
     }
 
@@ -42,6 +67,7 @@ public class NoteServiceImpl implements NoteService {
         Note note = noteRepository.findById(noteId).orElseThrow(() -> new RuntimeException("Note not Found"));
         noteRepository.delete(note);
         auditLogService.logNoteDeletion(username, noteId);
+        noteSearchService.removeNote(noteId);
     }
 
     @Override
@@ -49,4 +75,56 @@ public class NoteServiceImpl implements NoteService {
         List<Note> personalNote = noteRepository.findByOwnerUsername(username);
         return personalNote;
     }
+
+    @Override
+    public NotePageResponse getNotesPageForUser(String username, Long afterId, int size) {
+        int pageSize = size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+        long cursor = afterId == null ? 0L : afterId;
+
+        // Fetch one extra row to know whether another page exists
+        List<Note> notes = noteRepository.findByOwnerUsernameAndIdGreaterThanOrderByIdAsc(
+                username, cursor, PageRequest.of(0, pageSize + 1));
+
+        Long nextCursor = null;
+        if (notes.size() > pageSize) {
+            notes = notes.subList(0, pageSize);
+            nextCursor = notes.get(pageSize - 1).getId();
+        }
+        return new NotePageResponse(notes, nextCursor);
+    }
+
+    @Override
+    public NoteSummaryPageResponse getNoteSummariesForUser(String username, Long afterId, int size, int previewLength) {
+        int pageSize = size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+        int preview = previewLength <= 0 ? DEFAULT_PREVIEW_LENGTH : Math.min(previewLength, MAX_PREVIEW_LENGTH);
+        long cursor = afterId == null ? 0L : afterId;
+
+        List<NoteSummary> summaries = noteRepository.findSummariesByOwnerUsername(
+                username, cursor, preview, pageSize + 1);
+
+        Long nextCursor = null;
+        if (summaries.size() > pageSize) {
+            summaries = summaries.subList(0, pageSize);
+            nextCursor = summaries.get(pageSize - 1).getId();
+        }
+        return new NoteSummaryPageResponse(summaries, nextCursor);
+    }
+
+    @Override
+    public Note getNoteForUser(Long noteId, String username) {
+        return noteRepository.findByIdAndOwnerUsername(noteId, username)
+                .orElseThrow(() -> new RuntimeException("Note not Found"));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamNotesForUser(String username, Consumer<Note> consumer) {
+        try (Stream<Note> notes = noteRepository.streamByOwnerUsername(username)) {
+            notes.forEach(note -> {
+                consumer.accept(note);
+                // Keep the persistence context from growing with the result
+                entityManager.detach(note);
+            });
+        }
+    }
 }
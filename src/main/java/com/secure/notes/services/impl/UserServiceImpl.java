@@ -9,9 +9,13 @@ import com.secure.notes.models.User;
 import com.secure.notes.repositories.PasswordResetTokenRepository;
 import com.secure.notes.repositories.RoleRepository;
 import com.secure.notes.repositories.UserRepository;
+import com.secure.notes.security.TotpVerifier;
+import com.secure.notes.security.jwt.TokenRevocationList;
+import com.secure.notes.security.services.UserDetailsCache;
+import com.secure.notes.services.EmailOutboxService;
+import com.secure.notes.services.RefreshTokenService;
 import com.secure.notes.services.TotpService;
 import com.secure.notes.services.UserService;
-import com.secure.notes.util.EmailService;
 import com.warrenstrange.googleauth.GoogleAuthenticatorKey;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -49,11 +53,23 @@ public class UserServiceImpl implements UserService {
     PasswordResetTokenRepository passwordResetTokenRepository;
 
     @Autowired
-    EmailService emailService;
+    EmailOutboxService emailOutboxService;
 
     @Autowired
     TotpService totpService;
 
+    @Autowired
+    TotpVerifier totpVerifier;
+
+    @Autowired
+    UserDetailsCache userDetailsCache;
+
+    @Autowired
+    TokenRevocationList tokenRevocationList;
+
+    @Autowired
+    RefreshTokenService refreshTokenService;
+
     /**
      * Check if a user has ADMIN role
      */
@@ -110,6 +126,8 @@ public class UserServiceImpl implements UserService {
                 .orElseThrow(() -> new RuntimeException("Role not found"));
         user.setRole(role);
         userRepository.save(user);
+        userDetailsCache.evict(user);
+        tokenRevocationList.revokeAllTokens(user.getUserName());
     }
 
     @Override
@@ -160,9 +178,20 @@ public class UserServiceImpl implements UserService {
                 -> new RuntimeException("User not found"));
         user.setAccountNonLocked(!lock);
         userRepository.save(user);
+        userDetailsCache.evict(user);
+        if (lock)
+            revokeSessions(user);
     }
 
 
+    /**
+     * Reject the user's outstanding access tokens and end their refresh sessions
+     */
+    private void revokeSessions(User user) {
+        tokenRevocationList.revokeAllTokens(user.getUserName());
+        refreshTokenService.revokeAllForUser(user.getUserId());
+    }
+
     @Override
     public List<Role> getAllRoles() {
         return roleRepository.findAll();
@@ -177,6 +206,9 @@ public class UserServiceImpl implements UserService {
                 -> new RuntimeException("User not found"));
         user.setAccountNonExpired(!expire);
         userRepository.save(user);
+        userDetailsCache.evict(user);
+        if (expire)
+            revokeSessions(user);
     }
 
     @Override
@@ -188,6 +220,9 @@ public class UserServiceImpl implements UserService {
                 -> new RuntimeException("User not found"));
         user.setEnabled(enabled);
         userRepository.save(user);
+        userDetailsCache.evict(user);
+        if (!enabled)
+            revokeSessions(user);
     }
 
     @Override
@@ -199,6 +234,9 @@ public class UserServiceImpl implements UserService {
                 -> new RuntimeException("User not found"));
         user.setCredentialsNonExpired(!expire);
         userRepository.save(user);
+        userDetailsCache.evict(user);
+        if (expire)
+            revokeSessions(user);
     }
 
 
@@ -212,11 +250,15 @@ public class UserServiceImpl implements UserService {
                     .orElseThrow(() -> new RuntimeException("User not found"));
             user.setPassword(passwordEncoder.encode(password));
             userRepository.save(user);
+            // The caller may be in a transaction; a principal loaded before its commit would be stale
+            userDetailsCache.evictAfterCommit(user);
+            refreshTokenService.revokeAllForUser(userId);
         } catch (Exception e) {
             throw new RuntimeException("Failed to update password");
         }
     }
 
+    @Transactional
     @Override
     public void generatePasswordResetToken(String email){
         User user = userRepository.findByEmail(email)
@@ -225,11 +267,11 @@ public class UserServiceImpl implements UserService {
         String token = UUID.randomUUID().toString();
         Instant expiryDate = Instant.now().plus(resetTokenExpiryMinutes, ChronoUnit.MINUTES);
         PasswordResetToken resetToken = new PasswordResetToken(token, expiryDate, user);
-        passwordResetTokenRepository.save(resetToken);
+        resetToken = passwordResetTokenRepository.save(resetToken);
 
         String resetUrl = frontendUrl + "/reset-password?token=" + token;
-        // Send email to user
-        emailService.sendPasswordResetEmail(user.getEmail(), resetUrl);
+        // Queued in this transaction and sent by the outbox worker, so the request never waits on Brevo
+        emailOutboxService.enqueuePasswordReset(user.getEmail(), resetUrl, resetToken.getId());
     }
 
     @Transactional
@@ -247,6 +289,9 @@ public class UserServiceImpl implements UserService {
         User user = resetToken.getUser();
         user.setPassword(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        userDetailsCache.evictAfterCommit(user);
+        // Whoever knew the old password may hold a session; end them all
+        refreshTokenService.revokeAllForUser(user.getUserId());
 
         resetToken.setUsed(true);
         passwordResetTokenRepository.save(resetToken);
@@ -271,14 +316,16 @@ public class UserServiceImpl implements UserService {
         GoogleAuthenticatorKey key = totpService.generateSecret();
         user.setTwoFactorSecret(key.getKey());
         userRepository.save(user);
+        totpVerifier.evict(userId);
         return key;
     }
 
     @Override
     public boolean validate2FACode(Long userId, int code){
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        return totpService.verifyCode(user.getTwoFactorSecret(), code);
+        // The secret is only loaded when the verifier has not cached it
+        return totpVerifier.verify(userId, code, id -> userRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("User not found"))
+                .getTwoFactorSecret());
     }
 
     @Override
@@ -287,6 +334,7 @@ public class UserServiceImpl implements UserService {
                 .orElseThrow(() -> new RuntimeException("User not found"));
         user.setTwoFactorEnabled(true);
         userRepository.save(user);
+        userDetailsCache.evict(user);
     }
 
     @Override
@@ -295,5 +343,7 @@ public class UserServiceImpl implements UserService {
                 .orElseThrow(() -> new RuntimeException("User not found"));
         user.setTwoFactorEnabled(false);
         userRepository.save(user);
+        userDetailsCache.evict(user);
+        totpVerifier.evict(userId);
     }
 }
\ No newline at end of file
@@ -0,0 +1,75 @@
+package com.secure.notes.util;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Counting semaphore whose waiters get a future instead of blocking a thread, for
+ * capping calls made from reactive pipelines. Released permits go to the oldest
+ * waiter first; {@link #tryAcquire()} does not jump that queue.
+ *
+ * A waiter that gives up cancels its future. Whoever holds a future must release
+ * the permit if cancelling it fails, because then the permit was already granted.
+ */
+public final class AsyncPermits {
+
+    private final ArrayDeque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+    private int available;
+
+    public AsyncPermits(int permits) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("Permits must be positive");
+        }
+        this.available = permits;
+    }
+
+    /**
+     * Take a permit if one is free and nobody is waiting for one
+     */
+    public synchronized boolean tryAcquire() {
+        if (available > 0 && waiters.isEmpty()) {
+            available--;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return A future completed once the permit is granted, possibly already completed
+     */
+    public synchronized CompletableFuture<Void> acquire() {
+        if (available > 0 && waiters.isEmpty()) {
+            available--;
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> waiter = new CompletableFuture<>();
+        waiters.add(waiter);
+        return waiter;
+    }
+
+    public void release() {
+        while (true) {
+            CompletableFuture<Void> next;
+            synchronized (this) {
+                next = waiters.poll();
+                if (next == null) {
+                    available++;
+                    return;
+                }
+            }
+            // Completed outside the lock: the waiter's continuation may run right here
+            if (next.complete(null)) {
+                return;
+            }
+            // That waiter had given up; try the next one
+        }
+    }
+
+    public synchronized int availablePermits() {
+        return available;
+    }
+
+    public synchronized int queueLength() {
+        return waiters.size();
+    }
+}
@@ -0,0 +1,142 @@
+package com.secure.notes.util;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Chat completions request body with a single user message, serialized once.
+ * Everything around the user text is kept as UTF-8 bytes, so rendering a request
+ * only encodes and escapes the text into a buffer of the exact size.
+ */
+public final class ChatRequestTemplate {
+
+    // Stands in for the user text while the template is serialized; never escaped by JSON
+    private static final String MARKER = "@@TEXT@@";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final byte[] prefix;
+    private final byte[] suffix;
+
+    private ChatRequestTemplate(byte[] prefix, byte[] suffix) {
+        this.prefix = prefix;
+        this.suffix = suffix;
+    }
+
+    /**
+     * @param promptBefore Prompt text that goes before the user text
+     * @param promptAfter  Prompt text that goes after the user text
+     */
+    public static ChatRequestTemplate of(String model, double temperature, boolean stream,
+                                         String promptBefore, String promptAfter) {
+        if (promptBefore.contains(MARKER) || promptAfter.contains(MARKER)) {
+            throw new IllegalArgumentException("Prompt must not contain " + MARKER);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            generator.writeStringField("model", model);
+            generator.writeNumberField("temperature", temperature);
+            generator.writeBooleanField("stream", stream);
+            generator.writeArrayFieldStart("messages");
+            generator.writeStartObject();
+            generator.writeStringField("role", "user");
+            generator.writeStringField("content", promptBefore + MARKER + promptAfter);
+            generator.writeEndObject();
+            generator.writeEndArray();
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        byte[] body = out.toByteArray();
+        int at = indexOf(body, MARKER.getBytes(StandardCharsets.US_ASCII));
+        return new ChatRequestTemplate(Arrays.copyOfRange(body, 0, at),
+                Arrays.copyOfRange(body, at + MARKER.length(), body.length));
+    }
+
+    /**
+     * @return The UTF-8 request body with the text escaped into the user message
+     */
+    public byte[] render(String text) {
+        // Multi-byte UTF-8 sequences never contain bytes below 0x80, so escaping can work on bytes
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        int extra = 0;
+        for (byte b : utf8) {
+            if (b >= 0 && b < 0x20) {
+                extra += shortEscape(b) != 0 ? 1 : 5;
+            } else if (b == '"' || b == '\\') {
+                extra++;
+            }
+        }
+
+        byte[] body = new byte[prefix.length + utf8.length + extra + suffix.length];
+        System.arraycopy(prefix, 0, body, 0, prefix.length);
+        int pos = prefix.length;
+        if (extra == 0) {
+            System.arraycopy(utf8, 0, body, pos, utf8.length);
+            pos += utf8.length;
+        } else {
+            pos = writeEscaped(utf8, body, pos);
+        }
+        System.arraycopy(suffix, 0, body, pos, suffix.length);
+        return body;
+    }
+
+    private static int writeEscaped(byte[] utf8, byte[] out, int pos) {
+        for (byte b : utf8) {
+            if (b >= 0 && b < 0x20) {
+                byte escape = shortEscape(b);
+                out[pos++] = '\\';
+                if (escape != 0) {
+                    out[pos++] = escape;
+                } else {
+                    out[pos++] = 'u';
+                    out[pos++] = '0';
+                    out[pos++] = '0';
+                    out[pos++] = HEX[b >> 4];
+                    out[pos++] = HEX[b & 0xF];
+                }
+            } else {
+                if (b == '"' || b == '\\') {
+                    out[pos++] = '\\';
+                }
+                out[pos++] = b;
+            }
+        }
+        return pos;
+    }
+
+    private static byte shortEscape(byte b) {
+        return switch (b) {
+            case '\n' -> 'n';
+            case '\r' -> 'r';
+            case '\t' -> 't';
+            case '\b' -> 'b';
+            case '\f' -> 'f';
+            default -> 0;
+        };
+    }
+
+    private static int indexOf(byte[] haystack, byte[] needle) {
+        outer:
+        for (int i = 0; i <= haystack.length - needle.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (haystack[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        throw new IllegalStateException("Template marker not found");
+    }
+}
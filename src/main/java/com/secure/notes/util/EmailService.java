@@ -1,12 +1,18 @@
 package com.secure.notes.util;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.secure.notes.exceptions.EmailProviderException;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 
 import sendinblue.ApiClient;
-import sendinblue.Configuration;
 import sendinblue.auth.ApiKeyAuth;
 import sibApi.TransactionalEmailsApi;
 import sibModel.CreateSmtpEmail;
@@ -14,13 +20,38 @@ import sibModel.SendSmtpEmail;
 import sibModel.SendSmtpEmailSender;
 import sibModel.SendSmtpEmailTo;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @Service
 public class EmailService {
 
     private static final Logger logger = LoggerFactory.getLogger(EmailService.class);
 
+    private static final String TEMPLATE_PATH = "templates/email/";
+    // Where each template body goes in layout.html
+    private static final String LAYOUT_BODY = "{{{body}}}";
+
+    private static final String DEFAULT_BASE_URL = "https://api.brevo.com/v3";
+    // Brevo accepts at most this many message versions in one request
+    public static final int MAX_BATCH_RECIPIENTS = 1000;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
     @Value("${brevo.api.key}")
     private String brevoApiKey;
 
@@ -30,17 +61,55 @@ public class EmailService {
     @Value("${brevo.from.name:Secure Notes}")
     private String fromName;
 
-    public void sendPasswordResetEmail(String to, String resetUrl) {
-        try {
-            logger.info("Attempting to send password reset email via Brevo to: {}", to);
+    // Empty means the SDK default; tests point this at a local stub
+    @Value("${brevo.api.base-url:}")
+    private String brevoBaseUrl;
+
+    private TransactionalEmailsApi transactionalEmailsApi;
+
+    // Batch sends go straight to the REST endpoint: messageVersions is not in the SDK version we use
+    private HttpClient batchClient;
+    private URI batchSendUri;
+
+    private Map<EmailTemplateType, CompiledEmail> templates;
+
+    @PostConstruct
+    void init() {
+        templates = loadTemplates();
+
+        // Own client instead of mutating the SDK-wide Configuration.getDefaultApiClient()
+        ApiClient apiClient = new ApiClient();
+        if (!brevoBaseUrl.isBlank()) {
+            apiClient.setBasePath(brevoBaseUrl);
+        }
+        ApiKeyAuth apiKey = (ApiKeyAuth) apiClient.getAuthentication("api-key");
+        apiKey.setApiKey(brevoApiKey);
+        transactionalEmailsApi = new TransactionalEmailsApi(apiClient);
 
-            // Configure API client
-            ApiClient defaultClient = Configuration.getDefaultApiClient();
-            ApiKeyAuth apiKey = (ApiKeyAuth) defaultClient.getAuthentication("api-key");
-            apiKey.setApiKey(brevoApiKey);
+        batchClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        String baseUrl = brevoBaseUrl.isBlank() ? DEFAULT_BASE_URL : brevoBaseUrl;
+        batchSendUri = URI.create(baseUrl + "/smtp/email");
+    }
 
-            // Create email API instance
-            TransactionalEmailsApi api = new TransactionalEmailsApi();
+    /**
+     * Send the password reset email
+     * @param idempotencyKey Passed to Brevo so a retried send is not delivered twice
+     * @return The Brevo message id
+     */
+    public String sendPasswordResetEmail(String to, String resetUrl, String idempotencyKey) {
+        return send(EmailTemplateType.PASSWORD_RESET, to, Map.of("resetUrl", resetUrl), idempotencyKey);
+    }
+
+    /**
+     * Render a template and send it to one recipient
+     * @param idempotencyKey Passed to Brevo so a retried send is not delivered twice
+     * @return The Brevo message id
+     */
+    public String send(EmailTemplateType type, String to, Map<String, String> variables, String idempotencyKey) {
+        try {
+            logger.info("Attempting to send {} email via Brevo to: {}", type.getTemplateName(), to);
 
             // Set sender
             SendSmtpEmailSender sender = new SendSmtpEmailSender();
@@ -52,155 +121,137 @@ public class EmailService {
             recipient.setEmail(to);
 
             // Create email
+            CompiledEmail template = templates.get(type);
             SendSmtpEmail email = new SendSmtpEmail();
             email.setSender(sender);
             email.setTo(Collections.singletonList(recipient));
-            email.setSubject("Password Reset Request - Secure Notes");
-            email.setHtmlContent(buildEmailContent(resetUrl));
+            email.setSubject(template.subject().render(variables));
+            email.setHtmlContent(template.body().render(variables));
+            email.setHeaders(Map.of("idempotencyKey", idempotencyKey));
 
             // Send email
-            CreateSmtpEmail result = api.sendTransacEmail(email);
+            CreateSmtpEmail result = transactionalEmailsApi.sendTransacEmail(email);
 
-            logger.info("✅ Password reset email sent successfully to: {}. Message ID: {}", to, result.getMessageId());
+            logger.info("✅ {} email sent successfully to: {}. Message ID: {}",
+                    type.getTemplateName(), to, result.getMessageId());
+            return result.getMessageId();
 
         } catch (Exception e) {
             logger.error("❌ Failed to send email to: {}. Error: {}", to, e.getMessage(), e);
-            throw new RuntimeException("Failed to send password reset email. Please try again later.", e);
+            throw new RuntimeException("Failed to send " + type.getTemplateName() + " email. Please try again later.", e);
+        }
+    }
+
+    /**
+     * Send one template to many recipients in a single Brevo request. The template is
+     * rendered once: shared variables are filled in here, and each per-recipient
+     * variable becomes a Brevo {{ params.name }} placeholder that Brevo fills from
+     * the recipient's message version (Brevo escapes params values itself).
+     * @param perRecipientVariables Names of the variables taken from each recipient's params
+     * @param idempotencyKey Passed to Brevo so a retried batch is not delivered twice
+     * @return The Brevo message ids
+     * @throws EmailProviderException if Brevo refuses the request or cannot be reached
+     */
+    public List<String> sendBatch(EmailTemplateType type, Map<String, String> sharedVariables,
+                                  Collection<String> perRecipientVariables, List<BatchRecipient> recipients,
+                                  String idempotencyKey) {
+        if (recipients.isEmpty() || recipients.size() > MAX_BATCH_RECIPIENTS) {
+            throw new IllegalArgumentException("A batch needs 1 to " + MAX_BATCH_RECIPIENTS + " recipients");
+        }
+        Map<String, String> variables = new HashMap<>(sharedVariables);
+        for (String name : perRecipientVariables) {
+            variables.put(name, "{{ params." + name + " }}");
+        }
+        CompiledEmail template = templates.get(type);
+
+        ObjectNode body = objectMapper.createObjectNode();
+        body.putObject("sender").put("email", fromEmail).put("name", fromName);
+        body.put("subject", template.subject().render(variables));
+        body.put("htmlContent", template.body().render(variables));
+        body.putObject("headers").put("idempotencyKey", idempotencyKey);
+        ArrayNode versions = body.putArray("messageVersions");
+        for (BatchRecipient recipient : recipients) {
+            ObjectNode version = versions.addObject();
+            version.putArray("to").addObject().put("email", recipient.email());
+            ObjectNode params = version.putObject("params");
+            recipient.params().forEach(params::put);
         }
+
+        HttpRequest request = HttpRequest.newBuilder(batchSendUri)
+                .timeout(Duration.ofSeconds(30))
+                .header("api-key", brevoApiKey)
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toString().getBytes(StandardCharsets.UTF_8)))
+                .build();
+        HttpResponse<String> response;
+        try {
+            response = batchClient.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            throw new EmailProviderException("Brevo batch request failed: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EmailProviderException("Interrupted while sending batch", e);
+        }
+
+        if (response.statusCode() / 100 != 2) {
+            Duration retryAfter = response.headers().firstValue("Retry-After")
+                    .map(EmailService::parseRetryAfter)
+                    .orElse(null);
+            throw new EmailProviderException(response.statusCode(), retryAfter,
+                    "Brevo answered " + response.statusCode() + ": " + response.body());
+        }
+
+        List<String> messageIds = new ArrayList<>(recipients.size());
+        try {
+            for (JsonNode id : objectMapper.readTree(response.body()).path("messageIds")) {
+                messageIds.add(id.asText());
+            }
+        } catch (IOException e) {
+            // Accepted; only the ids are missing
+            logger.warn("Could not read message ids from Brevo batch response: {}", e.getMessage());
+        }
+        logger.info("{} batch of {} emails accepted by Brevo", type.getTemplateName(), recipients.size());
+        return messageIds;
+    }
+
+    private static Duration parseRetryAfter(String value) {
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim())));
+        } catch (NumberFormatException e) {
+            // HTTP-date form; the caller falls back to its own backoff
+            return null;
+        }
+    }
+
+    /**
+     * Parse every template once: the body file is placed inside the shared layout,
+     * then subject and body are compiled into segments
+     */
+    private static Map<EmailTemplateType, CompiledEmail> loadTemplates() {
+        String layout = readTemplate("layout");
+        Map<EmailTemplateType, CompiledEmail> compiled = new EnumMap<>(EmailTemplateType.class);
+        for (EmailTemplateType type : EmailTemplateType.values()) {
+            String body = layout.replace(LAYOUT_BODY, readTemplate(type.getTemplateName()));
+            compiled.put(type, new CompiledEmail(EmailTemplate.compile(type.getSubject()), EmailTemplate.compile(body)));
+        }
+        return compiled;
+    }
+
+    private static String readTemplate(String name) {
+        try (InputStream in = new ClassPathResource(TEMPLATE_PATH + name + ".html").getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read email template " + name, e);
+        }
+    }
+
+    private record CompiledEmail(EmailTemplate subject, EmailTemplate body) {
     }
 
-    private String buildEmailContent(String resetUrl) {
-        return """
-                <!DOCTYPE html>
-                <html>
-                <head>
-                    <meta charset="UTF-8">
-                    <meta name="viewport" content="width=device-width, initial-scale=1.0">
-                    <style>
-                        body { 
-                            font-family: -apple-system, BlinkMacSystemFont, 'Segoe UI', Roboto, Arial, sans-serif;
-                            line-height: 1.6; 
-                            color: #333;
-                            background-color: #f5f5f5;
-                            margin: 0;
-                            padding: 0;
-                        }
-                        .email-container {
-                            max-width: 600px;
-                            margin: 20px auto;
-                            background-color: #ffffff;
-                            border-radius: 8px;
-                            overflow: hidden;
-                            box-shadow: 0 2px 8px rgba(0,0,0,0.1);
-                        }
-                        .header { 
-                            background: linear-gradient(135deg, #667eea 0%%, #764ba2 100%%);
-                            color: white; 
-                            padding: 30px 20px;
-                            text-align: center;
-                        }
-                        .header h1 {
-                            margin: 0;
-                            font-size: 28px;
-                            font-weight: 600;
-                        }
-                        .content { 
-                            padding: 40px 30px;
-                        }
-                        .content p {
-                            margin: 0 0 15px 0;
-                            font-size: 16px;
-                        }
-                        .button-container {
-                            text-align: center;
-                            margin: 30px 0;
-                        }
-                        .button { 
-                            display: inline-block; 
-                            padding: 14px 32px;
-                            background: linear-gradient(135deg, #667eea 0%%, #764ba2 100%%);
-                            color: white !important;
-                            text-decoration: none; 
-                            border-radius: 6px;
-                            font-weight: 600;
-                            font-size: 16px;
-                            box-shadow: 0 4px 6px rgba(102, 126, 234, 0.3);
-                        }
-                        .link-box {
-                            background-color: #f8f9fa;
-                            padding: 15px;
-                            border-radius: 6px;
-                            margin: 20px 0;
-                            word-break: break-all;
-                        }
-                        .link-box a {
-                            color: #667eea;
-                            text-decoration: none;
-                            font-size: 13px;
-                        }
-                        .warning-box {
-                            background-color: #fff3cd;
-                            border-left: 4px solid #ffc107;
-                            padding: 15px;
-                            margin: 20px 0;
-                            border-radius: 4px;
-                        }
-                        .warning-box p {
-                            margin: 0;
-                            color: #856404;
-                            font-size: 14px;
-                        }
-                        .footer { 
-                            background-color: #f8f9fa;
-                            padding: 25px 30px;
-                            text-align: center;
-                            border-top: 1px solid #e9ecef;
-                        }
-                        .footer p {
-                            margin: 5px 0;
-                            font-size: 13px;
-                            color: #666;
-                        }
-                    </style>
-                </head>
-                <body>
-                    <div class="email-container">
-                        <div class="header">
-                            <h1>🔒 Secure Notes</h1>
-                        </div>
-                        
-                        <div class="content">
-                            <h2 style="color: #333; margin-top: 0;">Password Reset Request</h2>
-                            <p>Hello,</p>
-                            <p>We received a request to reset the password for your Secure Notes account.</p>
-                            
-                            <div class="button-container">
-                                <a href="%s" class="button">Reset Your Password</a>
-                            </div>
-                            
-                            <div class="link-box">
-                                <p style="margin-bottom: 8px; font-weight: 600; color: #333;">Or copy and paste this link:</p>
-                                <a href="%s">%s</a>
-                            </div>
-                            
-                            <div class="warning-box">
-                                <p><strong>⏰ Time Sensitive:</strong> This link expires in <strong>15 minutes</strong>. After that, you'll need to request a new one.</p>
-                            </div>
-                            
-                            <p style="margin-top: 30px; padding-top: 20px; border-top: 1px solid #e9ecef;">
-                                <strong>🛡️ Security Note:</strong><br>
-                                If you didn't request this password reset, please ignore this email. Your account remains secure and no changes will be made.
-                            </p>
-                        </div>
-                        
-                        <div class="footer">
-                            <p><strong>Secure Notes Team</strong></p>
-                            <p>Keeping your notes safe and secure</p>
-                            <p style="margin-top: 15px; font-size: 11px;">This is an automated message. Please don't reply to this email.</p>
-                        </div>
-                    </div>
-                </body>
-                </html>
-                """.formatted(resetUrl, resetUrl, resetUrl);
+    /**
+     * One recipient of a batch send and the values for its {{ params.* }} placeholders
+     */
+    public record BatchRecipient(String email, Map<String, String> params) {
     }
-}
\ No newline at end of file
+}
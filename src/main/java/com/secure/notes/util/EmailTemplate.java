@@ -0,0 +1,103 @@
+package com.secure.notes.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Template parsed once into literal text and {{placeholder}} segments. Rendering
+ * appends the segments to a per-thread buffer sized for the template, so no
+ * parsing or buffer growth happens per email. Values are HTML-escaped.
+ */
+public final class EmailTemplate {
+
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+
+    // Buffers that grew past this are not kept for the next render
+    private static final int RETAINED_CAPACITY = 64 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(8192));
+
+    // literals[i] comes before placeholders[i]; the last literal has no placeholder after it
+    private final String[] literals;
+    private final String[] placeholders;
+    private final int capacity;
+
+    private EmailTemplate(String[] literals, String[] placeholders, int capacity) {
+        this.literals = literals;
+        this.placeholders = placeholders;
+        this.capacity = capacity;
+    }
+
+    public static EmailTemplate compile(String source) {
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        int literalLength = 0;
+        int pos = 0;
+        while (true) {
+            int open = source.indexOf(OPEN, pos);
+            if (open < 0) {
+                break;
+            }
+            int close = source.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder at offset " + open);
+            }
+            String name = source.substring(open + OPEN.length(), close).trim();
+            if (name.isEmpty()) {
+                throw new IllegalArgumentException("Empty placeholder at offset " + open);
+            }
+            String literal = source.substring(pos, open);
+            literals.add(literal);
+            literalLength += literal.length();
+            placeholders.add(name);
+            pos = close + CLOSE.length();
+        }
+        String tail = source.substring(pos);
+        literals.add(tail);
+        literalLength += tail.length();
+
+        // Room for typical values (URLs, names) without growing the buffer
+        int capacity = literalLength + placeholders.size() * 128;
+        return new EmailTemplate(literals.toArray(String[]::new), placeholders.toArray(String[]::new), capacity);
+    }
+
+    /**
+     * @throws IllegalArgumentException if a placeholder has no value
+     */
+    public String render(Map<String, String> variables) {
+        StringBuilder out = BUFFER.get();
+        out.setLength(0);
+        out.ensureCapacity(capacity);
+        for (int i = 0; i < placeholders.length; i++) {
+            out.append(literals[i]);
+            String value = variables.get(placeholders[i]);
+            if (value == null) {
+                throw new IllegalArgumentException("No value for template variable " + placeholders[i]);
+            }
+            appendEscaped(out, value);
+        }
+        out.append(literals[literals.length - 1]);
+
+        String result = out.toString();
+        if (out.capacity() > RETAINED_CAPACITY) {
+            BUFFER.remove();
+        }
+        return result;
+    }
+
+    private static void appendEscaped(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&' -> out.append("&amp;");
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '"' -> out.append("&quot;");
+                case '\'' -> out.append("&#39;");
+                default -> out.append(c);
+            }
+        }
+    }
+}
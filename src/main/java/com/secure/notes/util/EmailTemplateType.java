@@ -0,0 +1,41 @@
+package com.secure.notes.util;
+
+/**
+ * Emails the application sends. The body is read from templates/email/{templateName}.html
+ * and placed inside templates/email/layout.html; the subject may use placeholders too.
+ */
+public enum EmailTemplateType {
+    PASSWORD_RESET("password-reset", "Password Reset Request - Secure Notes"),
+    TWO_FACTOR_ENABLED("two-factor-enabled", "Two-factor authentication enabled - Secure Notes"),
+    NEW_LOGIN("new-login", "New sign-in to your account - Secure Notes"),
+    SECURITY_ALERT("security-alert", "Security notice - Secure Notes"),
+    PASSWORD_EXPIRING("password-expiring", "Your password expires soon - Secure Notes");
+
+    private final String templateName;
+    private final String subject;
+
+    EmailTemplateType(String templateName, String subject) {
+        this.templateName = templateName;
+        this.subject = subject;
+    }
+
+    public String getTemplateName() {
+        return templateName;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    /**
+     * @throws IllegalArgumentException for an unknown template name
+     */
+    public static EmailTemplateType fromTemplateName(String templateName) {
+        for (EmailTemplateType type : values()) {
+            if (type.templateName.equals(templateName)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown email template: " + templateName);
+    }
+}
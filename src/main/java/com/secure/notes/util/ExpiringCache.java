@@ -0,0 +1,141 @@
+package com.secure.notes.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Small bounded in-memory cache where every entry carries its own expiry time.
+ * Backed by a size-bounded Caffeine cache with per-entry expiry: a full cache
+ * evicts by frequency and recency, and an expired entry is never returned.
+ */
+public class ExpiringCache<K, V> {
+
+    private final Cache<K, Entry<V>> entries;
+    private final int maxSize;
+    private final LongSupplier clock;
+
+    public ExpiringCache(int maxSize) {
+        this(maxSize, System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock Epoch millis; expiry times passed to put are on this clock
+     */
+    ExpiringCache(int maxSize, LongSupplier clock) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.maxSize = maxSize;
+        this.clock = clock;
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new EntryExpiry<K, V>())
+                // Expiry times are wall-clock millis, so the cache reads time from the same clock
+                .ticker(() -> TimeUnit.MILLISECONDS.toNanos(clock.getAsLong()))
+                .recordStats()
+                .build();
+    }
+
+    public V get(K key) {
+        Entry<V> entry = entries.getIfPresent(key);
+        return entry != null ? entry.value : null;
+    }
+
+    /**
+     * Return the cached value or load, store and return it.
+     * A null result from the loader is not cached. The load runs at most once at a
+     * time per key, and an invalidate of the key waits for it, so a value loaded
+     * before the invalidate cannot be stored after it.
+     */
+    public V computeIfAbsent(K key, Function<K, V> loader, long ttlMillis) {
+        Entry<V> entry = entries.get(key, k -> {
+            V loaded = loader.apply(k);
+            return loaded != null ? new Entry<>(loaded, clock.getAsLong() + ttlMillis) : null;
+        });
+        return entry != null ? entry.value : null;
+    }
+
+    public void put(K key, V value, long expiresAtMillis) {
+        if (expiresAtMillis <= clock.getAsLong()) {
+            return;
+        }
+        entries.put(key, new Entry<>(value, expiresAtMillis));
+    }
+
+    public void invalidate(K key) {
+        entries.invalidate(key);
+    }
+
+    public void invalidateAll() {
+        entries.invalidateAll();
+    }
+
+    /**
+     * Drop every entry whose expiry time has passed, and apply any pending size eviction.
+     * @return Number of removed entries
+     */
+    public int purgeExpired() {
+        long before = entries.estimatedSize();
+        entries.cleanUp();
+        return (int) Math.max(0, before - entries.estimatedSize());
+    }
+
+    public int size() {
+        entries.cleanUp();
+        return (int) entries.estimatedSize();
+    }
+
+    public CacheStats getStats() {
+        com.github.benmanes.caffeine.cache.stats.CacheStats stats = entries.stats();
+        return new CacheStats((int) entries.estimatedSize(), maxSize, stats.hitCount(), stats.missCount(),
+                stats.evictionCount());
+    }
+
+    private record Entry<V>(V value, long expiresAtMillis) {
+    }
+
+    /**
+     * Each entry lives until its own expiry time; reads do not extend it
+     */
+    private static final class EntryExpiry<K, V> implements Expiry<K, Entry<V>> {
+        @Override
+        public long expireAfterCreate(K key, Entry<V> entry, long currentTime) {
+            return remainingNanos(entry, currentTime);
+        }
+
+        @Override
+        public long expireAfterUpdate(K key, Entry<V> entry, long currentTime, long currentDuration) {
+            return remainingNanos(entry, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(K key, Entry<V> entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        private long remainingNanos(Entry<V> entry, long currentTime) {
+            return Math.max(0, TimeUnit.MILLISECONDS.toNanos(entry.expiresAtMillis) - currentTime);
+        }
+    }
+
+    /**
+     * Snapshot of cache counters
+     */
+    public record CacheStats(
+            int size,
+            int maxSize,
+            long hits,
+            long misses,
+            long evictions
+    ) {
+        public double getHitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.secure.notes.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact encodings of note content used by the audit log, and the derived values
+ * stored next to a note so list queries need not read its body.
+ * A delta keeps the common prefix and suffix of the old text and stores only
+ * the replaced middle part, which covers the usual single-region edit.
+ */
+public final class NoteContentCodec {
+
+    private NoteContentCodec() {
+    }
+
+    /**
+     * Lowercase hex SHA-256 of the UTF-8 content (same value as MySQL SHA2(content, 256))
+     */
+    public static String sha256Hex(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(nullToEmpty(content).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Length in characters as MySQL CHAR_LENGTH counts them: code points, not UTF-16 units
+     */
+    public static long charLength(String content) {
+        String text = nullToEmpty(content);
+        return text.codePointCount(0, text.length());
+    }
+
+    /**
+     * The first maxChars characters (code points), never cutting a surrogate pair
+     */
+    public static String preview(String content, int maxChars) {
+        String text = nullToEmpty(content);
+        if (text.length() <= maxChars) {
+            return text;
+        }
+        int codePoints = text.codePointCount(0, text.length());
+        return codePoints <= maxChars ? text : text.substring(0, text.offsetByCodePoints(0, maxChars));
+    }
+
+    public static byte[] snapshot(String content) {
+        return deflate(nullToEmpty(content).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String restoreSnapshot(byte[] snapshot) {
+        return new String(inflate(snapshot), StandardCharsets.UTF_8);
+    }
+
+    public static byte[] delta(String previous, String current) {
+        previous = nullToEmpty(previous);
+        current = nullToEmpty(current);
+
+        int max = Math.min(previous.length(), current.length());
+        int prefix = 0;
+        while (prefix < max && previous.charAt(prefix) == current.charAt(prefix)) {
+            prefix++;
+        }
+        // Never split a surrogate pair, the middle part must be valid UTF-16
+        if (prefix > 0 && Character.isHighSurrogate(current.charAt(prefix - 1))) {
+            prefix--;
+        }
+
+        int suffix = 0;
+        while (suffix < max - prefix
+                && previous.charAt(previous.length() - 1 - suffix) == current.charAt(current.length() - 1 - suffix)) {
+            suffix++;
+        }
+        if (suffix > 0 && Character.isLowSurrogate(current.charAt(current.length() - suffix))) {
+            suffix--;
+        }
+
+        byte[] middle = current.substring(prefix, current.length() - suffix).getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(8 + middle.length);
+        buffer.putInt(prefix).putInt(suffix).put(middle);
+        return deflate(buffer.array());
+    }
+
+    public static String applyDelta(String previous, byte[] delta) {
+        previous = nullToEmpty(previous);
+        ByteBuffer buffer = ByteBuffer.wrap(inflate(delta));
+        int prefix = buffer.getInt();
+        int suffix = buffer.getInt();
+        if (prefix + suffix > previous.length()) {
+            throw new IllegalArgumentException("Delta does not apply to the given content");
+        }
+        String middle = StandardCharsets.UTF_8.decode(buffer).toString();
+        return previous.substring(0, prefix) + middle + previous.substring(previous.length() - suffix);
+    }
+
+    private static byte[] deflate(byte[] input) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, input.length / 2));
+            byte[] chunk = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] input) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length * 3);
+            byte[] chunk = new byte[4096];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(chunk);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Truncated compressed content");
+                }
+                out.write(chunk, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt compressed content", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static String nullToEmpty(String s) {
+        return s == null ? "" : s;
+    }
+}
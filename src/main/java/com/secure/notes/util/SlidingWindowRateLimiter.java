@@ -0,0 +1,163 @@
+package com.secure.notes.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-key request limit over a sliding window, using the two-window approximation:
+ * the count of the previous fixed window is weighted by how much of it still
+ * overlaps the sliding window and added to the current count. Each key costs one
+ * small entry instead of a timestamp per request.
+ *
+ * Keys are spread over lock stripes, each an access-ordered map, so threads only
+ * contend when their keys hash to the same stripe. Memory is bounded: a stripe drops
+ * its least recently used key when full, and keys idle for two windows (whose count
+ * can no longer matter) are dropped as the stripe is used.
+ */
+public final class SlidingWindowRateLimiter {
+
+    private final int limit;
+    private final long windowMillis;
+    private final int maxKeysPerStripe;
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final LongSupplier clock;
+
+    public SlidingWindowRateLimiter(int limit, long windowMillis, int maxKeys) {
+        this(limit, windowMillis, maxKeys, Runtime.getRuntime().availableProcessors() * 4,
+                System::currentTimeMillis);
+    }
+
+    SlidingWindowRateLimiter(int limit, long windowMillis, int maxKeys, int stripeCount, LongSupplier clock) {
+        if (limit <= 0 || windowMillis <= 0 || maxKeys <= 0) {
+            throw new IllegalArgumentException("Limit, window and key count must be positive");
+        }
+        int stripesPow2 = Integer.highestOneBit(Math.max(1, Math.min(stripeCount, maxKeys)) * 2 - 1);
+        this.limit = limit;
+        this.windowMillis = windowMillis;
+        this.maxKeysPerStripe = Math.max(1, maxKeys / stripesPow2);
+        this.stripes = new Stripe[stripesPow2];
+        for (int i = 0; i < stripesPow2; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.stripeMask = stripesPow2 - 1;
+        this.clock = clock;
+    }
+
+    /**
+     * Count a request for the key if it is within the limit
+     * @return 0 if the request is allowed, otherwise the milliseconds until the current
+     * window ends, after which the key has room again
+     */
+    public long tryAcquire(String key) {
+        long now = clock.getAsLong();
+        long windowStart = now - Math.floorMod(now, windowMillis);
+        Stripe stripe = stripes[spread(key.hashCode()) & stripeMask];
+
+        stripe.lock.lock();
+        try {
+            stripe.evictIdle(windowStart - windowMillis);
+            Counter counter = stripe.counters.get(key);
+            if (counter == null) {
+                counter = new Counter(windowStart);
+                stripe.counters.put(key, counter);
+            } else {
+                counter.roll(windowStart, windowMillis);
+            }
+
+            double previousWeight = 1.0 - (double) (now - windowStart) / windowMillis;
+            double estimate = counter.previous * previousWeight + counter.current;
+            if (estimate + 1 > limit) {
+                return windowStart + windowMillis - now;
+            }
+            counter.current++;
+            return 0;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Forget the key, e.g. after a successful login
+     */
+    public void reset(String key) {
+        Stripe stripe = stripes[spread(key.hashCode()) & stripeMask];
+        stripe.lock.lock();
+        try {
+            stripe.counters.remove(key);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                size += stripe.counters.size();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+
+        final LinkedHashMap<String, Counter> counters = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Counter> eldest) {
+                return size() > maxKeysPerStripe;
+            }
+        };
+
+        /**
+         * Entries are in access order, so idle ones are at the head
+         */
+        void evictIdle(long expiredBefore) {
+            Iterator<Counter> iterator = counters.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().windowStart >= expiredBefore) {
+                    return;
+                }
+                iterator.remove();
+            }
+        }
+    }
+
+    private static final class Counter {
+        long windowStart;
+        int previous;
+        int current;
+
+        Counter(long windowStart) {
+            this.windowStart = windowStart;
+        }
+
+        void roll(long newWindowStart, long windowMillis) {
+            if (newWindowStart == windowStart) {
+                return;
+            }
+            previous = newWindowStart - windowStart == windowMillis ? current : 0;
+            current = 0;
+            windowStart = newWindowStart;
+        }
+    }
+}
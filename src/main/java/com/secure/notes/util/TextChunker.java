@@ -0,0 +1,74 @@
+package com.secure.notes.util;
+
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits long text into pieces of at most a given length for the AI provider.
+ * Cuts prefer a line break, then a sentence end, then whitespace. The pieces are
+ * contiguous substrings, so concatenating them gives back the input exactly.
+ */
+public final class TextChunker {
+
+    private TextChunker() {
+    }
+
+    public static List<String> split(String text, int maxChars) {
+        if (maxChars <= 0) {
+            throw new IllegalArgumentException("maxChars must be positive");
+        }
+        if (text == null || text.isEmpty()) {
+            return List.of("");
+        }
+        if (text.length() <= maxChars) {
+            return List.of(text);
+        }
+
+        BreakIterator sentences = BreakIterator.getSentenceInstance(Locale.ROOT);
+        sentences.setText(text);
+
+        List<String> chunks = new ArrayList<>();
+        int start = 0;
+        int lastSentence = 0;
+        int lastParagraph = 0;
+        for (int end = sentences.next(); end != BreakIterator.DONE; end = sentences.next()) {
+            while (end - start > maxChars) {
+                int cut;
+                // A line break is the best cut, as long as it does not leave a tiny chunk
+                if (lastParagraph > start && lastParagraph - start >= maxChars / 2) {
+                    cut = lastParagraph;
+                } else if (lastSentence > start) {
+                    cut = lastSentence;
+                } else {
+                    cut = whitespaceCut(text, start, maxChars);
+                }
+                chunks.add(text.substring(start, cut));
+                start = cut;
+            }
+            lastSentence = end;
+            if (text.charAt(end - 1) == '\n') {
+                lastParagraph = end;
+            }
+        }
+        if (start < text.length()) {
+            chunks.add(text.substring(start));
+        }
+        return chunks;
+    }
+
+    /**
+     * Cut a run without sentence breaks at its last whitespace, or at the limit if there is none
+     */
+    private static int whitespaceCut(String text, int start, int maxChars) {
+        int limit = start + maxChars;
+        for (int i = limit; i > start + maxChars / 2; i--) {
+            if (Character.isWhitespace(text.charAt(i - 1))) {
+                return i;
+            }
+        }
+        // Never split a surrogate pair
+        return Character.isHighSurrogate(text.charAt(limit - 1)) && limit - 1 > start ? limit - 1 : limit;
+    }
+}
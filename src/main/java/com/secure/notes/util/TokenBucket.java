@@ -0,0 +1,79 @@
+package com.secure.notes.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket rate limiter. Tokens refill continuously at a fixed rate up to the
+ * capacity (the allowed burst). A request larger than what is available takes the
+ * balance negative and waits until it is paid back, so requests bigger than the
+ * capacity still pass at the long-run rate instead of blocking forever.
+ */
+public final class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private final LongSupplier nanoClock;
+
+    private double available;
+    private long lastRefill;
+
+    public TokenBucket(double tokensPerSecond, double capacity) {
+        this(tokensPerSecond, capacity, System::nanoTime);
+    }
+
+    TokenBucket(double tokensPerSecond, double capacity, LongSupplier nanoClock) {
+        if (tokensPerSecond <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("Rate and capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.nanoClock = nanoClock;
+        this.available = capacity;
+        this.lastRefill = nanoClock.getAsLong();
+    }
+
+    /**
+     * Take the tokens, waiting as long as needed
+     * @return Nanoseconds spent waiting
+     */
+    public long acquire(int tokens) throws InterruptedException {
+        long wait = reserve(tokens);
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        return wait;
+    }
+
+    /**
+     * Take the tokens now and return how long the caller has to wait before using them
+     */
+    synchronized long reserve(int tokens) {
+        refill();
+        available -= tokens;
+        if (available >= 0) {
+            return 0;
+        }
+        return (long) Math.ceil(-available / tokensPerNano);
+    }
+
+    /**
+     * Stop handing out tokens for the given time, e.g. after the provider answered
+     * 429 with a Retry-After
+     */
+    public synchronized void holdOff(long nanos) {
+        refill();
+        available = Math.min(available, 0) - nanos * tokensPerNano;
+    }
+
+    public synchronized double getAvailable() {
+        refill();
+        return available;
+    }
+
+    private void refill() {
+        long now = nanoClock.getAsLong();
+        available = Math.min(capacity, available + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,63 @@
+package db.migration;
+
+import com.secure.notes.models.Note;
+import com.secure.notes.util.NoteContentCodec;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Stores the length, hash and preview of each note next to it, so the summary list
+ * no longer reads every body. The backfill runs in Java with the same code that
+ * maintains the columns on write (MySQL's SHA2 is not available everywhere the
+ * migrations run, and the values must match exactly).
+ */
+public class V10__Note_content_summary extends BaseJavaMigration {
+
+    private static final int BATCH_SIZE = 500;
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE note ADD COLUMN content_length BIGINT");
+            statement.execute("ALTER TABLE note ADD COLUMN content_hash VARCHAR(64)");
+            statement.execute("ALTER TABLE note ADD COLUMN content_preview VARCHAR("
+                    + Note.STORED_PREVIEW_LENGTH + ")");
+        }
+
+        // Keyset batches rather than one streamed result, which would keep the
+        // connection from running the updates
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT id, content FROM note WHERE id > ? ORDER BY id LIMIT " + BATCH_SIZE);
+             PreparedStatement update = connection.prepareStatement(
+                     "UPDATE note SET content_length = ?, content_hash = ?, content_preview = ? WHERE id = ?")) {
+            long afterId = 0;
+            while (true) {
+                select.setLong(1, afterId);
+                int rows = 0;
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        afterId = rs.getLong(1);
+                        String content = rs.getString(2);
+                        update.setLong(1, NoteContentCodec.charLength(content));
+                        update.setString(2, NoteContentCodec.sha256Hex(content));
+                        update.setString(3, NoteContentCodec.preview(content, Note.STORED_PREVIEW_LENGTH));
+                        update.setLong(4, afterId);
+                        update.addBatch();
+                        rows++;
+                    }
+                }
+                if (rows == 0) {
+                    break;
+                }
+                update.executeBatch();
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+-- Schema as previously created by spring.jpa.hibernate.ddl-auto=update.
+-- Existing databases are baselined at version 1 and skip this script.
+
+CREATE TABLE roles (
+    role_id   INT NOT NULL AUTO_INCREMENT,
+    role_name ENUM ('ROLE_USER', 'ROLE_ADMIN'),
+    PRIMARY KEY (role_id)
+);
+
+CREATE TABLE users (
+    user_id                 BIGINT       NOT NULL AUTO_INCREMENT,
+    username                VARCHAR(20),
+    email                   VARCHAR(50),
+    password                VARCHAR(120),
+    account_non_locked      BIT          NOT NULL,
+    account_non_expired     BIT          NOT NULL,
+    credentials_non_expired BIT          NOT NULL,
+    enabled                 BIT          NOT NULL,
+    credentials_expiry_date DATE,
+    account_expiry_date     DATE,
+    two_factor_secret       VARCHAR(255),
+    is_two_factor_enabled   BIT          NOT NULL,
+    sign_up_method          VARCHAR(255),
+    role_id                 INT,
+    created_date            DATETIME(6),
+    updated_date            DATETIME(6),
+    PRIMARY KEY (user_id),
+    CONSTRAINT uk_users_username UNIQUE (username),
+    CONSTRAINT uk_users_email UNIQUE (email),
+    CONSTRAINT fk_users_role FOREIGN KEY (role_id) REFERENCES roles (role_id)
+);
+
+CREATE TABLE note (
+    id             BIGINT NOT NULL AUTO_INCREMENT,
+    content        LONGTEXT,
+    owner_username VARCHAR(255),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE audit_log (
+    id           BIGINT NOT NULL AUTO_INCREMENT,
+    action       VARCHAR(255),
+    username     VARCHAR(255),
+    note_id      BIGINT,
+    note_content VARCHAR(255),
+    timestamp    DATETIME(6),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE password_reset_token (
+    id          BIGINT       NOT NULL AUTO_INCREMENT,
+    token       VARCHAR(255) NOT NULL,
+    expiry_date DATETIME(6)  NOT NULL,
+    used        BIT          NOT NULL,
+    user_id     BIGINT       NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_password_reset_token_token UNIQUE (token),
+    CONSTRAINT fk_password_reset_token_user FOREIGN KEY (user_id) REFERENCES users (user_id)
+);
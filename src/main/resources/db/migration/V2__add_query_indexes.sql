@@ -0,0 +1,17 @@
+-- Indexes matching the query shapes in NoteRepository, AuditLogRepository
+-- and PasswordResetTokenRepository.
+
+-- findByOwnerUsername, keyset pages and summaries: owner_username = ? AND id > ? ORDER BY id
+CREATE INDEX idx_note_owner_id ON note (owner_username, id);
+
+-- findByNoteId, history of one note in time order
+CREATE INDEX idx_audit_log_note_time ON audit_log (note_id, timestamp);
+
+-- time range listing of the whole audit log
+CREATE INDEX idx_audit_log_time_id ON audit_log (timestamp, id);
+
+-- countExpiredTokens / deleteExpiredTokens: expiry_date < ?
+CREATE INDEX idx_password_reset_token_expiry ON password_reset_token (expiry_date);
+
+-- countUsedTokens / deleteUsedTokens: used = true
+CREATE INDEX idx_password_reset_token_used ON password_reset_token (used);
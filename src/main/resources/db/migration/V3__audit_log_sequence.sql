@@ -0,0 +1,8 @@
+-- Sequence table backing the pooled id generator of AuditLog (MySQL has no native sequences).
+-- Start above the current max id plus one allocation block so generated ids never collide.
+CREATE TABLE audit_log_seq (
+    next_val BIGINT
+);
+
+INSERT INTO audit_log_seq (next_val)
+SELECT COALESCE(MAX(id), 0) + 51 FROM audit_log;
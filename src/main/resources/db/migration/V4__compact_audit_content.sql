@@ -0,0 +1,7 @@
+-- Audit entries store a content hash plus a compressed delta or snapshot instead of the full note.
+ALTER TABLE audit_log ADD COLUMN revision INT;
+ALTER TABLE audit_log ADD COLUMN content_hash VARCHAR(64);
+ALTER TABLE audit_log ADD COLUMN snapshot BIT NOT NULL DEFAULT 0;
+ALTER TABLE audit_log ADD COLUMN content_delta LONGBLOB;
+
+ALTER TABLE note ADD COLUMN revision INT NOT NULL DEFAULT 0;
@@ -0,0 +1,12 @@
+-- Persistent tier of the Hinglish conversion cache, keyed by SHA-256 of model, temperature and input text
+CREATE TABLE ai_conversion_cache (
+    cache_key           VARCHAR(64) NOT NULL,
+    model               VARCHAR(255),
+    converted_text      LONGTEXT,
+    upstream_latency_ms BIGINT      NOT NULL,
+    size_bytes          INT         NOT NULL,
+    created_at          DATETIME(6) NOT NULL,
+    PRIMARY KEY (cache_key)
+);
+
+CREATE INDEX idx_ai_conversion_cache_created ON ai_conversion_cache (created_at);
@@ -0,0 +1,22 @@
+-- Transactional outbox for outgoing email. Rows are written in the same transaction as the
+-- data they announce and sent later by EmailOutboxService.
+CREATE TABLE email_outbox (
+    id                  BIGINT       NOT NULL AUTO_INCREMENT,
+    idempotency_key     VARCHAR(100) NOT NULL,
+    template            VARCHAR(50)  NOT NULL,
+    recipient           VARCHAR(255) NOT NULL,
+    payload             TEXT,
+    status              VARCHAR(20)  NOT NULL,
+    attempts            INT          NOT NULL,
+    next_attempt_at     DATETIME(6)  NOT NULL,
+    locked_until        DATETIME(6),
+    last_error          VARCHAR(1000),
+    provider_message_id VARCHAR(255),
+    created_at          DATETIME(6)  NOT NULL,
+    sent_at             DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_email_outbox_idempotency_key UNIQUE (idempotency_key)
+);
+
+-- Worker poll: due PENDING rows in next_attempt_at order
+CREATE INDEX idx_email_outbox_status_next ON email_outbox (status, next_attempt_at);
@@ -0,0 +1,26 @@
+-- Bulk notification runs. last_user_id is the keyset cursor over users, so a run
+-- resumes after the last batch the provider accepted.
+CREATE TABLE bulk_email_job (
+    id                 BIGINT       NOT NULL AUTO_INCREMENT,
+    template           VARCHAR(50)  NOT NULL,
+    audience           VARCHAR(30)  NOT NULL,
+    variables          TEXT,
+    window_start       DATE,
+    window_end         DATE,
+    status             VARCHAR(20)  NOT NULL,
+    last_user_id       BIGINT       NOT NULL,
+    sent_recipients    BIGINT       NOT NULL,
+    failed_recipients  BIGINT       NOT NULL,
+    provider_requests  BIGINT       NOT NULL,
+    last_error         VARCHAR(1000),
+    created_at         DATETIME(6)  NOT NULL,
+    started_at         DATETIME(6),
+    updated_at         DATETIME(6),
+    finished_at        DATETIME(6),
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_bulk_email_job_status ON bulk_email_job (status);
+
+-- Password expiry notices select users by credentials_expiry_date
+CREATE INDEX idx_users_credentials_expiry ON users (credentials_expiry_date, user_id);
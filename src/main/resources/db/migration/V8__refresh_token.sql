@@ -0,0 +1,20 @@
+-- Refresh tokens, stored as the SHA-256 of the token so a database read does not yield
+-- usable tokens. Every token of one login shares family_id; a token is used once and
+-- replaced by a new one in the family, and presenting a used token revokes the family.
+CREATE TABLE refresh_token (
+    id          BIGINT      NOT NULL AUTO_INCREMENT,
+    token_hash  CHAR(64)    NOT NULL,
+    user_id     BIGINT      NOT NULL,
+    family_id   VARCHAR(36) NOT NULL,
+    created_at  DATETIME(6) NOT NULL,
+    expires_at  DATETIME(6) NOT NULL,
+    used_at     DATETIME(6),
+    revoked     BIT         NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_refresh_token_hash UNIQUE (token_hash),
+    CONSTRAINT fk_refresh_token_user FOREIGN KEY (user_id) REFERENCES users (user_id)
+);
+
+CREATE INDEX idx_refresh_token_family ON refresh_token (family_id);
+CREATE INDEX idx_refresh_token_user ON refresh_token (user_id);
+CREATE INDEX idx_refresh_token_expires ON refresh_token (expires_at);
@@ -0,0 +1,14 @@
+-- Key pairs for ES256/EdDSA token signing. Shared by all instances, so a token signed
+-- by one verifies on every other. The private key is AES-GCM encrypted under a key
+-- derived from spring.app.jwtSecret; the public key is X.509 encoded and published
+-- at /.well-known/jwks.json.
+CREATE TABLE jwt_signing_key (
+    id           BIGINT         NOT NULL AUTO_INCREMENT,
+    kid          VARCHAR(64)    NOT NULL,
+    algorithm    VARCHAR(10)    NOT NULL,
+    public_key   VARBINARY(512) NOT NULL,
+    private_key  VARBINARY(512) NOT NULL,
+    created_at   DATETIME(6)    NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_jwt_signing_key_kid UNIQUE (kid)
+);
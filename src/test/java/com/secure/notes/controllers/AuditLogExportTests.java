@@ -0,0 +1,111 @@
+package com.secure.notes.controllers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.secure.notes.dtos.AuditLogExportRow;
+import com.secure.notes.dtos.AuditLogFilter;
+import com.secure.notes.services.AuditLogService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class AuditLogExportTests {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 1, 12, 0, 5);
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final AuditLogService auditLogService = mock(AuditLogService.class);
+    private final AuditLogController controller = new AuditLogController();
+    private final List<AuditLogExportRow> rows = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(controller, "auditLogService", auditLogService);
+        ReflectionTestUtils.setField(controller, "objectMapper", objectMapper);
+        doAnswer(invocation -> {
+            Consumer<AuditLogExportRow> consumer = invocation.getArgument(1);
+            rows.forEach(consumer);
+            return null;
+        }).when(auditLogService).streamAuditLogs(any(), any());
+    }
+
+    @Test
+    void csvHasAHeaderAndOneLinePerRow() throws IOException {
+        rows.add(new AuditLogExportRow(1L, T0, "CREATE", "alice", 10L, 1, "abc123"));
+        rows.add(new AuditLogExportRow(2L, T0.plusSeconds(1), "DELETE", "bob", 11L, null, null));
+
+        ResponseEntity<StreamingResponseBody> response = controller.exportAuditLogs(new AuditLogFilter(), "csv");
+
+        assertThat(response.getHeaders().getContentType().isCompatibleWith(MediaType.valueOf("text/csv"))).isTrue();
+        assertThat(response.getHeaders().getContentDisposition().getFilename()).isEqualTo("audit-logs.csv");
+        assertThat(write(response)).isEqualTo("""
+                id,timestamp,action,username,noteId,revision,contentHash
+                1,2026-01-01T12:00:05,CREATE,alice,10,1,abc123
+                2,2026-01-01T12:00:06,DELETE,bob,11,,
+                """);
+    }
+
+    @Test
+    void csvQuotesFieldsWithSeparatorsQuotesAndLineBreaks() throws IOException {
+        rows.add(new AuditLogExportRow(1L, T0, "UPDATE", "a,b", 1L, 1, "h"));
+        rows.add(new AuditLogExportRow(2L, T0, "UPDATE", "say \"hi\"", 1L, 2, "h"));
+        rows.add(new AuditLogExportRow(3L, T0, "UPDATE", "line\nbreak", 1L, 3, "h"));
+        rows.add(new AuditLogExportRow(4L, T0, "UPDATE", "carriage\rreturn", 1L, 4, "h"));
+
+        String csv = write(controller.exportAuditLogs(new AuditLogFilter(), "CSV"));
+
+        assertThat(csv).contains("1,2026-01-01T12:00:05,UPDATE,\"a,b\",1,1,h\n")
+                .contains(",\"say \"\"hi\"\"\",")
+                .contains(",\"line\nbreak\",")
+                .contains(",\"carriage\rreturn\",");
+    }
+
+    @Test
+    void ndjsonWritesOneObjectPerLineWithOnlyTheExportedFields() throws IOException {
+        rows.add(new AuditLogExportRow(1L, T0, "CREATE", "alice", 10L, 1, "abc123"));
+        rows.add(new AuditLogExportRow(2L, T0.plusSeconds(1), "UPDATE", "line\nbreak", 10L, 2, "def456"));
+
+        ResponseEntity<StreamingResponseBody> response = controller.exportAuditLogs(new AuditLogFilter(), "ndjson");
+
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON);
+        String[] lines = write(response).split("\n");
+        assertThat(lines).hasSize(2);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertThat(first.fieldNames()).toIterable().containsExactly(
+                "id", "timestamp", "action", "username", "noteId", "revision", "contentHash");
+        assertThat(first.get("timestamp").asText()).isEqualTo("2026-01-01T12:00:05");
+        assertThat(first.get("revision").asInt()).isEqualTo(1);
+        assertThat(objectMapper.readTree(lines[1]).get("username").asText()).isEqualTo("line\nbreak");
+    }
+
+    @Test
+    void emptyExportIsJustTheHeaderOrNothing() throws IOException {
+        assertThat(write(controller.exportAuditLogs(new AuditLogFilter(), "csv")))
+                .isEqualTo("id,timestamp,action,username,noteId,revision,contentHash\n");
+        assertThat(write(controller.exportAuditLogs(new AuditLogFilter(), "ndjson"))).isEmpty();
+    }
+
+    private static String write(ResponseEntity<StreamingResponseBody> response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
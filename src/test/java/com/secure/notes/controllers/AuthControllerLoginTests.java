@@ -0,0 +1,183 @@
+package com.secure.notes.controllers;
+
+import com.secure.notes.security.jwt.JwtKeyStore;
+import com.secure.notes.security.jwt.JwtSigningAlgorithm;
+import com.secure.notes.security.jwt.JwtUtils;
+import com.secure.notes.security.jwt.TokenRevocationList;
+import com.secure.notes.security.request.LoginRequest;
+import com.secure.notes.security.response.LoginResponse;
+import com.secure.notes.security.services.PasswordUpgradeService;
+import com.secure.notes.security.services.UserDetailsImpl;
+import com.secure.notes.services.RefreshTokenService;
+import com.secure.notes.services.UserService;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuthControllerLoginTests {
+
+    private static final int VALID_CODE = 123456;
+    private static final int WRONG_CODE = 654321;
+
+    private final AuthenticationManager authenticationManager = mock(AuthenticationManager.class);
+    private final UserService userService = mock(UserService.class);
+    private final RefreshTokenService refreshTokenService = mock(RefreshTokenService.class);
+    private final TokenRevocationList tokenRevocationList = new TokenRevocationList();
+    private final JwtUtils jwtUtils = newJwtUtils();
+    private final UserDetailsImpl user = new UserDetailsImpl(7L, "alice", "alice@example.com", "{noop}pw", true,
+            List.of(new SimpleGrantedAuthority("ROLE_USER")));
+    private AuthController controller;
+
+    @BeforeEach
+    void setUp() {
+        when(authenticationManager.authenticate(any())).thenAnswer(invocation -> {
+            UsernamePasswordAuthenticationToken request = invocation.getArgument(0);
+            if (!"pw".equals(request.getCredentials())) {
+                throw new BadCredentialsException("Bad credentials");
+            }
+            return new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+        });
+        when(userService.validate2FACode(7L, VALID_CODE)).thenReturn(true);
+        when(refreshTokenService.issue(any()))
+                .thenReturn(new RefreshTokenService.IssuedTokens("access-token", "refresh-token"));
+
+        controller = new AuthController();
+        ReflectionTestUtils.setField(controller, "authenticationManager", authenticationManager);
+        ReflectionTestUtils.setField(controller, "userService", userService);
+        ReflectionTestUtils.setField(controller, "refreshTokenService", refreshTokenService);
+        ReflectionTestUtils.setField(controller, "tokenRevocationList", tokenRevocationList);
+        ReflectionTestUtils.setField(controller, "jwtUtils", jwtUtils);
+        ReflectionTestUtils.setField(controller, "passwordUpgradeService", mock(PasswordUpgradeService.class));
+    }
+
+    private static JwtUtils newJwtUtils() {
+        JwtKeyStore keyStore = mock(JwtKeyStore.class);
+        when(keyStore.getAlgorithm()).thenReturn(JwtSigningAlgorithm.HS256);
+
+        JwtUtils jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret",
+                "c2VjcmV0c2VjcmV0c2VjcmV0c2VjcmV0c2VjcmV0MTIzNDU2Nzg5MA==");
+        ReflectionTestUtils.setField(jwtUtils, "jwtKeyStore", keyStore);
+        ReflectionTestUtils.setField(jwtUtils, "accessTokenExpirationMs", 900_000L);
+        ReflectionTestUtils.setField(jwtUtils, "preAuthExpirationMs", 300_000L);
+        ReflectionTestUtils.setField(jwtUtils, "jwtCacheMaxSize", 100);
+        ReflectionTestUtils.invokeMethod(jwtUtils, "init");
+        return jwtUtils;
+    }
+
+    @Test
+    void loginWithoutCodeReturnsAChallengeAndNoJwt() {
+        ResponseEntity<?> response = controller.login(loginRequest("pw", null));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        LoginResponse body = (LoginResponse) response.getBody();
+        assertThat(body.getTwoFactorRequired()).isTrue();
+        assertThat(body.getJwtToken()).isNull();
+        assertThat(body.getRefreshToken()).isNull();
+        assertThat(body.getPreAuthToken()).isNotBlank();
+        verify(refreshTokenService, never()).issue(any());
+    }
+
+    @Test
+    void loginWithValidCodeIssuesTheFinalTokenInOneRequest() {
+        ResponseEntity<?> response = controller.login(loginRequest("pw", VALID_CODE));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        LoginResponse body = (LoginResponse) response.getBody();
+        assertThat(body.getJwtToken()).isEqualTo("access-token");
+        assertThat(body.getTwoFactorRequired()).isFalse();
+    }
+
+    @Test
+    void loginWithWrongCodeIs401WithAChallengeToRetry() {
+        ResponseEntity<?> response = controller.login(loginRequest("pw", WRONG_CODE));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        LoginResponse body = (LoginResponse) response.getBody();
+        assertThat(body.getJwtToken()).isNull();
+        assertThat(body.getPreAuthToken()).isNotBlank();
+        verify(refreshTokenService, never()).issue(any());
+    }
+
+    @Test
+    void loginWithWrongPasswordNeverChecksTheCode() {
+        ResponseEntity<?> response = controller.login(loginRequest("wrong", VALID_CODE));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        verify(userService, never()).validate2FACode(anyLong(), anyInt());
+    }
+
+    @Test
+    void secondStepWithValidCodeIssuesTheFinalToken() {
+        String preAuthToken = challenge();
+
+        ResponseEntity<?> response = controller.completeTwoFactorLogin(preAuthToken, VALID_CODE);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        LoginResponse body = (LoginResponse) response.getBody();
+        assertThat(body.getJwtToken()).isEqualTo("access-token");
+        assertThat(body.getRefreshToken()).isEqualTo("refresh-token");
+        // The user comes from the pre-auth token's claims, not from the database
+        verify(refreshTokenService).issue(argThat(issued -> issued.getId() == 7L
+                && "alice".equals(issued.getUsername()) && issued.getPassword() == null));
+    }
+
+    @Test
+    void secondStepWithWrongCodeIs401() {
+        ResponseEntity<?> response = controller.completeTwoFactorLogin(challenge(), WRONG_CODE);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        verify(refreshTokenService, never()).issue(any());
+    }
+
+    @Test
+    void secondStepRefusesAnAccessToken() {
+        String accessToken = jwtUtils.generateAccessToken(user, "session-1");
+
+        ResponseEntity<?> response = controller.completeTwoFactorLogin(accessToken, VALID_CODE);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        verify(userService, never()).validate2FACode(anyLong(), anyInt());
+    }
+
+    @Test
+    void secondStepRefusesAPreAuthTokenIssuedBeforeARevocation() {
+        String preAuthToken = challenge();
+        tokenRevocationList.revokeAllTokens("alice");
+
+        ResponseEntity<?> response = controller.completeTwoFactorLogin(preAuthToken, VALID_CODE);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+    }
+
+    private String challenge() {
+        return ((LoginResponse) controller.login(loginRequest("pw", null)).getBody()).getPreAuthToken();
+    }
+
+    private static LoginRequest loginRequest(String password, Integer code) {
+        LoginRequest request = new LoginRequest();
+        request.setUsername("alice");
+        request.setPassword(password);
+        request.setCode(code);
+        return request;
+    }
+}
@@ -0,0 +1,57 @@
+package com.secure.notes.repositories;
+
+import com.secure.notes.util.NoteContentCodec;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The V10 backfill against H2 in MySQL mode: notes written before the migration get
+ * the same length, hash and preview that Note.setContent stores for new ones.
+ */
+class NoteSummaryMigrationTests {
+
+    private static final String URL = "jdbc:h2:mem:note_summary_migration;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    @Test
+    void existingNotesAreBackfilled() throws SQLException {
+        Flyway.configure().dataSource(URL, "sa", "").locations("classpath:db/migration")
+                .target("9").load().migrate();
+
+        // More rows than one backfill batch, a null body and text outside the BMP
+        String emoji = "caf\u00e9 \ud83d\ude00 ";
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+             PreparedStatement insert = connection.prepareStatement(
+                     "INSERT INTO note (content, owner_username) VALUES (?, 'alice')")) {
+            for (int i = 0; i < 1200; i++) {
+                insert.setString(1, i == 0 ? null : emoji.repeat(i % 150));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+
+        Flyway.configure().dataSource(URL, "sa", "").locations("classpath:db/migration").load().migrate();
+
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+             PreparedStatement select = connection.prepareStatement(
+                     "SELECT content, content_length, content_hash, content_preview FROM note");
+             ResultSet rs = select.executeQuery()) {
+            int rows = 0;
+            while (rs.next()) {
+                String content = rs.getString(1);
+                assertThat(rs.getLong(2)).isEqualTo(NoteContentCodec.charLength(content));
+                assertThat(rs.getString(3)).isEqualTo(NoteContentCodec.sha256Hex(content));
+                assertThat(rs.getString(4)).isEqualTo(NoteContentCodec.preview(content, 500));
+                rows++;
+            }
+            assertThat(rows).isEqualTo(1200);
+        }
+    }
+}
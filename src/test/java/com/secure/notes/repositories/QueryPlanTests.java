@@ -0,0 +1,87 @@
+package com.secure.notes.repositories;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the Flyway migrations against H2 in MySQL mode and checks that the
+ * hot repository queries are answered from an index rather than a table scan.
+ */
+class QueryPlanTests {
+
+    private static final String URL = "jdbc:h2:mem:query_plan;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    private static Connection connection;
+
+    @BeforeAll
+    static void migrate() throws SQLException {
+        Flyway.configure()
+                .dataSource(URL, "sa", "")
+                .locations("classpath:db/migration")
+                .load()
+                .migrate();
+        connection = DriverManager.getConnection(URL, "sa", "");
+    }
+
+    @AfterAll
+    static void close() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void notesByOwnerUseOwnerIndex() throws SQLException {
+        assertUsesIndex("SELECT * FROM note WHERE owner_username = 'alice'",
+                "idx_note_owner_id");
+    }
+
+    @Test
+    void noteKeysetPageUsesOwnerIndex() throws SQLException {
+        assertUsesIndex("SELECT * FROM note WHERE owner_username = 'alice' AND id > 100 ORDER BY id LIMIT 21",
+                "idx_note_owner_id");
+    }
+
+    @Test
+    void auditLogsByNoteUseNoteIndex() throws SQLException {
+        assertUsesIndex("SELECT * FROM audit_log WHERE note_id = 42",
+                "idx_audit_log_note_time");
+    }
+
+    @Test
+    void auditLogTimeRangeUsesTimeIndex() throws SQLException {
+        assertUsesIndex("SELECT * FROM audit_log WHERE timestamp >= '2024-01-01 00:00:00' ORDER BY timestamp, id",
+                "idx_audit_log_time_id");
+    }
+
+    @Test
+    void expiredResetTokensUseExpiryIndex() throws SQLException {
+        assertUsesIndex("SELECT COUNT(*) FROM password_reset_token WHERE expiry_date < '2024-01-01 00:00:00'",
+                "idx_password_reset_token_expiry");
+    }
+
+    private void assertUsesIndex(String sql, String indexName) throws SQLException {
+        String plan = explain(sql);
+        assertThat(plan).containsIgnoringCase(indexName);
+        assertThat(plan).doesNotContainIgnoringCase("tableScan");
+    }
+
+    private String explain(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("EXPLAIN " + sql)) {
+            StringBuilder plan = new StringBuilder();
+            while (rs.next()) {
+                plan.append(rs.getString(1)).append('\n');
+            }
+            return plan.toString();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.secure.notes.security;
+
+import com.secure.notes.util.SlidingWindowRateLimiter;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class AuthRateLimitFilterTests {
+
+    private static final String PROXY = "10.0.0.1";
+
+    private final FilterChain filterChain = mock(FilterChain.class);
+    private final AuthRateLimitFilter filter = new AuthRateLimitFilter(
+            new SlidingWindowRateLimiter(2, 60_000, 1000),
+            new SlidingWindowRateLimiter(100, 60_000, 1000),
+            1);
+
+    @Test
+    void clientsBehindTheSameProxyHaveTheirOwnLimit() throws Exception {
+        assertThat(forgotPassword("203.0.113.5")).isEqualTo(200);
+        assertThat(forgotPassword("203.0.113.5")).isEqualTo(200);
+        assertThat(forgotPassword("203.0.113.5")).isEqualTo(429);
+
+        // Same proxy socket address, different client: not affected by the first one
+        assertThat(forgotPassword("198.51.100.7")).isEqualTo(200);
+        assertThat(forgotPassword("198.51.100.7")).isEqualTo(200);
+    }
+
+    @Test
+    void forgedLeftmostEntriesDoNotEscapeTheLimit() throws Exception {
+        assertThat(forgotPassword("1.1.1.1, 203.0.113.5")).isEqualTo(200);
+        assertThat(forgotPassword("2.2.2.2, 203.0.113.5")).isEqualTo(200);
+        assertThat(forgotPassword("3.3.3.3, 203.0.113.5")).isEqualTo(429);
+    }
+
+    @Test
+    void clientAddressFallsBackToTheSocketAddress() {
+        MockHttpServletRequest request = request(null);
+        assertThat(filter.clientAddress(request)).isEqualTo(PROXY);
+
+        AuthRateLimitFilter direct = new AuthRateLimitFilter(
+                new SlidingWindowRateLimiter(2, 60_000, 1000),
+                new SlidingWindowRateLimiter(2, 60_000, 1000));
+        assertThat(direct.clientAddress(request("203.0.113.5"))).isEqualTo(PROXY);
+    }
+
+    private int forgotPassword(String forwardedFor) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(forwardedFor), response, filterChain);
+        return response.getStatus();
+    }
+
+    private static MockHttpServletRequest request(String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", AuthRateLimitFilter.FORGOT_PASSWORD);
+        request.setServletPath(AuthRateLimitFilter.FORGOT_PASSWORD);
+        request.setRemoteAddr(PROXY);
+        if (forwardedFor != null) {
+            request.addHeader("X-Forwarded-For", forwardedFor);
+        }
+        return request;
+    }
+}
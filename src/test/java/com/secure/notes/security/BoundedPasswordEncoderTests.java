@@ -0,0 +1,122 @@
+package com.secure.notes.security;
+
+import com.secure.notes.exceptions.PasswordHashingBusyException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedPasswordEncoderTests {
+
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private BoundedPasswordEncoder encoder;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        callers.shutdownNow();
+        if (encoder != null) {
+            encoder.close();
+        }
+    }
+
+    @Test
+    void fullQueueRejectsInsteadOfWaiting() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        encoder = new BoundedPasswordEncoder(new BlockingEncoder(release), 1, 1);
+
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("a"), callers);
+        awaitStats(1, 0);
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("b"), callers);
+        awaitStats(1, 1);
+
+        assertThatThrownBy(() -> encoder.encode("c")).isInstanceOf(PasswordHashingBusyException.class);
+        assertThat(encoder.getStats().rejected()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("hash:a");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("hash:b");
+    }
+
+    @Test
+    void legacyAndWeakerHashesAreReportedForUpgrade() {
+        encoder = new BoundedPasswordEncoder(delegatingBCrypt(5), 2, 8);
+        String legacy = new BCryptPasswordEncoder(5).encode("secret");
+        String weaker = "{bcrypt}" + new BCryptPasswordEncoder(4).encode("secret");
+        String current = encoder.encode("secret");
+
+        assertThat(current).startsWith("{bcrypt}$2a$05$");
+        assertThat(encoder.matches("secret", legacy)).isTrue();
+        assertThat(encoder.matches("secret", weaker)).isTrue();
+        assertThat(encoder.matches("secret", current)).isTrue();
+        assertThat(encoder.matches("wrong", current)).isFalse();
+
+        assertThat(encoder.upgradeEncoding(legacy)).isTrue();
+        assertThat(encoder.upgradeEncoding(weaker)).isTrue();
+        assertThat(encoder.upgradeEncoding(current)).isFalse();
+    }
+
+    @Test
+    void backgroundRehashProducesCurrentEncoding() throws Exception {
+        encoder = new BoundedPasswordEncoder(delegatingBCrypt(5), 1, 8);
+        CompletableFuture<String> newHash = new CompletableFuture<>();
+
+        assertThat(encoder.rehashInBackground("secret", newHash::complete)).isTrue();
+
+        String hash = newHash.get(5, TimeUnit.SECONDS);
+        assertThat(encoder.upgradeEncoding(hash)).isFalse();
+        assertThat(encoder.matches("secret", hash)).isTrue();
+    }
+
+    @Test
+    void calibrationStaysWithinBounds() {
+        assertThat(BCryptCostCalibrator.calibrate(0, 4, 6)).isEqualTo(4);
+        assertThat(BCryptCostCalibrator.calibrate(60_000, 4, 6)).isEqualTo(6);
+    }
+
+    private static PasswordEncoder delegatingBCrypt(int strength) {
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder("bcrypt",
+                Map.of("bcrypt", new BCryptPasswordEncoder(strength)));
+        delegating.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder());
+        return delegating;
+    }
+
+    private void awaitStats(int active, int queued) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            BoundedPasswordEncoder.PasswordHashingStats stats = encoder.getStats();
+            if (stats.active() == active && stats.queued() == queued) {
+                return;
+            }
+            Thread.sleep(5);
+        }
+        throw new AssertionError("Pool did not reach " + active + " active / " + queued + " queued");
+    }
+
+    private record BlockingEncoder(CountDownLatch release) implements PasswordEncoder {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "hash:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.secure.notes.security;
+
+import org.apache.commons.codec.binary.Base32;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TotpVerifierTests {
+
+    // RFC 6238 appendix B SHA-1 seed, Base32 encoded as stored for users
+    private static final byte[] SEED = "12345678901234567890".getBytes(StandardCharsets.US_ASCII);
+    private static final String SECRET = new Base32().encodeToString(SEED);
+    private static final SecretKeySpec KEY = new SecretKeySpec(SEED, "HmacSHA1");
+
+    private final AtomicLong now = new AtomicLong(1_111_111_111_000L);
+    private final AtomicInteger secretLoads = new AtomicInteger();
+    private TotpVerifier verifier;
+
+    @BeforeEach
+    void setUp() {
+        verifier = new TotpVerifier();
+        ReflectionTestUtils.setField(verifier, "secretTtlSeconds", 120L);
+        ReflectionTestUtils.setField(verifier, "secretCacheSize", 100);
+        ReflectionTestUtils.invokeMethod(verifier, "init");
+        verifier.setClock(now::get);
+    }
+
+    @Test
+    void matchesRfc6238Vectors() {
+        assertThat(TotpVerifier.codeAt(KEY, 59 / 30)).isEqualTo(287082);
+        assertThat(TotpVerifier.codeAt(KEY, 1_111_111_109L / 30)).isEqualTo(81804);
+        assertThat(TotpVerifier.codeAt(KEY, 1_111_111_111L / 30)).isEqualTo(50471);
+        assertThat(TotpVerifier.codeAt(KEY, 1_234_567_890L / 30)).isEqualTo(5924);
+        assertThat(TotpVerifier.codeAt(KEY, 2_000_000_000L / 30)).isEqualTo(279037);
+    }
+
+    @Test
+    void codeIsAcceptedOnceAndSecretLoadedOnce() {
+        int code = codeForOffset(0);
+
+        assertThat(verify((code + 1) % 1_000_000)).isFalse();
+        assertThat(verify(code)).isTrue();
+        assertThat(verify(code)).isFalse();
+        assertThat(secretLoads).hasValue(1);
+    }
+
+    @Test
+    void adjacentStepsAreAcceptedButNotOlderThanTheLastUsed() {
+        int next = codeForOffset(1);
+        int previous = codeForOffset(-1);
+
+        assertThat(verify(next)).isTrue();
+        // Valid on its own, but older than the code just used
+        assertThat(verify(previous)).isFalse();
+        assertThat(verify(codeForOffset(0))).isFalse();
+    }
+
+    @Test
+    void codesOutsideTheWindowAreRejected() {
+        assertThat(verify(codeForOffset(2))).isFalse();
+        assertThat(verify(codeForOffset(-2))).isFalse();
+    }
+
+    @Test
+    void usedStepsAreForgottenOnceOutsideTheWindow() {
+        assertThat(verify(codeForOffset(0))).isTrue();
+        verifier.evictExpiredSteps();
+        assertThat(verifier.trackedUsers()).isEqualTo(1);
+
+        now.addAndGet(3 * 30_000L);
+        verifier.evictExpiredSteps();
+
+        assertThat(verifier.trackedUsers()).isZero();
+    }
+
+    @Test
+    void evictedSecretIsLoadedAgain() {
+        verify(codeForOffset(0));
+        verifier.evict(1L);
+        verify(codeForOffset(1));
+
+        assertThat(secretLoads).hasValue(2);
+    }
+
+    @Test
+    void evictDuringALoadIsNotUndoneByThatLoad() throws Exception {
+        byte[] newSeed = "abcdefghijabcdefghij".getBytes(StandardCharsets.US_ASCII);
+        AtomicReference<String> storedSecret = new AtomicReference<>(SECRET);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch finishLoad = new CountDownLatch(1);
+
+        // A login reads the old secret, and is slow to hand it back
+        CompletableFuture<Boolean> login = CompletableFuture.supplyAsync(() ->
+                verifier.verify(1L, codeForOffset(0), id -> {
+                    String secret = storedSecret.get();
+                    loading.countDown();
+                    try {
+                        finishLoad.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return secret;
+                }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Meanwhile the user gets a new secret, which evicts the cached one
+        storedSecret.set(new Base32().encodeToString(newSeed));
+        CompletableFuture<Void> evict = CompletableFuture.runAsync(() -> verifier.evict(1L));
+        Thread.sleep(100);
+        finishLoad.countDown();
+        evict.get(5, TimeUnit.SECONDS);
+        assertThat(login.get(5, TimeUnit.SECONDS)).isTrue();
+
+        // The old secret must not have been cached after the evict
+        now.addAndGet(30_000);
+        int newCode = TotpVerifier.codeAt(new SecretKeySpec(newSeed, "HmacSHA1"), now.get() / 30_000);
+        assertThat(verifier.verify(1L, newCode, id -> storedSecret.get())).isTrue();
+    }
+
+    private boolean verify(int code) {
+        return verifier.verify(1L, code, id -> {
+            secretLoads.incrementAndGet();
+            return SECRET;
+        });
+    }
+
+    private int codeForOffset(int steps) {
+        return TotpVerifier.codeAt(KEY, now.get() / 30_000 + steps);
+    }
+}
@@ -0,0 +1,80 @@
+package com.secure.notes.security.jwt;
+
+import com.secure.notes.security.services.UserDetailsImpl;
+import com.secure.notes.security.services.UserDetailsServiceImpl;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuthTokenFilterTests {
+
+    private final JwtUtils jwtUtils = JwtUtilsTests.newJwtUtils();
+    private final UserDetailsServiceImpl userDetailsService = mock(UserDetailsServiceImpl.class);
+    private final RevokedTokenIndex revokedTokenIndex = new RevokedTokenIndex();
+    private final FilterChain filterChain = mock(FilterChain.class);
+    private final UserDetailsImpl user = new UserDetailsImpl(7L, "alice", "alice@example.com", "{noop}pw", true,
+            List.of(new SimpleGrantedAuthority("ROLE_USER")));
+    private AuthTokenFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        when(userDetailsService.loadUserByUsername("alice")).thenReturn(user);
+        filter = new AuthTokenFilter();
+        ReflectionTestUtils.setField(filter, "jwtUtils", jwtUtils);
+        ReflectionTestUtils.setField(filter, "userDetailsService", userDetailsService);
+        ReflectionTestUtils.setField(filter, "tokenRevocationList", new TokenRevocationList());
+        ReflectionTestUtils.setField(filter, "revokedTokenIndex", revokedTokenIndex);
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void accessTokenAuthenticatesTheRequest() throws Exception {
+        Authentication authentication = filter(jwtUtils.generateAccessToken(user, "session-1"));
+
+        assertThat(authentication).isNotNull();
+        assertThat(authentication.getPrincipal()).isSameAs(user);
+    }
+
+    @Test
+    void preAuthTokenDoesNotAuthenticate() throws Exception {
+        assertThat(filter(jwtUtils.generatePreAuthToken(user))).isNull();
+    }
+
+    @Test
+    void tokenOfARevokedSessionDoesNotAuthenticate() throws Exception {
+        String token = jwtUtils.generateAccessToken(user, "session-1");
+        revokedTokenIndex.revoke("session-1", System.currentTimeMillis() + 60_000);
+
+        assertThat(filter(token)).isNull();
+    }
+
+    private Authentication filter(String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/notes");
+        request.addHeader("Authorization", "Bearer " + token);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, filterChain);
+
+        // The request always continues; the endpoint's own rules reject it if it stayed anonymous
+        verify(filterChain).doFilter(request, response);
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
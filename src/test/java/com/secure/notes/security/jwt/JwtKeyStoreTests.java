@@ -0,0 +1,162 @@
+package com.secure.notes.security.jwt;
+
+import com.secure.notes.models.JwtSigningKey;
+import com.secure.notes.repositories.JwtSigningKeyRepository;
+import com.secure.notes.security.services.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JwtKeyStoreTests {
+
+    private static final String SECRET = "c2VjcmV0c2VjcmV0c2VjcmV0c2VjcmV0c2VjcmV0MTIzNDU2Nzg5MA==";
+
+    private final List<JwtSigningKey> rows = new ArrayList<>();
+    private Instant now = Instant.parse("2026-01-01T00:00:00Z");
+    private JwtKeyStore keyStore;
+
+    @BeforeEach
+    void setUp() {
+        JwtSigningKeyRepository repository = mock(JwtSigningKeyRepository.class);
+        when(repository.save(any())).thenAnswer(invocation -> {
+            rows.add(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+        when(repository.findAllByOrderByCreatedAtDesc()).thenAnswer(invocation -> rows.stream()
+                .sorted(Comparator.comparing(JwtSigningKey::getCreatedAt).reversed())
+                .toList());
+        doAnswer(invocation -> rows.removeAll(invocation.getArgument(0)))
+                .when(repository).deleteAll(anyList());
+
+        keyStore = new JwtKeyStore(repository);
+        ReflectionTestUtils.setField(keyStore, "algorithm", JwtSigningAlgorithm.ES256);
+        ReflectionTestUtils.setField(keyStore, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(keyStore, "rotationHours", 168L);
+        ReflectionTestUtils.setField(keyStore, "jwksMaxAgeSeconds", 3600L);
+        ReflectionTestUtils.setField(keyStore, "accessTokenExpirationMs", 900_000L);
+        ReflectionTestUtils.setField(keyStore, "preAuthExpirationMs", 300_000L);
+        keyStore.setClock(new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return now;
+            }
+        });
+        ReflectionTestUtils.invokeMethod(keyStore, "init");
+    }
+
+    @Test
+    void firstKeySignsAtOnceAndIsPublished() {
+        String kid = keyStore.signingKey().kid();
+
+        assertThat(rows).hasSize(1);
+        assertThat(keyStore.verificationKey(kid)).isNotNull();
+        List<Map<String, String>> keys = publishedKeys();
+        assertThat(keys).singleElement().satisfies(jwk -> {
+            assertThat(jwk).containsEntry("kid", kid).containsEntry("kty", "EC")
+                    .containsEntry("crv", "P-256").containsEntry("alg", "ES256");
+            // 32-byte coordinates, base64url without padding
+            assertThat(jwk.get("x")).hasSize(43);
+            assertThat(jwk.get("y")).hasSize(43);
+        });
+    }
+
+    @Test
+    void rotatedKeySignsAfterTheJwksMaxAgeAndTheOldOneLeavesAfterTheTokenLifetime() {
+        String oldKid = keyStore.signingKey().kid();
+
+        now = now.plus(Duration.ofDays(8));
+        keyStore.rotateIfDue();
+        assertThat(publishedKeys()).hasSize(2);
+        assertThat(keyStore.signingKey().kid()).isEqualTo(oldKid);
+
+        now = now.plus(Duration.ofMinutes(61));
+        keyStore.reload();
+        String newKid = keyStore.signingKey().kid();
+        assertThat(newKid).isNotEqualTo(oldKid);
+        assertThat(keyStore.verificationKey(oldKid)).isNotNull();
+
+        // 15 minute access tokens plus a minute of clock skew
+        now = now.plus(Duration.ofMinutes(17));
+        keyStore.reload();
+        assertThat(publishedKeys()).extracting(jwk -> jwk.get("kid")).containsExactly(newKid);
+        assertThat(rows).hasSize(1);
+    }
+
+    @Test
+    void rotationIsNotDueBeforeThePeriod() {
+        now = now.plus(Duration.ofDays(6));
+        keyStore.rotateIfDue();
+
+        assertThat(rows).hasSize(1);
+    }
+
+    @Test
+    void etagChangesWithTheKeySet() {
+        String before = keyStore.getPublishedKeys().etag();
+        keyStore.rotate();
+
+        assertThat(keyStore.getPublishedKeys().etag()).isNotEqualTo(before);
+    }
+
+    @Test
+    void tokensRoundTripThroughJwtUtilsAndHmacTokensAreRefused() {
+        JwtUtils jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "jwtKeyStore", keyStore);
+        ReflectionTestUtils.setField(jwtUtils, "accessTokenExpirationMs", 900_000L);
+        ReflectionTestUtils.setField(jwtUtils, "preAuthExpirationMs", 300_000L);
+        ReflectionTestUtils.setField(jwtUtils, "jwtCacheMaxSize", 100);
+        ReflectionTestUtils.invokeMethod(jwtUtils, "init");
+
+        UserDetailsImpl user = new UserDetailsImpl(7L, "alice", "alice@example.com", null, false,
+                List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        Claims claims = jwtUtils.getVerifiedClaims(jwtUtils.generateAccessToken(user, "session-1"));
+        assertThat(claims).isNotNull();
+        assertThat(claims.getSubject()).isEqualTo("alice");
+        assertThat(claims.get(JwtUtils.SESSION_CLAIM, String.class)).isEqualTo("session-1");
+
+        String hmacToken = Jwts.builder().subject("alice")
+                .expiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)))
+                .compact();
+        assertThat(jwtUtils.getVerifiedClaims(hmacToken)).isNull();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, String>> publishedKeys() {
+        return (List<Map<String, String>>) keyStore.getPublishedKeys().jwks().get("keys");
+    }
+}
@@ -0,0 +1,95 @@
+package com.secure.notes.security.jwt;
+
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.SecretKey;
+import java.security.KeyPair;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of signing and verifying one access token with the shared-secret HS256 path
+ * and with the asymmetric algorithms of JwtKeyStore. The claims match what
+ * JwtUtils puts in an access token; each verifier is built once for its key, as the
+ * per-kid cache does. JwtUtils caches verified tokens, so verify is paid once per
+ * token and instance, sign once per login or refresh.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.secure.notes.security.jwt.JwtSigningBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtSigningBenchmark {
+
+    @Param({"HS256", "ES256", "EdDSA"})
+    private JwtSigningAlgorithm algorithm;
+
+    private SecretKey hmacKey;
+    private KeyPair keyPair;
+    private JwtParser parser;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (algorithm.isAsymmetric()) {
+            keyPair = algorithm.generateKeyPair();
+            parser = Jwts.parser().verifyWith(keyPair.getPublic()).build();
+        } else {
+            hmacKey = Jwts.SIG.HS256.key().build();
+            parser = Jwts.parser().verifyWith(hmacKey).build();
+        }
+        token = sign();
+    }
+
+    @Benchmark
+    public String sign() {
+        Date now = new Date();
+        JwtBuilder builder = Jwts.builder()
+                .subject("benchmark-user")
+                .claim("userId", 42L)
+                .claim("roles", "ROLE_USER")
+                .claim("is2faEnabled", false)
+                .claim(JwtUtils.SESSION_CLAIM, "4f1c2a7e-9b3d-4c8e-a1f0-6d2b5e7c9a13")
+                .id(UUID.randomUUID().toString())
+                .issuedAt(now)
+                .expiration(new Date(now.getTime() + 900_000));
+        if (algorithm.isAsymmetric()) {
+            return builder.header().keyId("benchmark-kid").and()
+                    .signWith(keyPair.getPrivate(), algorithm.signatureAlgorithm())
+                    .compact();
+        }
+        return builder.signWith(hmacKey).compact();
+    }
+
+    @Benchmark
+    public Object verify() {
+        return parser.parseSignedClaims(token).getPayload();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtSigningBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
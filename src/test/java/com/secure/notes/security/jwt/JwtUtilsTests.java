@@ -0,0 +1,95 @@
+package com.secure.notes.security.jwt;
+
+import com.secure.notes.security.services.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JwtUtilsTests {
+
+    static final String SECRET = "c2VjcmV0c2VjcmV0c2VjcmV0c2VjcmV0c2VjcmV0MTIzNDU2Nzg5MA==";
+
+    private final JwtUtils jwtUtils = newJwtUtils();
+    private final UserDetailsImpl user = new UserDetailsImpl(7L, "alice", "alice@example.com", null, true,
+            List.of(new SimpleGrantedAuthority("ROLE_USER")));
+
+    /**
+     * JwtUtils signing with the shared secret, as with spring.app.jwt.algorithm=HS256
+     */
+    static JwtUtils newJwtUtils() {
+        JwtKeyStore keyStore = mock(JwtKeyStore.class);
+        when(keyStore.getAlgorithm()).thenReturn(JwtSigningAlgorithm.HS256);
+
+        JwtUtils jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "jwtKeyStore", keyStore);
+        ReflectionTestUtils.setField(jwtUtils, "accessTokenExpirationMs", 900_000L);
+        ReflectionTestUtils.setField(jwtUtils, "preAuthExpirationMs", 300_000L);
+        ReflectionTestUtils.setField(jwtUtils, "jwtCacheMaxSize", 100);
+        ReflectionTestUtils.invokeMethod(jwtUtils, "init");
+        return jwtUtils;
+    }
+
+    @Test
+    void preAuthTokenCarriesTheUserAndTheScope() {
+        Claims claims = jwtUtils.getPreAuthClaims(jwtUtils.generatePreAuthToken(user));
+
+        assertThat(claims).isNotNull();
+        assertThat(jwtUtils.isPreAuth(claims)).isTrue();
+        UserDetailsImpl fromClaims = jwtUtils.buildUserDetailsFromClaims(claims);
+        assertThat(fromClaims.getId()).isEqualTo(7L);
+        assertThat(fromClaims.is2faEnabled()).isTrue();
+    }
+
+    @Test
+    void getPreAuthClaimsRefusesAnAccessToken() {
+        String accessToken = jwtUtils.generateAccessToken(user, "session-1");
+
+        assertThat(jwtUtils.getVerifiedClaims(accessToken)).isNotNull();
+        assertThat(jwtUtils.getPreAuthClaims(accessToken)).isNull();
+    }
+
+    @Test
+    void getPreAuthClaimsRefusesAnInvalidToken() {
+        String preAuthToken = jwtUtils.generatePreAuthToken(user);
+        int i = preAuthToken.length() - 10;
+        String tampered = preAuthToken.substring(0, i) + (preAuthToken.charAt(i) == 'A' ? 'B' : 'A')
+                + preAuthToken.substring(i + 1);
+
+        assertThat(jwtUtils.getPreAuthClaims(tampered)).isNull();
+        assertThat(jwtUtils.getPreAuthClaims("not-a-token")).isNull();
+    }
+
+    @Test
+    void principalFromAccessTokenClaimsHasNoEmailOrPassword() {
+        UserDetailsImpl admin = new UserDetailsImpl(9L, "bob", "bob@example.com", "hash", false,
+                List.of(new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_ADMIN")));
+        Claims claims = jwtUtils.getVerifiedClaims(jwtUtils.generateAccessToken(admin, "session-1"));
+
+        UserDetailsImpl fromClaims = jwtUtils.buildUserDetailsFromClaims(claims);
+
+        assertThat(fromClaims.getId()).isEqualTo(9L);
+        assertThat(fromClaims.getUsername()).isEqualTo("bob");
+        assertThat(fromClaims.getEmail()).isNull();
+        assertThat(fromClaims.getPassword()).isNull();
+        assertThat(fromClaims.is2faEnabled()).isFalse();
+        assertThat(fromClaims.getAuthorities()).extracting(GrantedAuthority::getAuthority)
+                .containsExactly("ROLE_USER", "ROLE_ADMIN");
+    }
+
+    @Test
+    void principalFromClaimsWithoutUserIdIsNull() {
+        Claims claims = Jwts.claims().subject("bob").add("roles", "ROLE_USER").build();
+
+        assertThat(jwtUtils.buildUserDetailsFromClaims(claims)).isNull();
+    }
+}
@@ -0,0 +1,113 @@
+package com.secure.notes.security.jwt;
+
+import com.secure.notes.security.services.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Encoders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.KeyPair;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Cost of authenticating a request's token in JwtUtils.getVerifiedClaims: with the
+ * verified-claims cache (a SHA-256 of the token and a map lookup) against parsing
+ * and checking the signature every time, as before the cache. Each thread presents
+ * one of a set of live tokens, like a steady population of logged-in users.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.secure.notes.security.jwt.JwtVerificationBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class JwtVerificationBenchmark {
+
+    private static final int USERS = 1000;
+
+    @Param({"HS256", "ES256"})
+    private JwtSigningAlgorithm algorithm;
+
+    private JwtUtils cached;
+    private JwtUtils uncached;
+    private String[] tokens;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Stub-only: a regular mock would record every one of the benchmark's calls
+        JwtKeyStore keyStore = mock(JwtKeyStore.class, withSettings().stubOnly());
+        when(keyStore.getAlgorithm()).thenReturn(algorithm);
+        if (algorithm.isAsymmetric()) {
+            KeyPair keyPair = algorithm.generateKeyPair();
+            when(keyStore.signingKey())
+                    .thenReturn(new JwtKeyStore.SigningKey("benchmark-kid", algorithm, keyPair.getPrivate()));
+            when(keyStore.verificationKey(anyString())).thenReturn(keyPair.getPublic());
+        }
+        String secret = Encoders.BASE64.encode(Jwts.SIG.HS256.key().build().getEncoded());
+        cached = newJwtUtils(keyStore, secret, USERS * 2);
+        // A cache of one entry that every other token evicts: each call parses and verifies
+        uncached = newJwtUtils(keyStore, secret, 1);
+
+        tokens = new String[USERS];
+        for (int i = 0; i < USERS; i++) {
+            UserDetailsImpl user = new UserDetailsImpl((long) i, "user" + i, null, null, false,
+                    List.of(new SimpleGrantedAuthority("ROLE_USER")));
+            tokens[i] = cached.generateAccessToken(user, "session-" + i);
+            cached.getVerifiedClaims(tokens[i]);
+        }
+    }
+
+    private static JwtUtils newJwtUtils(JwtKeyStore keyStore, String secret, int cacheSize) {
+        JwtUtils jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", secret);
+        ReflectionTestUtils.setField(jwtUtils, "jwtKeyStore", keyStore);
+        ReflectionTestUtils.setField(jwtUtils, "accessTokenExpirationMs", 900_000L);
+        ReflectionTestUtils.setField(jwtUtils, "preAuthExpirationMs", 300_000L);
+        ReflectionTestUtils.setField(jwtUtils, "jwtCacheMaxSize", cacheSize);
+        ReflectionTestUtils.invokeMethod(jwtUtils, "init");
+        return jwtUtils;
+    }
+
+    @Benchmark
+    public Claims cachedVerification() {
+        return cached.getVerifiedClaims(tokens[ThreadLocalRandom.current().nextInt(USERS)]);
+    }
+
+    @Benchmark
+    public Claims uncachedVerification() {
+        return uncached.getVerifiedClaims(tokens[ThreadLocalRandom.current().nextInt(USERS)]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtVerificationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
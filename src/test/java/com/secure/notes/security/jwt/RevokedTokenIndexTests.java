@@ -0,0 +1,87 @@
+package com.secure.notes.security.jwt;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RevokedTokenIndexTests {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final RevokedTokenIndex index = new RevokedTokenIndex();
+
+    @BeforeEach
+    void setUp() {
+        index.setClock(now::get);
+    }
+
+    @Test
+    void revokedIdIsRejectedUntilItExpires() {
+        index.revoke("jti-1", now.get() + 60_000);
+
+        assertThat(index.isRevoked("jti-1")).isTrue();
+        assertThat(index.isRevoked("jti-2")).isFalse();
+        assertThat(index.isRevoked(null)).isFalse();
+
+        now.addAndGet(60_000);
+        assertThat(index.isRevoked("jti-1")).isFalse();
+    }
+
+    @Test
+    void alreadyExpiredIdIsNotStored() {
+        index.revoke("jti-1", now.get());
+
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    void compactionDropsExpiredIdsAndKeepsLiveOnes() {
+        index.revoke("short", now.get() + 1_000);
+        index.revoke("long", now.get() + 60_000);
+
+        now.addAndGet(5_000);
+        assertThat(index.compact()).isEqualTo(1);
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.isRevoked("long")).isTrue();
+        assertThat(index.isRevoked("short")).isFalse();
+    }
+
+    @Test
+    void revokingAgainKeepsTheLaterExpiry() {
+        index.revoke("sid", now.get() + 60_000);
+        index.revoke("sid", now.get() + 1_000);
+
+        now.addAndGet(5_000);
+        index.compact();
+        assertThat(index.isRevoked("sid")).isTrue();
+    }
+
+    @Test
+    void growsPastItsInitialCapacityWithoutLosingIds() {
+        for (int i = 0; i < 5_000; i++) {
+            index.revoke("jti-" + i, now.get() + 60_000);
+        }
+
+        for (int i = 0; i < 5_000; i++) {
+            assertThat(index.isRevoked("jti-" + i)).isTrue();
+        }
+        assertThat(index.getStats().capacity()).isGreaterThanOrEqualTo(5_000);
+    }
+
+    @Test
+    void unknownIdsMostlyStopAtTheFilter() {
+        for (int i = 0; i < 1_000; i++) {
+            index.revoke("jti-" + i, now.get() + 60_000);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(index.isRevoked("other-" + i)).isFalse();
+        }
+
+        RevokedTokenIndex.RevocationIndexStats stats = index.getStats();
+        assertThat(stats.lookups()).isEqualTo(10_000);
+        assertThat(stats.falsePositives()).isLessThan(100);
+    }
+}
@@ -0,0 +1,69 @@
+package com.secure.notes.security.jwt;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenRevocationListTests {
+
+    private long now = 1_800_000_000_000L;
+    private final TokenRevocationList revocationList = new TokenRevocationList();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(revocationList, "accessTokenExpirationMs", 900_000L);
+        revocationList.setClock(() -> now);
+    }
+
+    @Test
+    void tokensIssuedBeforeTheWatermarkAreRevoked() {
+        revocationList.revokeAllTokens("alice");
+
+        assertThat(revocationList.isRevoked("alice", new Date(now - 60_000))).isTrue();
+        assertThat(revocationList.isRevoked("alice", null)).isTrue();
+        assertThat(revocationList.isRevoked("alice", new Date(now + 1000))).isFalse();
+    }
+
+    @Test
+    void otherUsersAreNotAffected() {
+        revocationList.revokeAllTokens("alice");
+
+        assertThat(revocationList.isRevoked("bob", new Date(now - 60_000))).isFalse();
+        assertThat(revocationList.isRevoked("bob", null)).isFalse();
+    }
+
+    @Test
+    void revokingAgainMovesTheWatermarkForward() {
+        revocationList.revokeAllTokens("alice");
+        Date issuedBetween = new Date(now + 5000);
+
+        assertThat(revocationList.isRevoked("alice", issuedBetween)).isFalse();
+        now += 10_000;
+        revocationList.revokeAllTokens("alice");
+        assertThat(revocationList.isRevoked("alice", issuedBetween)).isTrue();
+    }
+
+    @Test
+    void watermarksAreKeptForTheTokenLifetime() {
+        revocationList.revokeAllTokens("alice");
+        now += 300_000;
+        revocationList.revokeAllTokens("bob");
+
+        now += 600_001;
+        assertThat(revocationList.purgeExpired()).isEqualTo(1);
+        assertThat(revocationList.size()).isEqualTo(1);
+        assertThat(revocationList.isRevoked("alice", null)).isFalse();
+        assertThat(revocationList.isRevoked("bob", null)).isTrue();
+    }
+
+    @Test
+    void nullUsernameIsIgnored() {
+        revocationList.revokeAllTokens(null);
+
+        assertThat(revocationList.size()).isZero();
+    }
+}
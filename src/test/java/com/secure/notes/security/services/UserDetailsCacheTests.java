@@ -0,0 +1,150 @@
+package com.secure.notes.security.services;
+
+import com.secure.notes.models.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UserDetailsCacheTests {
+
+    private final UserDetailsCache cache = new UserDetailsCache();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cache, "maxSize", 100);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 300L);
+        ReflectionTestUtils.invokeMethod(cache, "init");
+    }
+
+    @Test
+    void cachedPrincipalIsReturnedUnderItsKey() {
+        UserDetailsImpl principal = principal();
+        cache.put("alice", principal);
+
+        assertThat(cache.get("alice")).isSameAs(principal);
+        assertThat(cache.get("bob")).isNull();
+    }
+
+    @Test
+    void evictingAUserDropsItUnderUsernameAndEmail() {
+        cache.put("alice", principal());
+        cache.put("alice@example.com", principal());
+        cache.put("bob", principal());
+
+        cache.evict(new User("alice", "alice@example.com"));
+
+        assertThat(cache.get("alice")).isNull();
+        assertThat(cache.get("alice@example.com")).isNull();
+        assertThat(cache.get("bob")).isNotNull();
+    }
+
+    @Test
+    void evictToleratesMissingKeys() {
+        cache.put("alice", principal());
+
+        cache.evict((String) null);
+        cache.evict(new User("alice", null));
+
+        assertThat(cache.get("alice")).isNull();
+    }
+
+    @Test
+    void loadCachesTheLoadedPrincipal() {
+        AtomicInteger loads = new AtomicInteger();
+        UserDetailsImpl principal = principal();
+
+        assertThat(cache.load("alice", name -> {
+            loads.incrementAndGet();
+            return principal;
+        })).isSameAs(principal);
+        assertThat(cache.load("alice", name -> {
+            loads.incrementAndGet();
+            return principal();
+        })).isSameAs(principal);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void failedLoadIsNotCached() {
+        assertThatThrownBy(() -> cache.load("ghost", name -> {
+            throw new UsernameNotFoundException("User Not Found with username: " + name);
+        })).isInstanceOf(UsernameNotFoundException.class);
+
+        assertThat(cache.get("ghost")).isNull();
+    }
+
+    @Test
+    void evictDuringALoadDropsTheLoadedPrincipal() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread loader = new Thread(() -> cache.load("alice", name -> {
+            loading.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            // Read before the change was committed
+            return principal();
+        }));
+        loader.start();
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Thread evictor = new Thread(() -> cache.evict("alice"));
+        evictor.start();
+        release.countDown();
+        loader.join(5000);
+        evictor.join(5000);
+
+        assertThat(cache.get("alice")).isNull();
+    }
+
+    @Test
+    void evictAfterCommitWaitsForTheCommit() {
+        cache.put("alice", principal());
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.evictAfterCommit(new User("alice", "alice@example.com"));
+            assertThat(cache.get("alice")).isNotNull();
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertThat(cache.get("alice")).isNull();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void evictAfterCommitWithoutATransactionEvictsNow() {
+        cache.put("alice", principal());
+
+        cache.evictAfterCommit(new User("alice", "alice@example.com"));
+
+        assertThat(cache.get("alice")).isNull();
+    }
+
+    @Test
+    void evictAllEmptiesTheCache() {
+        cache.put("alice", principal());
+        cache.put("bob", principal());
+
+        cache.evictAll();
+
+        assertThat(cache.getStats().size()).isZero();
+    }
+
+    private static UserDetailsImpl principal() {
+        return new UserDetailsImpl(7L, "alice", "alice@example.com", "hash", false, List.of());
+    }
+}
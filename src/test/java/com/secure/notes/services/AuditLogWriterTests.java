@@ -0,0 +1,218 @@
+package com.secure.notes.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.secure.notes.models.AuditLog;
+import com.secure.notes.repositories.AuditLogRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AuditLogWriterTests {
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final AuditLogRepository repository = mock(AuditLogRepository.class);
+    // Batches handed to saveAll, copied because the writer reuses its batch list
+    private final List<List<AuditLog>> savedBatches = new CopyOnWriteArrayList<>();
+    private final CountDownLatch saveStarted = new CountDownLatch(1);
+    private final AtomicBoolean interruptedWhileSaving = new AtomicBoolean();
+    // Open by default; a test closes it to hold the writer inside saveAll
+    private volatile CountDownLatch releaseSave = new CountDownLatch(0);
+    private Path spillFile;
+    private AuditLogWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        spillFile = dir.resolve("audit-spill.ndjson");
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<AuditLog> batch = invocation.getArgument(0);
+            saveStarted.countDown();
+            try {
+                releaseSave.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                interruptedWhileSaving.set(true);
+                throw e;
+            }
+            savedBatches.add(new ArrayList<>(batch));
+            return batch;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        releaseSave.countDown();
+    }
+
+    @Test
+    void entriesAreWrittenInBatchesAndShutdownDrainsTheQueue() {
+        writer = startWriter(100, 10, AuditLogWriter.OverflowPolicy.BLOCK);
+        for (int i = 0; i < 25; i++) {
+            writer.enqueue(entry("E" + i));
+        }
+
+        writer.shutdown();
+
+        assertThat(savedActions()).hasSize(25).doesNotHaveDuplicates().startsWith("E0").endsWith("E24");
+        assertThat(savedBatches).allSatisfy(batch -> assertThat(batch).hasSizeLessThanOrEqualTo(10));
+        assertThat(writer.getStats().written()).isEqualTo(25);
+        assertThat(spillFile).doesNotExist();
+    }
+
+    @Test
+    void shutdownWaitsForAnInFlightBatchWithoutInterruptingIt() throws Exception {
+        writer = startWriter(10, 1, AuditLogWriter.OverflowPolicy.BLOCK);
+        holdSaves();
+        writer.enqueue(entry("E1"));
+        assertThat(saveStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        writer.enqueue(entry("E2"));
+        writer.enqueue(entry("E3"));
+
+        Thread stopper = new Thread(writer::shutdown);
+        stopper.start();
+        stopper.join(200);
+        assertThat(stopper.isAlive()).isTrue();
+        releaseSave.countDown();
+        stopper.join(5000);
+
+        assertThat(stopper.isAlive()).isFalse();
+        assertThat(interruptedWhileSaving).isFalse();
+        assertThat(savedActions()).containsExactly("E1", "E2", "E3");
+        assertThat(spillFile).doesNotExist();
+    }
+
+    @Test
+    void blockPolicyWaitsForSpace() throws Exception {
+        writer = startWriter(1, 1, AuditLogWriter.OverflowPolicy.BLOCK);
+        fillQueueWhileSaving();
+
+        Thread producer = new Thread(() -> writer.enqueue(entry("E3")));
+        producer.start();
+        producer.join(200);
+        assertThat(producer.isAlive()).isTrue();
+        releaseSave.countDown();
+        producer.join(5000);
+        assertThat(producer.isAlive()).isFalse();
+        writer.shutdown();
+
+        assertThat(savedActions()).containsExactly("E1", "E2", "E3");
+        assertThat(writer.getStats().dropped()).isZero();
+    }
+
+    @Test
+    void dropPolicyDiscardsAndCountsWhenFull() throws Exception {
+        writer = startWriter(1, 1, AuditLogWriter.OverflowPolicy.DROP);
+        fillQueueWhileSaving();
+
+        writer.enqueue(entry("E3"));
+        releaseSave.countDown();
+        writer.shutdown();
+
+        assertThat(savedActions()).containsExactly("E1", "E2");
+        assertThat(writer.getStats().dropped()).isEqualTo(1);
+        assertThat(spillFile).doesNotExist();
+    }
+
+    @Test
+    void spillPolicyAppendsWhenFullAndTheNextStartReplays() throws Exception {
+        writer = startWriter(1, 1, AuditLogWriter.OverflowPolicy.SPILL);
+        fillQueueWhileSaving();
+
+        writer.enqueue(entry("E3"));
+        releaseSave.countDown();
+        writer.shutdown();
+
+        assertThat(savedActions()).containsExactly("E1", "E2");
+        assertThat(writer.getStats().spilled()).isEqualTo(1);
+        assertThat(Files.readAllLines(spillFile, StandardCharsets.UTF_8)).singleElement()
+                .satisfies(line -> assertThat(line).contains("\"E3\""));
+
+        savedBatches.clear();
+        AuditLogWriter restarted = startWriter(1, 1, AuditLogWriter.OverflowPolicy.SPILL);
+        restarted.shutdown();
+
+        assertThat(savedActions()).containsExactly("E3");
+        assertThat(spillFile).doesNotExist();
+    }
+
+    @Test
+    void spillFileIsReplayedInBatchesWithFreshIds() throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            AuditLog spilled = entry("S" + i);
+            spilled.setId((long) i);
+            lines.add(objectMapper.writeValueAsString(spilled));
+        }
+        lines.add("");
+        Files.write(spillFile, lines, StandardCharsets.UTF_8);
+
+        writer = startWriter(10, 2, AuditLogWriter.OverflowPolicy.BLOCK);
+        writer.shutdown();
+
+        assertThat(savedBatches).hasSize(2);
+        assertThat(savedActions()).containsExactly("S1", "S2", "S3");
+        assertThat(savedBatches.stream().flatMap(List::stream).toList()).allSatisfy(entry -> {
+            assertThat(entry.getId()).isNull();
+            assertThat(entry.getTimestamp()).isNotNull();
+        });
+        assertThat(spillFile).doesNotExist();
+    }
+
+    private AuditLogWriter startWriter(int capacity, int batchSize, AuditLogWriter.OverflowPolicy policy) {
+        AuditLogWriter auditLogWriter = new AuditLogWriter(repository, objectMapper);
+        ReflectionTestUtils.setField(auditLogWriter, "queueCapacity", capacity);
+        ReflectionTestUtils.setField(auditLogWriter, "batchSize", batchSize);
+        ReflectionTestUtils.setField(auditLogWriter, "flushIntervalMs", 20L);
+        ReflectionTestUtils.setField(auditLogWriter, "overflowPolicy", policy);
+        ReflectionTestUtils.setField(auditLogWriter, "spillFileName", spillFile.toString());
+        ReflectionTestUtils.invokeMethod(auditLogWriter, "start");
+        return auditLogWriter;
+    }
+
+    private void holdSaves() {
+        releaseSave = new CountDownLatch(1);
+    }
+
+    /**
+     * Leave E1 in flight in saveAll and E2 in the single queue slot
+     */
+    private void fillQueueWhileSaving() throws InterruptedException {
+        holdSaves();
+        writer.enqueue(entry("E1"));
+        assertThat(saveStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        writer.enqueue(entry("E2"));
+        assertThat(writer.getStats().queued()).isEqualTo(1);
+    }
+
+    private List<String> savedActions() {
+        return savedBatches.stream().flatMap(List::stream).map(AuditLog::getAction).toList();
+    }
+
+    private static AuditLog entry(String action) {
+        AuditLog entry = new AuditLog();
+        entry.setAction(action);
+        entry.setUsername("alice");
+        entry.setNoteId(1L);
+        entry.setTimestamp(LocalDateTime.of(2026, 1, 1, 12, 0));
+        return entry;
+    }
+}
@@ -0,0 +1,263 @@
+package com.secure.notes.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.secure.notes.dtos.BulkRecipient;
+import com.secure.notes.models.BulkAudience;
+import com.secure.notes.models.BulkEmailJob;
+import com.secure.notes.models.BulkEmailJobStatus;
+import com.secure.notes.repositories.BulkEmailJobRepository;
+import com.secure.notes.repositories.UserRepository;
+import com.secure.notes.util.EmailService;
+import com.secure.notes.util.EmailTemplateType;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Bulk sending against a local stub of the Brevo transactional email endpoint
+ */
+class BulkEmailServiceTests {
+
+    private static final int USERS = 25;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<JsonNode> receivedBatches = new CopyOnWriteArrayList<>();
+    // Number of upcoming requests the stub answers with 429
+    private final AtomicInteger throttleNext = new AtomicInteger();
+    private volatile int failStatus = 0;
+
+    private HttpServer brevoStub;
+    private BulkEmailJobRepository jobRepository;
+    private BulkEmailService bulkEmailService;
+    private BulkEmailJob job;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        brevoStub = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        brevoStub.createContext("/v3/smtp/email", this::answer);
+        brevoStub.start();
+
+        EmailService emailService = new EmailService();
+        ReflectionTestUtils.setField(emailService, "brevoApiKey", "test-key");
+        ReflectionTestUtils.setField(emailService, "fromEmail", "noreply@example.com");
+        ReflectionTestUtils.setField(emailService, "fromName", "Secure Notes");
+        ReflectionTestUtils.setField(emailService, "brevoBaseUrl",
+                "http://localhost:" + brevoStub.getAddress().getPort() + "/v3");
+        ReflectionTestUtils.invokeMethod(emailService, "init");
+
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findByUserIdGreaterThanAndEnabledTrueOrderByUserIdAsc(anyLong(), any(Pageable.class)))
+                .thenAnswer(invocation -> usersAfter(invocation.getArgument(0), invocation.getArgument(1)));
+
+        job = new BulkEmailJob(EmailTemplateType.SECURITY_ALERT.getTemplateName(), BulkAudience.ALL_USERS,
+                "{\"message\":\"We rotated our signing keys.\"}");
+        job.setId(7L);
+        jobRepository = mock(BulkEmailJobRepository.class);
+        when(jobRepository.findById(7L)).thenAnswer(invocation -> Optional.of(job));
+        when(jobRepository.save(any(BulkEmailJob.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        bulkEmailService = new BulkEmailService(jobRepository, userRepository, emailService, objectMapper);
+        ReflectionTestUtils.setField(bulkEmailService, "batchSize", 10);
+        ReflectionTestUtils.setField(bulkEmailService, "recipientsPerSecond", 1000.0);
+        ReflectionTestUtils.setField(bulkEmailService, "burst", 1000.0);
+        ReflectionTestUtils.setField(bulkEmailService, "maxBatchAttempts", 3);
+        ReflectionTestUtils.setField(bulkEmailService, "backoffBaseMs", 10L);
+        ReflectionTestUtils.invokeMethod(bulkEmailService, "init");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(bulkEmailService, "shutdown");
+        brevoStub.stop(0);
+    }
+
+    @Test
+    void recipientsAreGroupedIntoBatchRequests() throws InterruptedException {
+        bulkEmailService.runJob(7L);
+
+        assertThat(receivedBatches).hasSize(3);
+        assertThat(receivedBatches).extracting(batch -> batch.path("messageVersions").size())
+                .containsExactly(10, 10, 5);
+
+        JsonNode first = receivedBatches.get(0);
+        assertThat(first.path("htmlContent").asText())
+                .contains("We rotated our signing keys.")
+                .contains("{{ params.username }}");
+        JsonNode version = first.path("messageVersions").get(0);
+        assertThat(version.path("to").get(0).path("email").asText()).isEqualTo("user1@example.com");
+        assertThat(version.path("params").path("username").asText()).isEqualTo("user1");
+        assertThat(first.path("headers").path("idempotencyKey").asText()).isEqualTo("bulk:7:1");
+
+        assertThat(job.getStatus()).isEqualTo(BulkEmailJobStatus.COMPLETED);
+        assertThat(job.getSentRecipients()).isEqualTo(USERS);
+        assertThat(job.getLastUserId()).isEqualTo(USERS);
+        assertThat(job.getProviderRequests()).isEqualTo(3);
+    }
+
+    @Test
+    void jobContinuesAfterTheSavedCursor() throws InterruptedException {
+        job.setLastUserId(20);
+        job.setSentRecipients(20);
+
+        bulkEmailService.runJob(7L);
+
+        assertThat(receivedBatches).hasSize(1);
+        assertThat(receivedBatches.get(0).path("messageVersions").get(0).path("params").path("username").asText())
+                .isEqualTo("user21");
+        assertThat(job.getSentRecipients()).isEqualTo(USERS);
+    }
+
+    @Test
+    void throttledBatchIsRetriedAfterRetryAfter() throws InterruptedException {
+        throttleNext.set(1);
+
+        bulkEmailService.runJob(7L);
+
+        assertThat(receivedBatches).hasSize(3);
+        assertThat(job.getSentRecipients()).isEqualTo(USERS);
+        assertThat(job.getProviderRequests()).isEqualTo(4);
+        assertThat(bulkEmailService.getStats().throttledResponses()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectedBatchIsCountedAsFailedAndSkipped() throws InterruptedException {
+        failStatus = 400;
+
+        bulkEmailService.runJob(7L);
+
+        assertThat(job.getStatus()).isEqualTo(BulkEmailJobStatus.COMPLETED);
+        assertThat(job.getFailedRecipients()).isEqualTo(USERS);
+        assertThat(job.getProviderRequests()).isEqualTo(3);
+        assertThat(job.getLastError()).contains("400");
+    }
+
+    @Test
+    void providerOutagePausesJobOnTheFailedBatch() throws InterruptedException {
+        failStatus = 503;
+
+        bulkEmailService.runJob(7L);
+
+        assertThat(job.getStatus()).isEqualTo(BulkEmailJobStatus.PAUSED);
+        assertThat(job.getLastUserId()).isZero();
+        assertThat(job.getProviderRequests()).isEqualTo(3);
+    }
+
+    @Test
+    void missingTemplateVariableFailsTheJob() throws InterruptedException {
+        job.setVariables("{}");
+
+        bulkEmailService.runJob(7L);
+
+        assertThat(receivedBatches).isEmpty();
+        assertThat(job.getStatus()).isEqualTo(BulkEmailJobStatus.FAILED);
+        assertThat(job.getLastError()).contains("message");
+        assertThat(job.getFinishedAt()).isNotNull();
+    }
+
+    @Test
+    void passwordExpiryNoticesSkipWhileThePreviousRunIsUnfinished() {
+        ReflectionTestUtils.setField(bulkEmailService, "passwordExpiryEnabled", true);
+        ReflectionTestUtils.setField(bulkEmailService, "frontendUrl", "https://notes.example.com");
+        String template = EmailTemplateType.PASSWORD_EXPIRING.getTemplateName();
+        BulkEmailJobStatus[] previousRun = {BulkEmailJobStatus.RUNNING};
+        when(jobRepository.existsByTemplateAndStatusIn(eq(template), any())).thenAnswer(invocation ->
+                invocation.<Collection<BulkEmailJobStatus>>getArgument(1).contains(previousRun[0]));
+
+        bulkEmailService.sendPasswordExpiryNotices();
+        // Paused by an admin: resuming it will reach the same users
+        previousRun[0] = BulkEmailJobStatus.PAUSED;
+        bulkEmailService.sendPasswordExpiryNotices();
+        verify(jobRepository, never()).save(any(BulkEmailJob.class));
+
+        previousRun[0] = BulkEmailJobStatus.FAILED;
+        bulkEmailService.sendPasswordExpiryNotices();
+        verify(jobRepository).save(argThat((BulkEmailJob saved) -> template.equals(saved.getTemplate())
+                && saved.getAudience() == BulkAudience.CREDENTIALS_EXPIRING));
+    }
+
+    private List<BulkRecipient> usersAfter(long afterUserId, Pageable page) {
+        List<BulkRecipient> users = new ArrayList<>();
+        for (long id = afterUserId + 1; id <= USERS && users.size() < page.getPageSize(); id++) {
+            users.add(recipient(id));
+        }
+        return users;
+    }
+
+    private static BulkRecipient recipient(long id) {
+        return new BulkRecipient() {
+            @Override
+            public Long getUserId() {
+                return id;
+            }
+
+            @Override
+            public String getUserName() {
+                return "user" + id;
+            }
+
+            @Override
+            public String getEmail() {
+                return "user" + id + "@example.com";
+            }
+
+            @Override
+            public LocalDate getCredentialsExpiryDate() {
+                return null;
+            }
+        };
+    }
+
+    private void answer(HttpExchange exchange) throws IOException {
+        JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+        int status;
+        byte[] response;
+        if (throttleNext.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+            status = 429;
+            exchange.getResponseHeaders().add("Retry-After", "0");
+            response = "{\"code\":\"too_many_requests\"}".getBytes(StandardCharsets.UTF_8);
+        } else if (failStatus != 0) {
+            status = failStatus;
+            response = "{\"code\":\"error\",\"message\":\"stub failure\"}".getBytes(StandardCharsets.UTF_8);
+        } else {
+            status = 201;
+            receivedBatches.add(request);
+            StringBuilder ids = new StringBuilder("{\"messageIds\":[");
+            for (int i = 0; i < request.path("messageVersions").size(); i++) {
+                ids.append(i == 0 ? "" : ",").append("\"<stub-").append(i).append("@smtp-relay>\"");
+            }
+            response = ids.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+        }
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+}
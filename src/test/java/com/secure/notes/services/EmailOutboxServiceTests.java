@@ -0,0 +1,184 @@
+package com.secure.notes.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.secure.notes.models.EmailOutboxMessage;
+import com.secure.notes.models.EmailOutboxStatus;
+import com.secure.notes.repositories.EmailOutboxRepository;
+import com.secure.notes.util.EmailService;
+import com.secure.notes.util.EmailTemplateType;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Outbox delivery against a local stub of the Brevo transactional email endpoint
+ */
+class EmailOutboxServiceTests {
+
+    private static final Instant CLAIMED_UNTIL = Instant.parse("2030-01-01T00:02:00.123456Z");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<JsonNode> receivedEmails = new CopyOnWriteArrayList<>();
+    private volatile int stubStatus = 201;
+
+    private HttpServer brevoStub;
+    private EmailOutboxRepository repository;
+    private EmailOutboxService outbox;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        brevoStub = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        brevoStub.createContext("/v3/smtp/email", this::answer);
+        brevoStub.start();
+
+        EmailService emailService = new EmailService();
+        ReflectionTestUtils.setField(emailService, "brevoApiKey", "test-key");
+        ReflectionTestUtils.setField(emailService, "fromEmail", "noreply@example.com");
+        ReflectionTestUtils.setField(emailService, "fromName", "Secure Notes");
+        ReflectionTestUtils.setField(emailService, "brevoBaseUrl",
+                "http://localhost:" + brevoStub.getAddress().getPort() + "/v3");
+        ReflectionTestUtils.invokeMethod(emailService, "init");
+
+        repository = mock(EmailOutboxRepository.class);
+        when(repository.recordAttempt(any(), any(), any(), any(), anyInt(), any(), any(), any(), any(), any()))
+                .thenReturn(1);
+
+        outbox = new EmailOutboxService(repository, emailService, objectMapper);
+        ReflectionTestUtils.setField(outbox, "maxAttempts", 3);
+        ReflectionTestUtils.setField(outbox, "backoffBaseMs", 1000L);
+        ReflectionTestUtils.setField(outbox, "backoffMaxMs", 60000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        brevoStub.stop(0);
+    }
+
+    @Test
+    void sentMessageRecordsProviderIdAndSendsIdempotencyKey() {
+        EmailOutboxMessage message = resetMessage();
+
+        outbox.deliver(message);
+
+        assertThat(message.getStatus()).isEqualTo(EmailOutboxStatus.SENT);
+        assertThat(message.getProviderMessageId()).isEqualTo("<stub-1@smtp-relay>");
+        assertThat(message.getPayload()).isNull();
+        assertThat(receivedEmails).hasSize(1);
+        JsonNode email = receivedEmails.get(0);
+        assertThat(email.path("to").get(0).path("email").asText()).isEqualTo("alice@example.com");
+        assertThat(email.path("headers").path("idempotencyKey").asText()).isEqualTo("password-reset:1");
+        assertThat(email.path("htmlContent").asText()).contains("https://notes.example.com/reset-password?token=abc");
+        verify(repository).recordAttempt(eq(1L), eq(CLAIMED_UNTIL), eq(EmailOutboxStatus.SENDING),
+                eq(EmailOutboxStatus.SENT), eq(1), any(), isNull(), eq("<stub-1@smtp-relay>"), any(), isNull());
+    }
+
+    @Test
+    void serverErrorIsRetriedWithBackoff() {
+        stubStatus = 503;
+        EmailOutboxMessage message = resetMessage();
+        Instant before = Instant.now();
+
+        outbox.deliver(message);
+
+        assertThat(message.getStatus()).isEqualTo(EmailOutboxStatus.PENDING);
+        assertThat(message.getAttempts()).isEqualTo(1);
+        assertThat(message.getNextAttemptAt()).isAfterOrEqualTo(before.plusMillis(500));
+        assertThat(message.getLastError()).isNotBlank();
+    }
+
+    @Test
+    void lastAttemptMovesMessageToDeadLetter() {
+        stubStatus = 503;
+        EmailOutboxMessage message = resetMessage();
+        message.setAttempts(2);
+
+        outbox.deliver(message);
+
+        assertThat(message.getStatus()).isEqualTo(EmailOutboxStatus.DEAD);
+        assertThat(message.getAttempts()).isEqualTo(3);
+        // The reset link is not kept on a dead row
+        assertThat(message.getPayload()).isNull();
+        verify(repository).recordAttempt(eq(1L), eq(CLAIMED_UNTIL), eq(EmailOutboxStatus.SENDING),
+                eq(EmailOutboxStatus.DEAD), eq(3), any(), any(), isNull(), isNull(), isNull());
+    }
+
+    @Test
+    void rejectedRequestIsNotRetried() {
+        stubStatus = 400;
+        EmailOutboxMessage message = resetMessage();
+
+        outbox.deliver(message);
+
+        assertThat(message.getStatus()).isEqualTo(EmailOutboxStatus.DEAD);
+        assertThat(message.getAttempts()).isEqualTo(1);
+    }
+
+    @Test
+    void outcomeIsOnlyWrittenAgainstTheClaim() {
+        EmailOutboxMessage message = resetMessage();
+        // The lock ran out mid-send and another worker claimed the row
+        when(repository.recordAttempt(any(), any(), any(), any(), anyInt(), any(), any(), any(), any(), any()))
+                .thenReturn(0);
+
+        outbox.deliver(message);
+
+        verify(repository).recordAttempt(eq(1L), eq(CLAIMED_UNTIL), eq(EmailOutboxStatus.SENDING),
+                eq(EmailOutboxStatus.SENT), anyInt(), any(), any(), any(), any(), any());
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    void backoffGrowsAndIsCapped() {
+        assertThat(outbox.backoff(1).toMillis()).isBetween(500L, 1000L);
+        assertThat(outbox.backoff(4).toMillis()).isBetween(4000L, 8000L);
+        assertThat(outbox.backoff(30).toMillis()).isBetween(30000L, 60000L);
+    }
+
+    private EmailOutboxMessage resetMessage() {
+        EmailOutboxMessage message = new EmailOutboxMessage("password-reset:1",
+                EmailTemplateType.PASSWORD_RESET.getTemplateName(), "alice@example.com",
+                "{\"resetUrl\":\"https://notes.example.com/reset-password?token=abc\"}");
+        message.setId(1L);
+        message.setStatus(EmailOutboxStatus.SENDING);
+        message.setLockedUntil(CLAIMED_UNTIL);
+        return message;
+    }
+
+    private void answer(HttpExchange exchange) throws IOException {
+        byte[] response;
+        if (stubStatus == 201) {
+            receivedEmails.add(objectMapper.readTree(exchange.getRequestBody()));
+            response = ("{\"messageId\":\"<stub-" + receivedEmails.size() + "@smtp-relay>\"}")
+                    .getBytes(StandardCharsets.UTF_8);
+        } else {
+            response = "{\"code\":\"error\",\"message\":\"stub failure\"}".getBytes(StandardCharsets.UTF_8);
+        }
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(stubStatus, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.secure.notes.services;
+
+import com.secure.notes.exceptions.InvalidRefreshTokenException;
+import com.secure.notes.models.AppRole;
+import com.secure.notes.models.RefreshToken;
+import com.secure.notes.models.Role;
+import com.secure.notes.models.User;
+import com.secure.notes.repositories.RefreshTokenRepository;
+import com.secure.notes.repositories.UserRepository;
+import com.secure.notes.security.jwt.JwtKeyStore;
+import com.secure.notes.security.jwt.JwtSigningAlgorithm;
+import com.secure.notes.security.jwt.JwtUtils;
+import com.secure.notes.security.jwt.RevokedTokenIndex;
+import com.secure.notes.security.services.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * RefreshTokenService against an in-memory refresh_token table whose markUsed
+ * behaves like the conditional UPDATE: only one caller can move a row from unused
+ * to used.
+ */
+class RefreshTokenServiceTests {
+
+    private final List<RefreshToken> rows = new ArrayList<>();
+    private final AtomicInteger markUsedWins = new AtomicInteger();
+    private final RevokedTokenIndex revokedTokenIndex = new RevokedTokenIndex();
+    private final User user = new User("alice", "alice@example.com", "{noop}pw");
+    private final UserDetailsImpl userDetails = new UserDetailsImpl(7L, "alice", "alice@example.com", null, false,
+            List.of(new SimpleGrantedAuthority("ROLE_USER")));
+    private RefreshTokenRepository repository;
+    private JwtUtils jwtUtils;
+    private RefreshTokenService service;
+
+    // Lets a test hold every reader of a token until the others have read it too
+    private CountDownLatch readBarrier;
+
+    @BeforeEach
+    void setUp() {
+        user.setUserId(7L);
+        user.setRole(new Role(AppRole.ROLE_USER));
+
+        repository = mock(RefreshTokenRepository.class);
+        when(repository.save(any())).thenAnswer(invocation -> {
+            RefreshToken token = invocation.getArgument(0);
+            synchronized (rows) {
+                token.setId((long) rows.size() + 1);
+                rows.add(copy(token));
+            }
+            return token;
+        });
+        when(repository.findByTokenHash(anyString())).thenAnswer(invocation -> {
+            Optional<RefreshToken> found;
+            synchronized (rows) {
+                found = rows.stream().filter(row -> row.getTokenHash().equals(invocation.getArgument(0)))
+                        .findFirst().map(RefreshTokenServiceTests::copy);
+            }
+            if (readBarrier != null) {
+                readBarrier.countDown();
+                readBarrier.await(5, TimeUnit.SECONDS);
+            }
+            return found;
+        });
+        when(repository.markUsed(anyLong(), any())).thenAnswer(invocation -> {
+            synchronized (rows) {
+                RefreshToken row = row(invocation.getArgument(0));
+                if (row.getUsedAt() != null || row.isRevoked()) {
+                    return 0;
+                }
+                row.setUsedAt(invocation.getArgument(1));
+                markUsedWins.incrementAndGet();
+                return 1;
+            }
+        });
+        when(repository.revokeFamily(anyString())).thenAnswer(invocation -> {
+            synchronized (rows) {
+                rows.stream().filter(row -> row.getFamilyId().equals(invocation.getArgument(0)))
+                        .forEach(row -> row.setRevoked(true));
+            }
+            return 1;
+        });
+        when(repository.findActiveFamilyIds(anyLong(), any())).thenAnswer(invocation -> {
+            synchronized (rows) {
+                return rows.stream().filter(row -> row.getUserId().equals(invocation.getArgument(0))
+                                && !row.isRevoked())
+                        .map(RefreshToken::getFamilyId).distinct().toList();
+            }
+        });
+        when(repository.revokeAllForUser(anyLong())).thenAnswer(invocation -> {
+            synchronized (rows) {
+                rows.stream().filter(row -> row.getUserId().equals(invocation.getArgument(0)))
+                        .forEach(row -> row.setRevoked(true));
+            }
+            return 1;
+        });
+
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findById(7L)).thenReturn(Optional.of(user));
+
+        JwtKeyStore keyStore = mock(JwtKeyStore.class);
+        when(keyStore.getAlgorithm()).thenReturn(JwtSigningAlgorithm.HS256);
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret",
+                "c2VjcmV0c2VjcmV0c2VjcmV0c2VjcmV0c2VjcmV0MTIzNDU2Nzg5MA==");
+        ReflectionTestUtils.setField(jwtUtils, "jwtKeyStore", keyStore);
+        ReflectionTestUtils.setField(jwtUtils, "accessTokenExpirationMs", 900_000L);
+        ReflectionTestUtils.setField(jwtUtils, "preAuthExpirationMs", 300_000L);
+        ReflectionTestUtils.setField(jwtUtils, "jwtCacheMaxSize", 100);
+        ReflectionTestUtils.invokeMethod(jwtUtils, "init");
+
+        service = new RefreshTokenService(repository, userRepository, jwtUtils, revokedTokenIndex);
+        ReflectionTestUtils.setField(service, "refreshTokenExpirationMs", 1_209_600_000L);
+        ReflectionTestUtils.setField(service, "reuseGraceMs", 10_000L);
+    }
+
+    @Test
+    void refreshTokenIsSingleUse() {
+        RefreshTokenService.IssuedTokens login = service.issue(userDetails);
+
+        RefreshTokenService.IssuedTokens refreshed = service.rotate(login.refreshToken());
+
+        assertThat(refreshed.refreshToken()).isNotEqualTo(login.refreshToken());
+        assertThat(sessionId(refreshed.accessToken())).isEqualTo(sessionId(login.accessToken()));
+        assertThat(row(1L).getUsedAt()).isNotNull();
+        assertThat(row(2L).getUsedAt()).isNull();
+        assertThat(row(2L).getFamilyId()).isEqualTo(row(1L).getFamilyId());
+    }
+
+    @Test
+    void reuseAfterTheGracePeriodRevokesTheFamily() {
+        RefreshTokenService.IssuedTokens login = service.issue(userDetails);
+        RefreshTokenService.IssuedTokens refreshed = service.rotate(login.refreshToken());
+        row(1L).setUsedAt(Instant.now().minusSeconds(60));
+
+        assertThatThrownBy(() -> service.rotate(login.refreshToken()))
+                .isInstanceOf(InvalidRefreshTokenException.class);
+
+        // The legitimate holder's newer token is dead too, as are the session's access tokens
+        assertThatThrownBy(() -> service.rotate(refreshed.refreshToken()))
+                .isInstanceOf(InvalidRefreshTokenException.class);
+        assertThat(rows).allMatch(RefreshToken::isRevoked);
+        assertThat(revokedTokenIndex.isRevoked(sessionId(login.accessToken()))).isTrue();
+    }
+
+    @Test
+    void reuseWithinTheGracePeriodIsAConcurrentRefresh() {
+        RefreshTokenService.IssuedTokens login = service.issue(userDetails);
+        service.rotate(login.refreshToken());
+
+        RefreshTokenService.IssuedTokens second = service.rotate(login.refreshToken());
+
+        assertThat(second.refreshToken()).isNotNull();
+        assertThat(rows).noneMatch(RefreshToken::isRevoked);
+        assertThat(revokedTokenIndex.isRevoked(sessionId(login.accessToken()))).isFalse();
+    }
+
+    @Test
+    void onlyOneOfTwoConcurrentExchangesUsesTheToken() throws Exception {
+        String refreshToken = service.issue(userDetails).refreshToken();
+        readBarrier = new CountDownLatch(2);
+
+        CompletableFuture<RefreshTokenService.IssuedTokens> first =
+                CompletableFuture.supplyAsync(() -> service.rotate(refreshToken));
+        CompletableFuture<RefreshTokenService.IssuedTokens> second =
+                CompletableFuture.supplyAsync(() -> service.rotate(refreshToken));
+
+        // Both read the row as unused; the conditional update lets only one of them mark it
+        assertThat(first.get(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(second.get(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(markUsedWins).hasValue(1);
+        assertThat(rows).noneMatch(RefreshToken::isRevoked);
+    }
+
+    @Test
+    void withoutAGracePeriodTheLoserOfAConcurrentExchangeEndsTheSession() throws Exception {
+        ReflectionTestUtils.setField(service, "reuseGraceMs", 0L);
+        RefreshTokenService.IssuedTokens login = service.issue(userDetails);
+        String refreshToken = login.refreshToken();
+        readBarrier = new CountDownLatch(2);
+
+        CompletableFuture<RefreshTokenService.IssuedTokens> first =
+                CompletableFuture.supplyAsync(() -> service.rotate(refreshToken));
+        CompletableFuture<RefreshTokenService.IssuedTokens> second =
+                CompletableFuture.supplyAsync(() -> service.rotate(refreshToken));
+
+        int failed = 0;
+        for (CompletableFuture<RefreshTokenService.IssuedTokens> exchange : List.of(first, second)) {
+            try {
+                exchange.get(5, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).isInstanceOf(InvalidRefreshTokenException.class);
+                failed++;
+            }
+        }
+        assertThat(failed).isEqualTo(1);
+        assertThat(markUsedWins).hasValue(1);
+        // The winner may save its new token after the family was revoked; its access token
+        // carries the revoked session id either way
+        assertThat(row(1L).isRevoked()).isTrue();
+        assertThat(revokedTokenIndex.isRevoked(sessionId(login.accessToken()))).isTrue();
+    }
+
+    @Test
+    void expiredTokenIsRefused() {
+        String refreshToken = service.issue(userDetails).refreshToken();
+        row(1L).setExpiresAt(Instant.now().minusSeconds(1));
+
+        assertThatThrownBy(() -> service.rotate(refreshToken))
+                .isInstanceOf(InvalidRefreshTokenException.class)
+                .hasMessageContaining("expired");
+    }
+
+    @Test
+    void lockedAccountCannotRefreshAndLosesTheSession() {
+        RefreshTokenService.IssuedTokens login = service.issue(userDetails);
+        user.setAccountNonLocked(false);
+
+        assertThatThrownBy(() -> service.rotate(login.refreshToken()))
+                .isInstanceOf(InvalidRefreshTokenException.class)
+                .hasMessageContaining("not active");
+        assertThat(rows).allMatch(RefreshToken::isRevoked);
+        assertThat(revokedTokenIndex.isRevoked(sessionId(login.accessToken()))).isTrue();
+    }
+
+    @Test
+    void unknownTokenIsRefused() {
+        assertThatThrownBy(() -> service.rotate("not-a-refresh-token"))
+                .isInstanceOf(InvalidRefreshTokenException.class);
+        assertThatThrownBy(() -> service.rotate(" "))
+                .isInstanceOf(InvalidRefreshTokenException.class);
+    }
+
+    @Test
+    void revokeAllForUserPutsEverySessionInTheIndex() {
+        String laptop = sessionId(service.issue(userDetails).accessToken());
+        String phone = sessionId(service.issue(userDetails).accessToken());
+
+        service.revokeAllForUser(7L);
+
+        assertThat(revokedTokenIndex.isRevoked(laptop)).isTrue();
+        assertThat(revokedTokenIndex.isRevoked(phone)).isTrue();
+        assertThat(rows).allMatch(RefreshToken::isRevoked);
+    }
+
+    @Test
+    void endSessionRevokesTheAccessTokenAndItsSession() {
+        RefreshTokenService.IssuedTokens login = service.issue(userDetails);
+        Claims claims = jwtUtils.getVerifiedClaims(login.accessToken());
+
+        service.endSession(claims);
+
+        assertThat(revokedTokenIndex.isRevoked(claims.getId())).isTrue();
+        assertThat(revokedTokenIndex.isRevoked(sessionId(login.accessToken()))).isTrue();
+        assertThatThrownBy(() -> service.rotate(login.refreshToken()))
+                .isInstanceOf(InvalidRefreshTokenException.class);
+    }
+
+    private String sessionId(String accessToken) {
+        return jwtUtils.getVerifiedClaims(accessToken).get(JwtUtils.SESSION_CLAIM, String.class);
+    }
+
+    private RefreshToken row(Long id) {
+        synchronized (rows) {
+            return rows.stream().filter(row -> row.getId().equals(id)).findFirst().orElseThrow();
+        }
+    }
+
+    private static RefreshToken copy(RefreshToken token) {
+        RefreshToken copy = new RefreshToken(token.getTokenHash(), token.getUserId(), token.getFamilyId(),
+                token.getCreatedAt(), token.getExpiresAt());
+        copy.setId(token.getId());
+        copy.setUsedAt(token.getUsedAt());
+        copy.setRevoked(token.isRevoked());
+        return copy;
+    }
+}
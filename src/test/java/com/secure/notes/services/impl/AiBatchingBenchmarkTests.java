@@ -0,0 +1,157 @@
+package com.secure.notes.services.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.secure.notes.services.AiResultCache;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmark of request coalescing and micro-batching against a local mock of the
+ * chat completions endpoint. The mock answers after a fixed delay, like a real
+ * provider, and counts the requests it receives.
+ */
+class AiBatchingBenchmarkTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(AiBatchingBenchmarkTests.class);
+
+    private static final int DISTINCT_TEXTS = 64;
+    private static final int REPEATS = 3;
+    private static final long PROVIDER_LATENCY_MS = 30;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger providerRequests = new AtomicInteger();
+    private HttpServer provider;
+    private AiResultCache cache;
+
+    @BeforeEach
+    void startProvider() throws IOException {
+        provider = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        provider.createContext("/v1/chat/completions", this::answer);
+        provider.setExecutor(Executors.newFixedThreadPool(32));
+        provider.start();
+    }
+
+    @AfterEach
+    void stopProvider() {
+        provider.stop(0);
+    }
+
+    @Test
+    void coalescingAloneSendsOneRequestPerDistinctText() {
+        AiServiceImpl service = newService(false);
+        long elapsedMs = run(service);
+
+        logger.info("Batching off: {} conversions, {} provider requests, {} ms",
+                DISTINCT_TEXTS * REPEATS, providerRequests.get(), elapsedMs);
+        assertThat(providerRequests.get()).isEqualTo(DISTINCT_TEXTS);
+        // A repeat either joins the conversion in flight or, if that already finished, hits the cache
+        assertThat(service.getCoalescedCount() + cache.getStats().memoryHits())
+                .isEqualTo((long) DISTINCT_TEXTS * (REPEATS - 1));
+    }
+
+    @Test
+    void batchingCombinesShortTexts() {
+        AiServiceImpl service = newService(true);
+        long elapsedMs = run(service);
+
+        logger.info("Batching on: {} conversions, {} provider requests in {} batches, {} ms",
+                DISTINCT_TEXTS * REPEATS, providerRequests.get(), service.getBatchCount(), elapsedMs);
+        // 64 texts in batches of at most 8; a batch cut short by its window only adds requests
+        assertThat(providerRequests.get()).isLessThanOrEqualTo(DISTINCT_TEXTS / 4);
+        assertThat(service.getBatchedTextCount()).isGreaterThan(DISTINCT_TEXTS / 2);
+    }
+
+    private long run(AiServiceImpl service) {
+        long start = System.nanoTime();
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int repeat = 0; repeat < REPEATS; repeat++) {
+            for (int i = 0; i < DISTINCT_TEXTS; i++) {
+                results.add(service.convertToHinglish("text number " + i));
+            }
+        }
+        for (int i = 0; i < results.size(); i++) {
+            assertThat(results.get(i).orTimeout(10, TimeUnit.SECONDS).join())
+                    .isEqualTo("hinglish text number " + (i % DISTINCT_TEXTS));
+        }
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private AiServiceImpl newService(boolean batchEnabled) {
+        cache = new AiResultCache(null);
+        ReflectionTestUtils.setField(cache, "maxMemoryBytes", 1_048_576L);
+        ReflectionTestUtils.invokeMethod(cache, "init");
+
+        AiServiceImpl service = new AiServiceImpl("http://localhost:" + provider.getAddress().getPort(),
+                "test-key", 1024, 32, cache);
+        ReflectionTestUtils.setField(service, "model", "mock-model");
+        ReflectionTestUtils.setField(service, "temperature", 0.3);
+        ReflectionTestUtils.setField(service, "requestTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(service, "chunkMaxChars", 3000);
+        ReflectionTestUtils.setField(service, "chunkParallelism", 4);
+        ReflectionTestUtils.setField(service, "chunkMaxRetries", 2);
+        ReflectionTestUtils.setField(service, "batchEnabled", batchEnabled);
+        ReflectionTestUtils.setField(service, "batchWindowMs", 20L);
+        ReflectionTestUtils.setField(service, "batchMaxItems", 8);
+        ReflectionTestUtils.setField(service, "batchMaxTextChars", 500);
+        ReflectionTestUtils.invokeMethod(service, "init");
+        return service;
+    }
+
+    /**
+     * Mock provider: "hinglish " + text for a single prompt, {"items": [...]} for a batch prompt
+     */
+    private void answer(HttpExchange exchange) throws IOException {
+        providerRequests.incrementAndGet();
+        JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+        String prompt = request.path("messages").get(0).path("content").asText();
+
+        String content;
+        if (request.has("response_format")) {
+            JsonNode items = objectMapper.readTree(prompt.substring(prompt.indexOf("Items:\n") + "Items:\n".length()));
+            ObjectNode answer = objectMapper.createObjectNode();
+            ArrayNode converted = answer.putArray("items");
+            items.forEach(item -> converted.add("hinglish " + item.asText()));
+            content = answer.toString();
+        } else {
+            content = "hinglish " + prompt.substring(prompt.indexOf("Text: ") + "Text: ".length(),
+                    prompt.indexOf("\nHinglish:"));
+        }
+
+        ObjectNode response = objectMapper.createObjectNode();
+        response.putArray("choices").addObject().putObject("message").put("content", content);
+        byte[] bytes = response.toString().getBytes(StandardCharsets.UTF_8);
+
+        try {
+            Thread.sleep(PROVIDER_LATENCY_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
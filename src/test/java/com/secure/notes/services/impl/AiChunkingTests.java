@@ -0,0 +1,131 @@
+package com.secure.notes.services.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.secure.notes.services.AiResultCache;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Chunked conversion against a local stub that upper-cases each text after a random
+ * delay, so chunks finish out of order, and rejects texts over a size limit with 413
+ */
+class AiChunkingTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<Integer> convertedLengths = new CopyOnWriteArrayList<>();
+    private final AtomicInteger tooLarge = new AtomicInteger();
+    // Texts longer than this get 413
+    private volatile int providerMaxChars = Integer.MAX_VALUE;
+    private HttpServer provider;
+    private AiServiceImpl service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        provider = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        provider.createContext("/v1/chat/completions", this::answer);
+        provider.setExecutor(Executors.newFixedThreadPool(8));
+        provider.start();
+
+        AiResultCache cache = new AiResultCache(null);
+        ReflectionTestUtils.setField(cache, "maxMemoryBytes", 1_048_576L);
+        ReflectionTestUtils.invokeMethod(cache, "init");
+
+        service = new AiServiceImpl("http://localhost:" + provider.getAddress().getPort(),
+                "test-key", 4, 16, cache);
+        ReflectionTestUtils.setField(service, "model", "mock-model");
+        ReflectionTestUtils.setField(service, "temperature", 0.3);
+        ReflectionTestUtils.setField(service, "requestTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(service, "chunkMaxChars", 1000);
+        ReflectionTestUtils.setField(service, "chunkParallelism", 4);
+        ReflectionTestUtils.setField(service, "chunkMaxRetries", 0);
+        ReflectionTestUtils.setField(service, "batchEnabled", false);
+        ReflectionTestUtils.invokeMethod(service, "init");
+    }
+
+    @AfterEach
+    void tearDown() {
+        provider.stop(0);
+    }
+
+    @Test
+    void chunksAreReassembledInInputOrder() {
+        String text = sentences(200);
+
+        String result = service.convertToHinglish(text).orTimeout(10, TimeUnit.SECONDS).join();
+
+        assertThat(convertedLengths.size()).isGreaterThan(4);
+        assertThat(result).isEqualTo(text.toUpperCase(Locale.ROOT).trim());
+    }
+
+    @Test
+    void chunkRejectedAsTooLargeIsSplitAndConvertedAgain() {
+        providerMaxChars = 300;
+        String text = sentences(100);
+
+        String result = service.convertToHinglish(text).orTimeout(10, TimeUnit.SECONDS).join();
+
+        assertThat(tooLarge.get()).isPositive();
+        assertThat(convertedLengths).allSatisfy(length -> assertThat(length).isLessThanOrEqualTo(300));
+        assertThat(result).isEqualTo(text.toUpperCase(Locale.ROOT).trim());
+        assertThat(service.getAvailablePermits()).isEqualTo(4);
+    }
+
+    private static String sentences(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> "Sentence number " + i + " of the note. ")
+                .collect(Collectors.joining());
+    }
+
+    private void answer(HttpExchange exchange) throws IOException {
+        JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+        String prompt = request.path("messages").get(0).path("content").asText();
+        String text = prompt.substring(prompt.indexOf("Text: ") + "Text: ".length(), prompt.indexOf("\nHinglish:"));
+
+        byte[] bytes;
+        int status;
+        if (text.length() > providerMaxChars) {
+            tooLarge.incrementAndGet();
+            status = 413;
+            bytes = "{\"error\":{\"message\":\"Request too large\"}}".getBytes(StandardCharsets.UTF_8);
+        } else {
+            convertedLengths.add(text.length());
+            status = 200;
+            ObjectNode response = objectMapper.createObjectNode();
+            response.putArray("choices").addObject().putObject("message")
+                    .put("content", text.toUpperCase(Locale.ROOT));
+            bytes = response.toString().getBytes(StandardCharsets.UTF_8);
+            try {
+                Thread.sleep(ThreadLocalRandom.current().nextInt(50));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
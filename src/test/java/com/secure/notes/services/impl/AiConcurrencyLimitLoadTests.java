@@ -0,0 +1,276 @@
+package com.secure.notes.services.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.secure.notes.exceptions.AiCapacityExceededException;
+import com.secure.notes.exceptions.GlobalExceptionHandler;
+import com.secure.notes.services.AiResultCache;
+import com.secure.notes.util.TextChunker;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import reactor.core.Disposable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Load against the in-flight cap with a local provider stub that holds every request
+ * until the test lets it answer, like a provider that has slowed to a crawl. Callers
+ * beyond the cap must be turned away with 429 at once, chunked conversions must not
+ * put more calls on the provider than the cap, and every permit must come back
+ * whether a conversion completes or its caller goes away.
+ */
+class AiConcurrencyLimitLoadTests {
+
+    private static final int MAX_IN_FLIGHT = 8;
+    private static final int OVERFLOW_CALLERS = 64;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // Requests that reached the stub and are waiting to be answered
+    private final Semaphore arrived = new Semaphore(0);
+    private final CountDownLatch answer = new CountDownLatch(1);
+    // Requests the stub is handling right now, and the most seen at once
+    private final AtomicInteger upstreamInFlight = new AtomicInteger();
+    private final AtomicInteger upstreamPeak = new AtomicInteger();
+    private HttpServer provider;
+    private AiServiceImpl service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        provider = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        provider.createContext("/v1/chat/completions", this::answer);
+        provider.setExecutor(Executors.newCachedThreadPool());
+        provider.start();
+        service = newService();
+    }
+
+    @AfterEach
+    void tearDown() {
+        answer.countDown();
+        provider.stop(0);
+    }
+
+    @Test
+    void callersBeyondTheCapGet429WhileTheUpstreamIsSlow() throws Exception {
+        List<CompletableFuture<String>> admitted = new ArrayList<>();
+        for (int i = 0; i < MAX_IN_FLIGHT; i++) {
+            admitted.add(service.convertToHinglish("admitted " + i));
+        }
+        assertThat(arrived.tryAcquire(MAX_IN_FLIGHT, 10, TimeUnit.SECONDS)).isTrue();
+        assertThat(service.getAvailablePermits()).isZero();
+
+        // Distinct texts from many threads at once, so nothing is coalesced or cached
+        ExecutorService callers = Executors.newFixedThreadPool(16);
+        List<Future<Throwable>> outcomes = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < OVERFLOW_CALLERS; i++) {
+            String text = "overflow " + i;
+            outcomes.add(callers.submit(() -> {
+                try {
+                    service.convertToHinglish(text);
+                    return null;
+                } catch (Throwable e) {
+                    return e;
+                }
+            }));
+        }
+        for (Future<Throwable> outcome : outcomes) {
+            Throwable e = outcome.get(10, TimeUnit.SECONDS);
+            assertThat(e).isInstanceOf(AiCapacityExceededException.class);
+            assertThat(tooManyRequests((AiCapacityExceededException) e).getStatusCode())
+                    .isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        }
+        long rejectMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        callers.shutdown();
+
+        // Rejected without waiting on the upstream, which has not answered anything yet
+        assertThat(rejectMs).isLessThan(5000);
+        assertThat(service.getRejectedCount()).isEqualTo(OVERFLOW_CALLERS);
+        assertThat(service.getUpstreamCallCount()).isEqualTo(MAX_IN_FLIGHT);
+
+        answer.countDown();
+        for (int i = 0; i < MAX_IN_FLIGHT; i++) {
+            assertThat(admitted.get(i).get(10, TimeUnit.SECONDS)).isEqualTo("hinglish admitted " + i);
+        }
+        awaitAllPermitsBack();
+        assertThat(service.convertToHinglish("after the burst").get(10, TimeUnit.SECONDS))
+                .isEqualTo("hinglish after the burst");
+    }
+
+    @Test
+    void cancelledConversionsReleaseTheirPermits() throws Exception {
+        List<CompletableFuture<String>> admitted = new ArrayList<>();
+        for (int i = 0; i < MAX_IN_FLIGHT; i++) {
+            admitted.add(service.convertToHinglish("cancelled " + i));
+        }
+        assertThat(arrived.tryAcquire(MAX_IN_FLIGHT, 10, TimeUnit.SECONDS)).isTrue();
+        assertThatThrownBy(() -> service.convertToHinglish("one too many"))
+                .isInstanceOf(AiCapacityExceededException.class);
+
+        // The upstream still has not answered: only the cancellation can free the permits
+        admitted.forEach(future -> future.cancel(true));
+
+        awaitAllPermitsBack();
+        List<CompletableFuture<String>> next = new ArrayList<>();
+        for (int i = 0; i < MAX_IN_FLIGHT; i++) {
+            next.add(service.convertToHinglish("next " + i));
+        }
+        answer.countDown();
+        for (int i = 0; i < MAX_IN_FLIGHT; i++) {
+            assertThat(next.get(i).get(10, TimeUnit.SECONDS)).isEqualTo("hinglish next " + i);
+        }
+        awaitAllPermitsBack();
+    }
+
+    @Test
+    void chunkedConversionsStayWithinTheCap() throws Exception {
+        // Six chunks each, up to chunkParallelism (4) of them at once: 12 calls the pair could
+        // start together, but only MAX_IN_FLIGHT may reach the provider
+        ReflectionTestUtils.setField(service, "chunkMaxChars", 80);
+        int conversions = 2;
+        List<String> texts = new ArrayList<>();
+        List<CompletableFuture<String>> admitted = new ArrayList<>();
+        for (int i = 0; i < conversions; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int line = 0; line < 6; line++) {
+                text.append("Conversion ").append(i).append(" line ").append(line)
+                        .append(" has enough words to fill most of a chunk.\n");
+            }
+            texts.add(text.toString());
+            admitted.add(service.convertToHinglish(text.toString()));
+        }
+
+        assertThat(arrived.tryAcquire(MAX_IN_FLIGHT, 10, TimeUnit.SECONDS)).isTrue();
+        // The rest of the chunks wait for a permit instead of reaching the provider
+        assertThat(arrived.tryAcquire(1, 300, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(upstreamPeak.get()).isEqualTo(MAX_IN_FLIGHT);
+        // Every permit is on an upstream call, so a new conversion is turned away
+        assertThatThrownBy(() -> service.convertToHinglish("one too many"))
+                .isInstanceOf(AiCapacityExceededException.class);
+
+        answer.countDown();
+        for (int i = 0; i < conversions; i++) {
+            assertThat(admitted.get(i).get(10, TimeUnit.SECONDS)).isEqualTo(expectedChunked(texts.get(i)));
+        }
+        assertThat(upstreamPeak.get()).isLessThanOrEqualTo(MAX_IN_FLIGHT);
+        assertThat(service.getUpstreamCallCount()).isEqualTo(conversions * 6L);
+        awaitAllPermitsBack();
+    }
+
+    @Test
+    void abandonedStreamsReleaseTheirPermits() throws Exception {
+        List<Disposable> streams = new ArrayList<>();
+        for (int i = 0; i < MAX_IN_FLIGHT; i++) {
+            streams.add(service.streamHinglish("streamed " + i).subscribe());
+        }
+        assertThat(arrived.tryAcquire(MAX_IN_FLIGHT, 10, TimeUnit.SECONDS)).isTrue();
+        assertThat(service.getAvailablePermits()).isZero();
+        assertThatThrownBy(() -> service.streamHinglish("one too many"))
+                .isInstanceOf(AiCapacityExceededException.class);
+
+        // Clients going away before the first event
+        streams.forEach(Disposable::dispose);
+
+        awaitAllPermitsBack();
+    }
+
+    private void awaitAllPermitsBack() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (service.getAvailablePermits() < MAX_IN_FLIGHT && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(service.getAvailablePermits()).isEqualTo(MAX_IN_FLIGHT);
+    }
+
+    /**
+     * What the stub's answers for each chunk add up to
+     */
+    private static String expectedChunked(String text) {
+        StringBuilder expected = new StringBuilder();
+        for (String piece : TextChunker.split(text, 80)) {
+            String trailing = piece.substring(piece.stripTrailing().length());
+            expected.append("hinglish ").append(piece.strip()).append(trailing);
+        }
+        return expected.toString().trim();
+    }
+
+    private static ResponseEntity<Map<String, Object>> tooManyRequests(AiCapacityExceededException e) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/notes/convert-hinglish");
+        return new GlobalExceptionHandler().handleAiCapacityExceeded(e, new ServletWebRequest(request));
+    }
+
+    private AiServiceImpl newService() {
+        AiResultCache cache = new AiResultCache(null);
+        ReflectionTestUtils.setField(cache, "maxMemoryBytes", 1_048_576L);
+        ReflectionTestUtils.invokeMethod(cache, "init");
+
+        AiServiceImpl aiService = new AiServiceImpl("http://localhost:" + provider.getAddress().getPort(),
+                "test-key", MAX_IN_FLIGHT, 32, cache);
+        ReflectionTestUtils.setField(aiService, "model", "mock-model");
+        ReflectionTestUtils.setField(aiService, "temperature", 0.3);
+        ReflectionTestUtils.setField(aiService, "requestTimeoutMs", 30_000L);
+        ReflectionTestUtils.setField(aiService, "chunkMaxChars", 3000);
+        ReflectionTestUtils.setField(aiService, "chunkParallelism", 4);
+        ReflectionTestUtils.setField(aiService, "chunkMaxRetries", 0);
+        ReflectionTestUtils.setField(aiService, "batchEnabled", false);
+        ReflectionTestUtils.invokeMethod(aiService, "init");
+        return aiService;
+    }
+
+    /**
+     * Stub provider: holds the request until the test opens the gate, then answers "hinglish " + text
+     */
+    private void answer(HttpExchange exchange) throws IOException {
+        JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+        String prompt = request.path("messages").get(0).path("content").asText();
+        upstreamPeak.accumulateAndGet(upstreamInFlight.incrementAndGet(), Math::max);
+        arrived.release();
+        try {
+            answer.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            upstreamInFlight.decrementAndGet();
+        }
+
+        ObjectNode response = objectMapper.createObjectNode();
+        response.putArray("choices").addObject().putObject("message").put("content",
+                "hinglish " + prompt.substring(prompt.indexOf("Text: ") + "Text: ".length(),
+                        prompt.indexOf("\nHinglish:")));
+        byte[] bytes = response.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        try {
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            // The client already went away
+        }
+    }
+}
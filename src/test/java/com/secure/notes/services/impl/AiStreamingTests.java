@@ -0,0 +1,105 @@
+package com.secure.notes.services.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.secure.notes.services.AiResultCache;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Streaming conversion against a local stub that sends the deltas as server-sent events
+ */
+class AiStreamingTests {
+
+    private static final String MODEL = "mock-model";
+    private static final double TEMPERATURE = 0.3;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // Whether the stub ends its stream with [DONE] or just closes it
+    private volatile boolean sendDone = true;
+    private HttpServer provider;
+    private AiResultCache cache;
+    private AiServiceImpl service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        provider = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        provider.createContext("/v1/chat/completions", this::answer);
+        provider.start();
+
+        cache = new AiResultCache(null);
+        ReflectionTestUtils.setField(cache, "maxMemoryBytes", 1_048_576L);
+        ReflectionTestUtils.invokeMethod(cache, "init");
+
+        service = new AiServiceImpl("http://localhost:" + provider.getAddress().getPort(),
+                "test-key", 4, 8, cache);
+        ReflectionTestUtils.setField(service, "model", MODEL);
+        ReflectionTestUtils.setField(service, "temperature", TEMPERATURE);
+        ReflectionTestUtils.invokeMethod(service, "init");
+    }
+
+    @AfterEach
+    void tearDown() {
+        provider.stop(0);
+    }
+
+    @Test
+    void completeStreamIsEmittedAndCached() {
+        List<String> deltas = service.streamHinglish("good morning").collectList().block(Duration.ofSeconds(10));
+
+        assertThat(deltas).containsExactly("suprabhat", " dosto");
+        assertThat(cache.get(AiResultCache.key(MODEL, TEMPERATURE, "good morning"))).isEqualTo("suprabhat dosto");
+        assertThat(service.getAvailablePermits()).isEqualTo(4);
+    }
+
+    @Test
+    void streamCutOffBeforeDoneIsNotCached() {
+        sendDone = false;
+
+        List<String> deltas = service.streamHinglish("good morning").collectList().block(Duration.ofSeconds(10));
+
+        // The client still gets what arrived, but the partial answer must not be served from the cache later
+        assertThat(deltas).containsExactly("suprabhat", " dosto");
+        assertThat(cache.get(AiResultCache.key(MODEL, TEMPERATURE, "good morning"))).isNull();
+        assertThat(service.getAvailablePermits()).isEqualTo(4);
+    }
+
+    @Test
+    void cachedAnswerIsReturnedWithoutCallingTheProvider() {
+        service.streamHinglish("good morning").blockLast(Duration.ofSeconds(10));
+        provider.stop(0);
+
+        assertThat(service.streamHinglish("good morning").collectList().block(Duration.ofSeconds(10)))
+                .containsExactly("suprabhat dosto");
+    }
+
+    private void answer(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            for (String delta : List.of("suprabhat", " dosto")) {
+                ObjectNode chunk = objectMapper.createObjectNode();
+                chunk.putArray("choices").addObject().putObject("delta").put("content", delta);
+                out.write(("data: " + chunk + "\n\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            }
+            if (sendDone) {
+                out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+}
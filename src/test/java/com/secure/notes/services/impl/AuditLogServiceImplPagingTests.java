@@ -0,0 +1,124 @@
+package com.secure.notes.services.impl;
+
+import com.secure.notes.dtos.AuditLogFilter;
+import com.secure.notes.dtos.AuditLogPageResponse;
+import com.secure.notes.models.AuditLog;
+import com.secure.notes.repositories.AuditLogRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Keyset paging over a repository stub that applies the (timestamp, id) cursor the way the query does
+ */
+class AuditLogServiceImplPagingTests {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    private final AuditLogRepository repository = mock(AuditLogRepository.class);
+    private final AuditLogServiceImpl auditLogService = new AuditLogServiceImpl();
+    private final List<AuditLog> table = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(auditLogService, "auditLogRepository", repository);
+        when(repository.findPage(any(), any(), any(), anyInt())).thenAnswer(invocation -> {
+            LocalDateTime afterTimestamp = invocation.getArgument(1);
+            Long afterId = invocation.getArgument(2);
+            int limit = invocation.getArgument(3);
+            return table.stream()
+                    .filter(log -> afterTimestamp == null
+                            || log.getTimestamp().isAfter(afterTimestamp)
+                            || log.getTimestamp().equals(afterTimestamp) && log.getId() > afterId)
+                    .sorted(Comparator.comparing(AuditLog::getTimestamp).thenComparing(AuditLog::getId))
+                    .limit(limit)
+                    .toList();
+        });
+    }
+
+    @Test
+    void pagesCoverEveryEntryOnceIncludingTimestampTies() {
+        // Ids are not in timestamp order, and several entries share a timestamp across page boundaries
+        for (long id = 1; id <= 23; id++) {
+            table.add(entry(id, T0.plusSeconds((id * 7) % 5)));
+        }
+
+        List<Long> seen = new ArrayList<>();
+        AuditLogPageResponse page = auditLogService.getAuditLogsPage(new AuditLogFilter(), null, null, 5);
+        int pages = 1;
+        seen.addAll(ids(page));
+        while (page.getNextTimestamp() != null) {
+            page = auditLogService.getAuditLogsPage(new AuditLogFilter(), page.getNextTimestamp(), page.getNextId(), 5);
+            seen.addAll(ids(page));
+            pages++;
+        }
+
+        assertThat(pages).isEqualTo(5);
+        assertThat(seen).hasSize(23).doesNotHaveDuplicates();
+        assertThat(seen).isEqualTo(table.stream()
+                .sorted(Comparator.comparing(AuditLog::getTimestamp).thenComparing(AuditLog::getId))
+                .map(AuditLog::getId)
+                .toList());
+    }
+
+    @Test
+    void cursorPointsAtTheLastEntryOfAFullPage() {
+        for (long id = 1; id <= 3; id++) {
+            table.add(entry(id, T0.plusSeconds(id)));
+        }
+
+        AuditLogPageResponse page = auditLogService.getAuditLogsPage(null, null, null, 2);
+
+        assertThat(ids(page)).containsExactly(1L, 2L);
+        assertThat(page.getNextTimestamp()).isEqualTo(T0.plusSeconds(2));
+        assertThat(page.getNextId()).isEqualTo(2L);
+    }
+
+    @Test
+    void exactlyFullLastPageHasNoCursor() {
+        for (long id = 1; id <= 2; id++) {
+            table.add(entry(id, T0.plusSeconds(id)));
+        }
+
+        AuditLogPageResponse page = auditLogService.getAuditLogsPage(null, null, null, 2);
+
+        assertThat(ids(page)).containsExactly(1L, 2L);
+        assertThat(page.getNextTimestamp()).isNull();
+        assertThat(page.getNextId()).isNull();
+    }
+
+    @Test
+    void pageSizeDefaultsAndIsCapped() {
+        auditLogService.getAuditLogsPage(null, null, null, 0);
+        verify(repository).findPage(null, null, null, AuditLogServiceImpl.DEFAULT_PAGE_SIZE + 1);
+
+        auditLogService.getAuditLogsPage(null, null, null, 10_000);
+        verify(repository).findPage(null, null, null, AuditLogServiceImpl.MAX_PAGE_SIZE + 1);
+    }
+
+    private static List<Long> ids(AuditLogPageResponse page) {
+        return page.getLogs().stream().map(AuditLog::getId).toList();
+    }
+
+    private static AuditLog entry(long id, LocalDateTime timestamp) {
+        AuditLog log = new AuditLog();
+        log.setId(id);
+        log.setTimestamp(timestamp);
+        log.setAction("UPDATE");
+        log.setUsername("alice");
+        log.setNoteId(1L);
+        return log;
+    }
+}
@@ -0,0 +1,141 @@
+package com.secure.notes.services.impl;
+
+import com.secure.notes.dtos.NoteSearchResult;
+import com.secure.notes.models.Note;
+import com.secure.notes.repositories.NoteRepository;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Query latency of NoteSearchServiceImpl as the shared index grows. Notes are spread
+ * over a fixed number of owners and their words follow a skewed distribution, so the
+ * common term matches a large share of an owner's notes and the rare term few or none.
+ * The index is built through rebuildIndex, as on first startup.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.secure.notes.services.impl.NoteSearchBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NoteSearchBenchmark {
+
+    private static final int OWNERS = 100;
+    private static final int VOCABULARY = 5000;
+
+    @Param({"1000", "10000", "100000"})
+    private int noteCount;
+
+    private Path indexDir;
+    private NoteSearchServiceImpl searchService;
+    private String commonTerm;
+    private String rareTerm;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        String[] words = IntStream.range(0, VOCABULARY).mapToObj(i -> "word" + i).toArray(String[]::new);
+        commonTerm = words[0];
+        rareTerm = words[VOCABULARY - 1];
+
+        NoteRepository noteRepository = mock(NoteRepository.class, withSettings().stubOnly());
+        Random random = new Random(42);
+        when(noteRepository.streamAll()).thenReturn(Stream.iterate(1L, id -> id + 1).limit(noteCount)
+                .map(id -> note(id, "user" + (id % OWNERS), content(random, words))));
+
+        indexDir = Files.createTempDirectory("note-search-benchmark");
+        searchService = new NoteSearchServiceImpl();
+        ReflectionTestUtils.setField(searchService, "indexPath", indexDir.toString());
+        ReflectionTestUtils.setField(searchService, "noteRepository", noteRepository);
+        ReflectionTestUtils.setField(searchService, "transactionManager",
+                mock(PlatformTransactionManager.class, withSettings().stubOnly()));
+        ReflectionTestUtils.setField(searchService, "entityManager",
+                mock(EntityManager.class, withSettings().stubOnly()));
+        ReflectionTestUtils.invokeMethod(searchService, "open");
+        searchService.rebuildIndex();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        ReflectionTestUtils.invokeMethod(searchService, "close");
+        try (Stream<Path> files = Files.walk(indexDir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<NoteSearchResult> commonTerm() {
+        return searchService.search("user7", commonTerm, 20);
+    }
+
+    @Benchmark
+    public List<NoteSearchResult> rareTerm() {
+        return searchService.search("user7", rareTerm, 20);
+    }
+
+    @Benchmark
+    public List<NoteSearchResult> twoTerms() {
+        return searchService.search("user7", commonTerm + " word10", 20);
+    }
+
+    /**
+     * 30 to 80 words; cubing the random number skews the picks towards the low word numbers
+     */
+    private static String content(Random random, String[] words) {
+        int length = 30 + random.nextInt(51);
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            double r = random.nextDouble();
+            content.append(words[(int) (r * r * r * words.length)]).append(' ');
+        }
+        return content.toString();
+    }
+
+    private static Note note(Long id, String owner, String content) {
+        Note note = new Note();
+        note.setId(id);
+        note.setOwnerUsername(owner);
+        note.setContent(content);
+        return note;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(NoteSearchBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
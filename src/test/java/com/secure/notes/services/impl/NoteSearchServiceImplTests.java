@@ -0,0 +1,189 @@
+package com.secure.notes.services.impl;
+
+import com.secure.notes.dtos.NoteSearchResult;
+import com.secure.notes.models.Note;
+import com.secure.notes.repositories.NoteRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NoteSearchServiceImplTests {
+
+    @TempDir
+    Path indexDir;
+
+    private final NoteRepository noteRepository = mock(NoteRepository.class);
+    private final NoteSearchServiceImpl searchService = new NoteSearchServiceImpl();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(searchService, "indexPath", indexDir.toString());
+        ReflectionTestUtils.setField(searchService, "noteRepository", noteRepository);
+        ReflectionTestUtils.setField(searchService, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(searchService, "entityManager", mock(EntityManager.class));
+        ReflectionTestUtils.invokeMethod(searchService, "open");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(searchService, "close");
+    }
+
+    @Test
+    void indexedNotesAreFoundBestMatchFirst() {
+        searchService.indexNote(note(1L, "alice", "Groceries: milk, eggs and bread"));
+        searchService.indexNote(note(2L, "alice", "Quarterly budget review with the finance team"));
+        searchService.indexNote(note(3L, "alice", "Budget budget budget: cut the budget"));
+
+        List<NoteSearchResult> results = searchService.search("alice", "budget", 10);
+
+        assertThat(results).extracting(NoteSearchResult::getNoteId).containsExactly(3L, 2L);
+        assertThat(results.get(0).getScore()).isGreaterThan(results.get(1).getScore());
+        assertThat(results.get(1).getSnippet()).contains("<b>budget</b>");
+    }
+
+    @Test
+    void allTermsMustMatch() {
+        searchService.indexNote(note(1L, "alice", "budget review"));
+        searchService.indexNote(note(2L, "alice", "budget draft"));
+
+        assertThat(searchService.search("alice", "budget review", 10))
+                .extracting(NoteSearchResult::getNoteId).containsExactly(1L);
+    }
+
+    @Test
+    void searchOnlySeesTheOwnersNotes() {
+        searchService.indexNote(note(1L, "alice", "secret launch plan"));
+        searchService.indexNote(note(2L, "bob", "secret launch plan"));
+
+        assertThat(searchService.search("alice", "launch", 10))
+                .extracting(NoteSearchResult::getNoteId).containsExactly(1L);
+        assertThat(searchService.search("bob", "launch", 10))
+                .extracting(NoteSearchResult::getNoteId).containsExactly(2L);
+        assertThat(searchService.search("mallory", "launch", 10)).isEmpty();
+    }
+
+    @Test
+    void ownersAreMatchedExactlyAcrossManyOwners() {
+        // Names that an analyzed field would confuse: case, prefixes, separators
+        List<String> owners = List.of("alice", "Alice", "alice.smith", "alice smith", "al", "alice@example.com");
+        long id = 1;
+        for (String owner : owners) {
+            searchService.indexNote(note(id++, owner, "shared quarterly plan"));
+        }
+        for (int i = 0; i < 500; i++) {
+            searchService.indexNote(note(id++, "user" + i, "shared quarterly plan"));
+        }
+
+        for (int i = 0; i < owners.size(); i++) {
+            assertThat(searchService.search(owners.get(i), "quarterly", 50))
+                    .extracting(NoteSearchResult::getNoteId).containsExactly(i + 1L);
+        }
+        assertThat(searchService.search("user42", "plan", 50)).hasSize(1);
+    }
+
+    @Test
+    void updatingANoteReplacesItsIndexedContent() {
+        searchService.indexNote(note(1L, "alice", "draft agenda"));
+        searchService.indexNote(note(1L, "alice", "final agenda"));
+
+        assertThat(searchService.search("alice", "draft", 10)).isEmpty();
+        assertThat(searchService.search("alice", "final", 10))
+                .extracting(NoteSearchResult::getNoteId).containsExactly(1L);
+    }
+
+    @Test
+    void removedNotesAreNotFound() {
+        searchService.indexNote(note(1L, "alice", "holiday packing list"));
+        searchService.indexNote(note(2L, "alice", "holiday budget"));
+
+        searchService.removeNote(1L);
+
+        assertThat(searchService.search("alice", "holiday", 10))
+                .extracting(NoteSearchResult::getNoteId).containsExactly(2L);
+    }
+
+    @Test
+    void snippetsEscapeTheNoteText() {
+        searchService.indexNote(note(1L, "alice", "<script>alert(1)</script> secret <img src=x onerror=alert(2)>"));
+
+        String snippet = searchService.search("alice", "secret", 10).get(0).getSnippet();
+
+        assertThat(snippet).contains("<b>secret</b>").contains("&lt;script&gt;")
+                .doesNotContain("<script").doesNotContain("<img");
+    }
+
+    @Test
+    void blankQueriesReturnNothing() {
+        searchService.indexNote(note(1L, "alice", "anything"));
+
+        assertThat(searchService.search("alice", "  ", 10)).isEmpty();
+        assertThat(searchService.search("alice", null, 10)).isEmpty();
+    }
+
+    @Test
+    void resultsAreCappedAtTheLimit() {
+        for (long id = 1; id <= 80; id++) {
+            searchService.indexNote(note(id, "alice", "meeting notes " + id));
+        }
+
+        assertThat(searchService.search("alice", "meeting", 5)).hasSize(5);
+        assertThat(searchService.search("alice", "meeting", 500)).hasSize(NoteSearchServiceImpl.MAX_RESULTS);
+    }
+
+    @Test
+    void rebuildReplacesTheIndexWithTheDatabaseContents() {
+        searchService.indexNote(note(99L, "alice", "stale entry"));
+        when(noteRepository.streamAll()).thenReturn(Stream.of(
+                note(1L, "alice", "restored roadmap"),
+                note(2L, "bob", "restored roadmap")));
+
+        assertThat(searchService.rebuildIndex()).isEqualTo(2);
+
+        assertThat(searchService.search("alice", "stale", 10)).isEmpty();
+        assertThat(searchService.search("alice", "roadmap", 10))
+                .extracting(NoteSearchResult::getNoteId).containsExactly(1L);
+    }
+
+    @Test
+    void changesDuringARebuildAreAppliedAfterItAndNotDuplicated() {
+        Note staleCopy = note(1L, "alice", "draft roadmap");
+        when(noteRepository.streamAll()).thenReturn(Stream.of(staleCopy, note(2L, "alice", "old roadmap"))
+                .peek(note -> {
+                    if (note.getId() == 1L) {
+                        // Saved and deleted by other requests while the rebuild reads the database
+                        searchService.indexNote(note(1L, "alice", "final roadmap"));
+                        searchService.removeNote(2L);
+                        searchService.indexNote(note(3L, "alice", "new roadmap"));
+                    }
+                }));
+
+        searchService.rebuildIndex();
+
+        assertThat(searchService.search("alice", "draft", 10)).isEmpty();
+        assertThat(searchService.search("alice", "roadmap", 10))
+                .extracting(NoteSearchResult::getNoteId).containsExactlyInAnyOrder(1L, 3L);
+        assertThat(searchService.search("alice", "final", 10))
+                .extracting(NoteSearchResult::getNoteId).containsExactly(1L);
+    }
+
+    private static Note note(Long id, String owner, String content) {
+        Note note = new Note();
+        note.setId(id);
+        note.setOwnerUsername(owner);
+        note.setContent(content);
+        return note;
+    }
+}
@@ -0,0 +1,144 @@
+package com.secure.notes.services.impl;
+
+import com.secure.notes.models.AppRole;
+import com.secure.notes.models.PasswordResetToken;
+import com.secure.notes.models.Role;
+import com.secure.notes.models.User;
+import com.secure.notes.repositories.PasswordResetTokenRepository;
+import com.secure.notes.repositories.RoleRepository;
+import com.secure.notes.repositories.UserRepository;
+import com.secure.notes.security.jwt.TokenRevocationList;
+import com.secure.notes.security.services.UserDetailsCache;
+import com.secure.notes.security.services.UserDetailsImpl;
+import com.secure.notes.services.RefreshTokenService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Every change to how a user authenticates must drop the cached principal, after the change is saved
+ */
+class UserServiceImplCacheTests {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final RoleRepository roleRepository = mock(RoleRepository.class);
+    private final PasswordEncoder passwordEncoder = mock(PasswordEncoder.class);
+    private final TokenRevocationList tokenRevocationList = mock(TokenRevocationList.class);
+    private final RefreshTokenService refreshTokenService = mock(RefreshTokenService.class);
+    private final UserDetailsCache userDetailsCache = spy(new UserDetailsCache());
+    private final UserServiceImpl userService = new UserServiceImpl();
+    private final User user = new User("alice", "alice@example.com", "old-hash");
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(userDetailsCache, "maxSize", 100);
+        ReflectionTestUtils.setField(userDetailsCache, "ttlSeconds", 300L);
+        ReflectionTestUtils.invokeMethod(userDetailsCache, "init");
+
+        ReflectionTestUtils.setField(userService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(userService, "roleRepository", roleRepository);
+        ReflectionTestUtils.setField(userService, "passwordEncoder", passwordEncoder);
+        ReflectionTestUtils.setField(userService, "tokenRevocationList", tokenRevocationList);
+        ReflectionTestUtils.setField(userService, "refreshTokenService", refreshTokenService);
+        ReflectionTestUtils.setField(userService, "userDetailsCache", userDetailsCache);
+
+        user.setUserId(7L);
+        user.setRole(new Role(AppRole.ROLE_USER));
+        when(userRepository.findById(7L)).thenReturn(Optional.of(user));
+        when(userRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        userDetailsCache.put("alice", principal());
+        userDetailsCache.put("alice@example.com", principal());
+    }
+
+    @Test
+    void roleChangeEvictsAfterTheSaveAndRevokesTokens() {
+        when(roleRepository.findByRoleName(AppRole.ROLE_ADMIN)).thenReturn(Optional.of(new Role(AppRole.ROLE_ADMIN)));
+
+        userService.updateUserRole(7L, "ROLE_ADMIN");
+
+        assertEvictedAfterSave();
+        verify(tokenRevocationList).revokeAllTokens("alice");
+    }
+
+    @Test
+    void lockEvictsAfterTheSaveAndEndsSessions() {
+        userService.updateAccountLockStatus(7L, true);
+
+        assertThat(user.isAccountNonLocked()).isFalse();
+        assertEvictedAfterSave();
+        verify(tokenRevocationList).revokeAllTokens("alice");
+        verify(refreshTokenService).revokeAllForUser(7L);
+    }
+
+    @Test
+    void unlockEvictsWithoutEndingSessions() {
+        userService.updateAccountLockStatus(7L, false);
+
+        assertEvictedAfterSave();
+        verify(refreshTokenService, never()).revokeAllForUser(any());
+    }
+
+    @Test
+    void passwordChangeEvictsAfterTheSaveAndEndsRefreshSessions() {
+        when(passwordEncoder.encode("new-password")).thenReturn("new-hash");
+
+        userService.updatePassword(7L, "new-password");
+
+        assertThat(user.getPassword()).isEqualTo("new-hash");
+        assertEvictedAfterSave();
+        verify(refreshTokenService).revokeAllForUser(7L);
+    }
+
+    @Test
+    void passwordResetEvictsOnlyOnceTheTransactionCommits() {
+        PasswordResetTokenRepository tokenRepository = mock(PasswordResetTokenRepository.class);
+        ReflectionTestUtils.setField(userService, "passwordResetTokenRepository", tokenRepository);
+        when(tokenRepository.findByToken("reset-token")).thenReturn(Optional.of(
+                new PasswordResetToken("reset-token", Instant.now().plusSeconds(600), user)));
+        when(passwordEncoder.encode("new-password")).thenReturn("new-hash");
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            userService.resetPassword("reset-token", "new-password");
+            // Still in the transaction: a reload now would read the old row
+            assertThat(userDetailsCache.get("alice")).isNotNull();
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEvictedAfterSave();
+        verify(refreshTokenService).revokeAllForUser(7L);
+    }
+
+    private void assertEvictedAfterSave() {
+        assertThat(userDetailsCache.get("alice")).isNull();
+        assertThat(userDetailsCache.get("alice@example.com")).isNull();
+        InOrder order = inOrder(userRepository, userDetailsCache);
+        order.verify(userRepository).save(user);
+        order.verify(userDetailsCache).evict(user);
+    }
+
+    private static UserDetailsImpl principal() {
+        return new UserDetailsImpl(7L, "alice", "alice@example.com", "old-hash", false, List.of());
+    }
+}
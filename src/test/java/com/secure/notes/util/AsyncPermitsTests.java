@@ -0,0 +1,55 @@
+package com.secure.notes.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AsyncPermitsTests {
+
+    private final AsyncPermits permits = new AsyncPermits(2);
+
+    @Test
+    void waitersGetReleasedPermitsInOrder() {
+        assertThat(permits.acquire()).isDone();
+        assertThat(permits.tryAcquire()).isTrue();
+        CompletableFuture<Void> first = permits.acquire();
+        CompletableFuture<Void> second = permits.acquire();
+        assertThat(first).isNotDone();
+
+        permits.release();
+
+        assertThat(first).isDone();
+        assertThat(second).isNotDone();
+        assertThat(permits.availablePermits()).isZero();
+    }
+
+    @Test
+    void tryAcquireDoesNotJumpTheQueue() {
+        permits.tryAcquire();
+        permits.tryAcquire();
+        CompletableFuture<Void> waiter = permits.acquire();
+
+        permits.release();
+
+        assertThat(waiter).isDone();
+        assertThat(permits.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void cancelledWaiterIsSkipped() {
+        permits.tryAcquire();
+        permits.tryAcquire();
+        CompletableFuture<Void> gaveUp = permits.acquire();
+        CompletableFuture<Void> next = permits.acquire();
+        assertThat(gaveUp.cancel(false)).isTrue();
+
+        permits.release();
+
+        assertThat(next).isDone();
+        permits.release();
+        assertThat(permits.availablePermits()).isEqualTo(1);
+        assertThat(permits.queueLength()).isZero();
+    }
+}
@@ -0,0 +1,93 @@
+package com.secure.notes.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request body building for the AI provider: the per-call ObjectNode tree that
+ * AiServiceImpl used to build, against the prebuilt ChatRequestTemplate.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.secure.notes.util.ChatRequestTemplateBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatRequestTemplateBenchmark {
+
+    private static final String MODEL = "llama3-70b-8192";
+    private static final double TEMPERATURE = 0.3;
+    private static final String PROMPT_BEFORE_TEXT =
+            "Convert the following text into Hinglish (Hindi words in English script).\n" +
+                    "Rules:\n" +
+                    "- Output ONLY the converted sentence. Nothing else.\n" +
+                    "- Do not add any explanation or notes.\n" +
+                    "- Do not add quotation marks around the output.\n\n" +
+                    "Text: ";
+    private static final String PROMPT_AFTER_TEXT = "\nHinglish:";
+
+    @Param({"200", "2000"})
+    private int textLength;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ChatRequestTemplate template;
+    private String text;
+
+    @Setup
+    public void setUp() {
+        template = ChatRequestTemplate.of(MODEL, TEMPERATURE, false, PROMPT_BEFORE_TEXT, PROMPT_AFTER_TEXT);
+        text = "Aaj office mein bahut kaam tha. ".repeat(textLength / 31 + 1).substring(0, textLength);
+    }
+
+    @Benchmark
+    public byte[] objectNodeTree() {
+        String prompt = PROMPT_BEFORE_TEXT + text + PROMPT_AFTER_TEXT;
+
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("model", MODEL);
+        body.put("temperature", TEMPERATURE);
+        body.put("stream", false);
+
+        ArrayNode messages = objectMapper.createArrayNode();
+        ObjectNode userMessage = objectMapper.createObjectNode();
+        userMessage.put("role", "user");
+        userMessage.put("content", prompt);
+        messages.add(userMessage);
+
+        body.set("messages", messages);
+
+        // The String body was encoded to bytes again by the WebClient codec
+        return body.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] prebuiltTemplate() {
+        return template.render(text);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ChatRequestTemplateBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
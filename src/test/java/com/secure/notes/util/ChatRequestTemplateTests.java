@@ -0,0 +1,131 @@
+package com.secure.notes.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The hand-escaped request body must be the JSON Jackson would produce for the same request
+ */
+class ChatRequestTemplateTests {
+
+    private static final String MODEL = "llama3-70b-8192";
+    private static final double TEMPERATURE = 0.7;
+    // Prompt parts with characters the template itself has to escape
+    private static final String PROMPT_BEFORE = "Convert \"this\" text:\n\t";
+    private static final String PROMPT_AFTER = "\nHinglish \\ done:";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ChatRequestTemplate template =
+            ChatRequestTemplate.of(MODEL, TEMPERATURE, false, PROMPT_BEFORE, PROMPT_AFTER);
+
+    @Test
+    void randomTextsRenderTheSameJsonAsJackson() throws IOException {
+        Random random = new Random(16);
+        for (int run = 0; run < 5000; run++) {
+            String text = randomText(random, random.nextInt(64));
+
+            byte[] rendered = template.render(text);
+
+            JsonNode expected = expectedRequest(text);
+            assertThat(objectMapper.readTree(rendered)).as("text %s", describe(text)).isEqualTo(expected);
+            if (text.chars().noneMatch(c -> c < 0x20 || Character.isSurrogate((char) c))) {
+                // Without control characters the escaping is byte for byte what Jackson writes
+                assertThat(new String(rendered, StandardCharsets.UTF_8)).as("text %s", describe(text))
+                        .isEqualTo(objectMapper.writeValueAsString(expected));
+            }
+        }
+    }
+
+    @Test
+    void everyControlCharacterIsEscaped() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (char c = 0; c < 0x20; c++) {
+            text.append(c);
+        }
+        text.append("\"\\/\u007F");
+
+        byte[] rendered = template.render(text.toString());
+
+        for (byte b : rendered) {
+            assertThat(b < 0 || b >= 0x20).isTrue();
+        }
+        assertThat(objectMapper.readTree(rendered)).isEqualTo(expectedRequest(text.toString()));
+    }
+
+    @Test
+    void loneSurrogatesBecomeReplacementCharactersLikeAnyUtf8Encoding() throws IOException {
+        String text = "high \uD83D alone, low \uDE00 alone, reversed \uDE00\uD83D, pair \uD83D\uDE00";
+
+        JsonNode content = objectMapper.readTree(template.render(text)).path("messages").get(0).path("content");
+
+        assertThat(content.asText())
+                .isEqualTo(PROMPT_BEFORE + "high ? alone, low ? alone, reversed ??, pair \uD83D\uDE00" + PROMPT_AFTER);
+    }
+
+    @Test
+    void streamFlagAndEmptyTextAreRendered() throws IOException {
+        JsonNode request = objectMapper.readTree(
+                ChatRequestTemplate.of(MODEL, TEMPERATURE, true, PROMPT_BEFORE, PROMPT_AFTER).render(""));
+
+        assertThat(request.path("stream").asBoolean()).isTrue();
+        assertThat(request.path("messages").get(0).path("content").asText()).isEqualTo(PROMPT_BEFORE + PROMPT_AFTER);
+    }
+
+    @Test
+    void promptContainingTheMarkerIsRejected() {
+        assertThatThrownBy(() -> ChatRequestTemplate.of(MODEL, TEMPERATURE, false, "@@TEXT@@", ""))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * The request as Jackson builds it. A lone surrogate cannot be encoded as UTF-8, so the
+     * expected text is what String.getBytes makes of it: a '?' in its place.
+     */
+    private JsonNode expectedRequest(String text) {
+        String encodable = new String(text.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+        ObjectNode request = objectMapper.createObjectNode();
+        request.put("model", MODEL);
+        request.put("temperature", TEMPERATURE);
+        request.put("stream", false);
+        ObjectNode message = request.putArray("messages").addObject();
+        message.put("role", "user");
+        message.put("content", PROMPT_BEFORE + encodable + PROMPT_AFTER);
+        return request;
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder();
+        while (text.length() < length) {
+            switch (random.nextInt(10)) {
+                case 0 -> text.append((char) random.nextInt(0x20));
+                case 1 -> text.append('"');
+                case 2 -> text.append('\\');
+                case 3 -> text.append("/\u007F");
+                // Non-ASCII in the BMP: Latin-1, Devanagari, CJK, line and paragraph separators
+                case 4 -> text.append("\u00E9\u0939\u0940\u65E5\u2028\u2029".charAt(random.nextInt(6)));
+                // A valid supplementary character
+                case 5 -> text.appendCodePoint(0x10000 + random.nextInt(0x100000));
+                // A lone high or low surrogate
+                case 6 -> text.append((char) (0xD800 + random.nextInt(0x800)));
+                default -> text.append((char) (0x20 + random.nextInt(0x5F)));
+            }
+        }
+        return text.toString();
+    }
+
+    private static String describe(String text) {
+        StringBuilder escaped = new StringBuilder();
+        text.chars().forEach(c -> escaped.append(c >= 0x20 && c < 0x7F ? String.valueOf((char) c)
+                : String.format("\\u%04X", c)));
+        return escaped.toString();
+    }
+}
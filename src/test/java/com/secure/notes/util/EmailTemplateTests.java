@@ -0,0 +1,48 @@
+package com.secure.notes.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EmailTemplateTests {
+
+    @Test
+    void rendersEveryPlaceholderOccurrence() {
+        EmailTemplate template = EmailTemplate.compile("<a href=\"{{url}}\">{{ url }}</a> for {{name}}.");
+
+        assertThat(template.render(Map.of("url", "https://x.test/r?t=1", "name", "Alice")))
+                .isEqualTo("<a href=\"https://x.test/r?t=1\">https://x.test/r?t=1</a> for Alice.");
+    }
+
+    @Test
+    void escapesValuesForHtml() {
+        EmailTemplate template = EmailTemplate.compile("<p>{{name}}</p>");
+
+        assertThat(template.render(Map.of("name", "<b>\"Tom\" & 'Jerry'</b>")))
+                .isEqualTo("<p>&lt;b&gt;&quot;Tom&quot; &amp; &#39;Jerry&#39;&lt;/b&gt;</p>");
+    }
+
+    @Test
+    void templateWithoutPlaceholdersIsReturnedAsIs() {
+        assertThat(EmailTemplate.compile("body { color: #333; }").render(Map.of()))
+                .isEqualTo("body { color: #333; }");
+    }
+
+    @Test
+    void missingValueIsAnError() {
+        EmailTemplate template = EmailTemplate.compile("Hello {{name}}");
+
+        assertThatThrownBy(() -> template.render(Map.of()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("name");
+    }
+
+    @Test
+    void unclosedPlaceholderIsRejectedAtCompileTime() {
+        assertThatThrownBy(() -> EmailTemplate.compile("Hello {{name"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,119 @@
+package com.secure.notes.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExpiringCacheTests {
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+    private final ExpiringCache<String, String> cache = new ExpiringCache<>(100, now::get);
+
+    @Test
+    void entryIsServedUntilItsExpiryTime() {
+        cache.put("token", "claims", now.get() + 1000);
+
+        now.addAndGet(999);
+        assertThat(cache.get("token")).isEqualTo("claims");
+
+        now.addAndGet(1);
+        assertThat(cache.get("token")).isNull();
+    }
+
+    @Test
+    void eachEntryKeepsItsOwnExpiry() {
+        cache.put("short", "a", now.get() + 1000);
+        cache.put("long", "b", now.get() + 60_000);
+
+        now.addAndGet(5000);
+        assertThat(cache.get("short")).isNull();
+        assertThat(cache.get("long")).isEqualTo("b");
+    }
+
+    @Test
+    void readsDoNotExtendTheExpiry() {
+        cache.put("token", "claims", now.get() + 1000);
+        for (int i = 0; i < 10; i++) {
+            now.addAndGet(90);
+            assertThat(cache.get("token")).isEqualTo("claims");
+        }
+
+        now.addAndGet(100);
+        assertThat(cache.get("token")).isNull();
+    }
+
+    @Test
+    void alreadyExpiredEntryIsNotStored() {
+        cache.put("token", "claims", now.get());
+
+        assertThat(cache.get("token")).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void sizeStaysWithinTheBound() {
+        for (int i = 0; i < 1000; i++) {
+            cache.put("key-" + i, "value", now.get() + 60_000);
+        }
+
+        assertThat(cache.size()).isLessThanOrEqualTo(100);
+        assertThat(cache.getStats().evictions()).isGreaterThanOrEqualTo(900);
+    }
+
+    @Test
+    void computeIfAbsentLoadsOnceAndExpiresAfterTheTtl() {
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThat(cache.computeIfAbsent("user", key -> "secret-" + loads.incrementAndGet(), 1000))
+                .isEqualTo("secret-1");
+        assertThat(cache.computeIfAbsent("user", key -> "secret-" + loads.incrementAndGet(), 1000))
+                .isEqualTo("secret-1");
+
+        now.addAndGet(1000);
+        assertThat(cache.computeIfAbsent("user", key -> "secret-" + loads.incrementAndGet(), 1000))
+                .isEqualTo("secret-2");
+    }
+
+    @Test
+    void nullFromTheLoaderIsNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThat(cache.computeIfAbsent("user", key -> {
+            loads.incrementAndGet();
+            return null;
+        }, 1000)).isNull();
+        assertThat(cache.get("user")).isNull();
+
+        assertThat(cache.computeIfAbsent("user", key -> "loaded", 1000)).isEqualTo("loaded");
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void invalidateRemovesTheEntry() {
+        cache.put("a", "1", now.get() + 1000);
+        cache.put("b", "2", now.get() + 1000);
+
+        cache.invalidate("a");
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.get("b")).isEqualTo("2");
+
+        cache.invalidateAll();
+        assertThat(cache.get("b")).isNull();
+    }
+
+    @Test
+    void statsCountHitsAndMisses() {
+        cache.put("a", "1", now.get() + 1000);
+        cache.get("a");
+        cache.get("a");
+        cache.get("missing");
+
+        ExpiringCache.CacheStats stats = cache.getStats();
+        assertThat(stats.hits()).isEqualTo(2);
+        assertThat(stats.misses()).isEqualTo(1);
+        assertThat(stats.maxSize()).isEqualTo(100);
+    }
+}
@@ -0,0 +1,114 @@
+package com.secure.notes.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class NoteContentCodecTests {
+
+    @Test
+    void deltaRoundTripsAnEditInTheMiddle() {
+        String previous = "Buy milk, eggs and bread";
+        String current = "Buy milk, butter and bread";
+
+        assertThat(NoteContentCodec.applyDelta(previous, NoteContentCodec.delta(previous, current)))
+                .isEqualTo(current);
+    }
+
+    @Test
+    void deltaRoundTripsWithoutCommonPrefixOrSuffix() {
+        assertThat(roundTrip("abc", "xyz")).isEqualTo("xyz");
+        assertThat(roundTrip("", "new note")).isEqualTo("new note");
+        assertThat(roundTrip("old note", "")).isEmpty();
+        assertThat(roundTrip(null, "text")).isEqualTo("text");
+        assertThat(roundTrip("same", "same")).isEqualTo("same");
+    }
+
+    @Test
+    void deltaRoundTripsAppendAndPrepend() {
+        assertThat(roundTrip("line one", "line one\nline two")).isEqualTo("line one\nline two");
+        assertThat(roundTrip("line two", "line one\nline two")).isEqualTo("line one\nline two");
+        // Repeated characters make prefix and suffix overlap candidates
+        assertThat(roundTrip("aaaa", "aaaaaa")).isEqualTo("aaaaaa");
+        assertThat(roundTrip("aaaaaa", "aaaa")).isEqualTo("aaaa");
+    }
+
+    @Test
+    void deltaNeverSplitsASurrogatePair() {
+        // Two emoji (U+1F600, U+1F60E) with the same high surrogate, so a char-wise prefix would end inside the pair
+        String previous = "mood: \uD83D\uDE00 today";
+        String current = "mood: \uD83D\uDE0E today";
+
+        assertThat(roundTrip(previous, current)).isEqualTo(current);
+        assertThat(roundTrip("\uD83D\uDE00", "\uD83D\uDE00\uD83D\uDE00")).isEqualTo("\uD83D\uDE00\uD83D\uDE00");
+        assertThat(roundTrip("na\u00EFve caf\u00E9", "na\u00EFve caf\u00E9s \u65E5\u672C"))
+                .isEqualTo("na\u00EFve caf\u00E9s \u65E5\u672C");
+    }
+
+    @Test
+    void snapshotRoundTripsUnicodeAndEmptyContent() {
+        String content = "caf\u00E9 \u65E5\u672C\u8A9E \uD83D\uDE00";
+
+        assertThat(NoteContentCodec.restoreSnapshot(NoteContentCodec.snapshot(content))).isEqualTo(content);
+        assertThat(NoteContentCodec.restoreSnapshot(NoteContentCodec.snapshot(null))).isEmpty();
+    }
+
+    @Test
+    void deltaOfASmallEditIsMuchSmallerThanASnapshot() {
+        String previous = "Meeting notes ".repeat(1000) + "action items";
+        String current = "Meeting notes ".repeat(1000) + "action items: follow up";
+
+        byte[] delta = NoteContentCodec.delta(previous, current);
+        assertThat(delta.length).isLessThan(NoteContentCodec.snapshot(current).length);
+        assertThat(delta.length).isLessThan(64);
+    }
+
+    @Test
+    void deltaAgainstTheWrongBaseIsRejected() {
+        byte[] delta = NoteContentCodec.delta("a long previous revision", "a long current revision");
+
+        assertThatThrownBy(() -> NoteContentCodec.applyDelta("short", delta))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void corruptContentIsRejected() {
+        byte[] snapshot = NoteContentCodec.snapshot("some note content");
+        byte[] truncated = Arrays.copyOf(snapshot, snapshot.length / 2);
+
+        assertThatThrownBy(() -> NoteContentCodec.restoreSnapshot(truncated))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> NoteContentCodec.restoreSnapshot(new byte[]{1, 2, 3}))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void hashMatchesKnownSha256() {
+        assertThat(NoteContentCodec.sha256Hex("abc"))
+                .isEqualTo("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+        assertThat(NoteContentCodec.sha256Hex(null)).isEqualTo(NoteContentCodec.sha256Hex(""));
+    }
+
+    @Test
+    void lengthCountsCodePointsLikeCharLength() {
+        assertThat(NoteContentCodec.charLength("abc")).isEqualTo(3);
+        assertThat(NoteContentCodec.charLength("a\ud83d\ude00b")).isEqualTo(3);
+        assertThat(NoteContentCodec.charLength(null)).isZero();
+    }
+
+    @Test
+    void previewNeverSplitsASurrogatePair() {
+        String text = "ab\ud83d\ude00cd";
+
+        assertThat(NoteContentCodec.preview(text, 3)).isEqualTo("ab\ud83d\ude00");
+        assertThat(NoteContentCodec.preview(text, 10)).isEqualTo(text);
+        assertThat(NoteContentCodec.preview(null, 10)).isEmpty();
+    }
+
+    private static String roundTrip(String previous, String current) {
+        return NoteContentCodec.applyDelta(previous, NoteContentCodec.delta(previous, current));
+    }
+}
@@ -0,0 +1,73 @@
+package com.secure.notes.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contention on the rate limiter used by AuthRateLimitFilter: 8 threads counting
+ * requests for random keys, with one lock stripe (a single synchronized map) against
+ * the striped layout. The hotKey case has every thread on the same key, the worst
+ * case for any layout.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.secure.notes.util.SlidingWindowRateLimiterBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class SlidingWindowRateLimiterBenchmark {
+
+    private static final int KEYS = 10_000;
+
+    @Param({"1", "64"})
+    private int stripes;
+
+    private SlidingWindowRateLimiter limiter;
+    private String[] keys;
+
+    @Setup
+    public void setUp() {
+        // Limit high enough that the measurement is the bookkeeping, not rejections
+        limiter = new SlidingWindowRateLimiter(Integer.MAX_VALUE / 2, 60_000, KEYS * 2, stripes,
+                System::currentTimeMillis);
+        keys = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = "/api/auth/public/signin|10.0." + (i / 256) + "." + (i % 256);
+        }
+    }
+
+    @Benchmark
+    public long randomKeys() {
+        return limiter.tryAcquire(keys[ThreadLocalRandom.current().nextInt(KEYS)]);
+    }
+
+    @Benchmark
+    public long hotKey() {
+        return limiter.tryAcquire(keys[0]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SlidingWindowRateLimiterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
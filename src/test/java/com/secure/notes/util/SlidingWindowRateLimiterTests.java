@@ -0,0 +1,60 @@
+package com.secure.notes.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlidingWindowRateLimiterTests {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(5, 1000, 100, 4, now::get);
+
+    @Test
+    void rejectsOverTheLimitUntilTheWindowEnds() {
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire("alice")).isZero();
+        }
+        now.addAndGet(250);
+
+        assertThat(limiter.tryAcquire("alice")).isEqualTo(750);
+        assertThat(limiter.tryAcquire("bob")).isZero();
+    }
+
+    @Test
+    void previousWindowCountsByItsOverlap() {
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire("alice");
+        }
+        // 40% into the next window, 60% of the previous 5 still counts: 3
+        now.addAndGet(1400);
+
+        assertThat(limiter.tryAcquire("alice")).isZero();
+        assertThat(limiter.tryAcquire("alice")).isZero();
+        assertThat(limiter.tryAcquire("alice")).isPositive();
+    }
+
+    @Test
+    void idleKeysAreDropped() {
+        for (int i = 0; i < 50; i++) {
+            limiter.tryAcquire("user" + i);
+        }
+        now.addAndGet(3000);
+        for (int i = 0; i < 4; i++) {
+            limiter.tryAcquire("fresh" + i);
+        }
+
+        assertThat(limiter.size()).isLessThan(50);
+        assertThat(limiter.tryAcquire("user0")).isZero();
+    }
+
+    @Test
+    void keyCountIsBounded() {
+        for (int i = 0; i < 10_000; i++) {
+            limiter.tryAcquire("user" + i);
+        }
+
+        assertThat(limiter.size()).isLessThanOrEqualTo(100);
+    }
+}
@@ -0,0 +1,104 @@
+package com.secure.notes.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TextChunkerTests {
+
+    @Test
+    void textOfExactlyTheMaxSizeIsOneChunk() {
+        String text = "x".repeat(100);
+
+        assertThat(TextChunker.split(text, 100)).containsExactly(text);
+    }
+
+    @Test
+    void oneCharOverTheMaxSizeIsSplit() {
+        String text = "word ".repeat(20) + "x";
+
+        List<String> chunks = TextChunker.split(text, 100);
+
+        assertThat(chunks).hasSize(2);
+        assertValid(text, chunks, 100);
+    }
+
+    @Test
+    void emptyAndNullTextGiveOneEmptyChunk() {
+        assertThat(TextChunker.split("", 10)).containsExactly("");
+        assertThat(TextChunker.split(null, 10)).containsExactly("");
+        assertThatThrownBy(() -> TextChunker.split("text", 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void textWithoutWhitespaceIsCutAtTheLimit() {
+        String text = "a".repeat(10_000);
+
+        List<String> chunks = TextChunker.split(text, 3000);
+
+        assertThat(chunks).extracting(String::length).containsExactly(3000, 3000, 3000, 1000);
+        assertValid(text, chunks, 3000);
+    }
+
+    @Test
+    void surrogatePairsAreNeverSplit() {
+        // U+1F600 is two chars, so an odd limit lands in the middle of a pair
+        String text = "\uD83D\uDE00".repeat(500);
+
+        List<String> chunks = TextChunker.split(text, 101);
+
+        assertValid(text, chunks, 101);
+        assertThat(chunks).allSatisfy(chunk -> {
+            assertThat(Character.isLowSurrogate(chunk.charAt(0))).isFalse();
+            assertThat(Character.isHighSurrogate(chunk.charAt(chunk.length() - 1))).isFalse();
+        });
+    }
+
+    @Test
+    void cutsPreferLineBreaksThenSentencesThenWhitespace() {
+        String paragraph = "First sentence of the paragraph. Second sentence of it.\n";
+        List<String> byParagraph = TextChunker.split(paragraph + paragraph, paragraph.length() + 10);
+        assertThat(byParagraph).containsExactly(paragraph, paragraph);
+
+        String sentences = "One short sentence here. Another short sentence here. A third one.";
+        List<String> bySentence = TextChunker.split(sentences, 40);
+        assertThat(bySentence.get(0)).isEqualTo("One short sentence here. ");
+        assertValid(sentences, bySentence, 40);
+
+        String words = "alpha beta gamma delta epsilon zeta eta theta iota kappa";
+        List<String> byWhitespace = TextChunker.split(words, 20);
+        assertThat(byWhitespace).allSatisfy(chunk -> assertThat(chunk).doesNotStartWith(" "));
+        assertValid(words, byWhitespace, 20);
+    }
+
+    @Test
+    void randomTextAlwaysReassemblesWithinTheLimit() {
+        Random random = new Random(7);
+        String[] pieces = {"word", " ", "  ", ".", ". ", "\n", "\n\n", "\uD83D\uDE00", "\u00E9t\u00E9", "?! ", "\t"};
+        for (int run = 0; run < 200; run++) {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(2000);
+            while (text.length() < length) {
+                text.append(pieces[random.nextInt(pieces.length)]);
+            }
+            int maxChars = 2 + random.nextInt(300);
+
+            assertValid(text.toString(), TextChunker.split(text.toString(), maxChars), maxChars);
+        }
+    }
+
+    /**
+     * Chunks are within the limit and concatenate back to the input
+     */
+    private static void assertValid(String text, List<String> chunks, int maxChars) {
+        assertThat(String.join("", chunks)).isEqualTo(text);
+        assertThat(chunks).allSatisfy(chunk -> assertThat(chunk.length()).isLessThanOrEqualTo(maxChars));
+        if (!text.isEmpty()) {
+            assertThat(chunks).allSatisfy(chunk -> assertThat(chunk).isNotEmpty());
+        }
+    }
+}
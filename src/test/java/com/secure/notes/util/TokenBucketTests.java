@@ -0,0 +1,45 @@
+package com.secure.notes.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class TokenBucketTests {
+
+    private final AtomicLong now = new AtomicLong();
+    private final TokenBucket bucket = new TokenBucket(100, 50, now::get);
+
+    @Test
+    void burstIsServedWithoutWaiting() {
+        assertThat(bucket.reserve(50)).isZero();
+        assertThat(bucket.reserve(1)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(10));
+    }
+
+    @Test
+    void requestLargerThanCapacityWaitsAtTheRate() {
+        // 50 tokens on hand, 150 more at 100/s
+        assertThat(bucket.reserve(200)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(1500));
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1500));
+        assertThat(bucket.getAvailable()).isCloseTo(0.0, within(1e-6));
+    }
+
+    @Test
+    void refillStopsAtCapacity() {
+        bucket.reserve(50);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+        assertThat(bucket.getAvailable()).isEqualTo(50.0);
+    }
+
+    @Test
+    void holdOffDelaysTheNextRequest() {
+        bucket.holdOff(TimeUnit.SECONDS.toNanos(2));
+
+        assertThat(bucket.reserve(1)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(2010));
+    }
+}